@@ -7,11 +7,18 @@
 package com.qmul.commandFramework;
 
 import com.qmul.model.*;
+import com.qmul.imgUtil.Histogram;
+import com.qmul.imgUtil.HistogramService;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageStatistics;
+import com.qmul.imgUtil.StatisticsService;
+import com.qmul.imgUtil.TiledImage;
 import java.awt.image.BufferedImage;
 
 abstract public class AbstractCommandFilter implements ICommand{
     private Momento memento;
     protected BufferedImage bufferImg;    
+    protected TiledImage tiledImg;
     protected PathPanel panel;
     protected String commandName;
     protected int imgWidth, imgHeight;
@@ -30,21 +37,86 @@ abstract public class AbstractCommandFilter implements ICommand{
     public AbstractCommandFilter(PathPanel panel, BufferedImage bi)
     {
         this.panel = panel;  
-        if (bi == null)
+        // a tiled image is only copied into bufferImg for filters that cannot work on tiles
+        this.tiledImg = supportsTiles() ? panel.getTiledImage() : null;
+        if (this.tiledImg == null)
         {
-            this.bufferImg = panel.getImage();
-            if (this.bufferImg == null)
+            BufferedImage current = panel.getImage();
+            if (bi == null && current == null)
             {
                 System.out.println("No Image selected!");
-            }                      
+            }
+            this.bufferImg = current == null ? bi : current;
         }
-        this.bufferImg = panel.getImage() == null ? bi : panel.getImage();
         this.angle = panel.getCurrentAngle();
         this.imgWidth = panel.getCurrentImageWidth();
         this.imgHeight = panel.getCurrentImageHeight();
     }
+
+  /**
+   * This constructor is used to to get PathPanel and a tiled image to work on.
+   *
+   * @param panel the given panel.
+   * @param tiledImage  the tiled image.
+   */    
+    public AbstractCommandFilter(PathPanel panel, TiledImage tiledImage)
+    {
+        this.panel = panel;  
+        this.tiledImg = tiledImage;
+        this.angle = panel.getCurrentAngle();
+        this.imgWidth = tiledImage.getWidth();
+        this.imgHeight = tiledImage.getHeight();
+    }
     
     abstract protected void transform(); 
+
+  /**
+   * This method tells whether the filter computes its output tile by tile.
+   * Such filters get the current tiled image in tiledImg instead of a copy in bufferImg.
+   * It is called from the constructor, so it must not depend on subclass fields.
+   *
+   * @return boolean
+   */         
+    protected boolean supportsTiles() {
+        return false;
+    }
+  /**
+   * This method return a histogram of the image the command works on. The
+   * histogram of the current image of the panel is kept with the image, so
+   * the commands run on it count it once.
+   *
+   * @param source  channels to count
+   * @param planes  planes of the image already converted for the source, null for none
+   * @return Histogram
+   */         
+    protected Histogram getHistogram(Histogram.Source source, ImageBuffer planes) {
+        Histogram histogram = panel.getHistogram(source, planes);
+        if (histogram != null) {
+            return histogram;
+        }
+        if (planes != null) {
+            return HistogramService.compute(planes, source);
+        }
+        return tiledImg != null ? HistogramService.compute(tiledImg, source) : HistogramService.compute(bufferImg, source);
+    }
+  /**
+   * This method return the statistics of the red, green and blue channels of
+   * the image the command works on, kept with the current image of the panel
+   * like its histograms.
+   *
+   * @param planes  red, green and blue planes of the image already read, null for none
+   * @return ImageStatistics
+   */         
+    protected ImageStatistics getStatistics(ImageBuffer planes) {
+        ImageStatistics statistics = panel.getStatistics(planes);
+        if (statistics != null) {
+            return statistics;
+        }
+        if (planes != null) {
+            return StatisticsService.compute(planes);
+        }
+        return tiledImg != null ? StatisticsService.compute(tiledImg) : StatisticsService.compute(bufferImg);
+    }
   /**
    * This method is used to override the execute commands
    *
@@ -53,6 +125,9 @@ abstract public class AbstractCommandFilter implements ICommand{
     public void execute() {
         this.memento = panel.getMomento();
         transform();
+        // the input stays reachable through the memento only, so the panel can move it out of the heap
+        this.bufferImg = null;
+        this.tiledImg = null;
         System.out.println(this.commandName); 
     }
   /**
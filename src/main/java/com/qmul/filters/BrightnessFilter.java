@@ -8,9 +8,10 @@ package com.qmul.filters;
 import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
-import com.qmul.imgUtil.ImageUtil;
-import static com.qmul.imgUtil.ImageUtil.convertArrayToBufferedImg;
-import static com.qmul.imgUtil.ImageUtil.normalisePixelRange;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.TileOperator;
+import com.qmul.pointOperations.PointOperations;
+import com.qmul.pointOperations.PointPipeline;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -31,7 +32,12 @@ public class BrightnessFilter extends AbstractCommandFilter{
     protected void transform() {
         FImagePath transformedImage = null;
         try {
-            transformedImage = new FImagePath(rescalingImageProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.scalingFactor));
+            if (this.tiledImg != null){
+                transformedImage = new FImagePath(this.tiledImg.map(new RescalingOperator(this.tiledImg.isGrayscale(), this.scalingFactor)));
+            }
+            else{
+                transformedImage = new FImagePath(rescalingImageProcess(this.bufferImg, this.scalingFactor));
+            }
         } catch (IOException ex) {
             Logger.getLogger(BrightnessFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -40,41 +46,65 @@ public class BrightnessFilter extends AbstractCommandFilter{
             panel.add(transformedImage);
         }
     }  
-  /**
-   * This method calculate the bitplane image
-   * 
-   * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
-   * @param brightnessFactor scaling factor to rescale the brightness
-   */       
-    private BufferedImage rescalingImageProcess(BufferedImage bi, int width, int height, float brightnessFactor) throws IOException{
-        // get the  RGB channels
-        int[][][] channels = ImageUtil.convertImageToMatrix(bi);
-        int[][][] scaledBrightnessImg = getRescalingMatrix(channels, width, height, brightnessFactor);
-        return convertArrayToBufferedImg(scaledBrightnessImg[0], scaledBrightnessImg[1], scaledBrightnessImg[2], scaledBrightnessImg[3]); 
+
+    @Override
+    protected boolean supportsTiles() {
+        return true;
     }
+
   /**
-   * This method apply the scaling brightness factor to each pixel and adjust the brightness
+   * This method rescale the brightness of the buffered image with the table of
+   * the rescaling, in one pass
    * 
    * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
    * @param brightnessFactor scaling factor to rescale the brightness
    */       
-    private int[][][] getRescalingMatrix(int[][][] inputImage, int width, int height, float brightnessFactor) throws IOException{   
-        int [][][] outputMatrix = new int[4][width][height];
-        for(int row = 0; row < width; row++){
-            for(int col = 0; col < height; col++){
-                outputMatrix[0][row][col] = Math.round(brightnessFactor * (inputImage[0][row][col]));
-                outputMatrix[1][row][col] = Math.round(brightnessFactor * (inputImage[1][row][col]));
-                outputMatrix[2][row][col] = Math.round(brightnessFactor * (inputImage[2][row][col])); 
-                // Normalization of pixel values
-                outputMatrix[0][row][col] = normalisePixelRange(outputMatrix[0][row][col]);
-                outputMatrix[1][row][col] = normalisePixelRange(outputMatrix[1][row][col]);
-                outputMatrix[2][row][col] = normalisePixelRange(outputMatrix[2][row][col]);
+    private BufferedImage rescalingImageProcess(BufferedImage bi, float brightnessFactor) throws IOException{
+        return PointPipeline.of(PointOperations.rescaling(brightnessFactor)).apply(bi);
+    }
+
+    /*
+     * Rescales the tiles of a tiled image as they are needed
+     */
+    private static final class RescalingOperator implements TileOperator {
+        private final boolean grayscale;
+        // the table the untiled path applies, so both round the same way
+        private final int[] table;
+
+        private RescalingOperator(boolean grayscale, float brightnessFactor) {
+            this.grayscale = grayscale;
+            this.table = PointOperations.rescaling(brightnessFactor).createTable(null, 0);
+        }
+
+        @Override
+        public int getHalo() {
+            return 0;
+        }
+
+        @Override
+        public int getNumPlanes() {
+            return grayscale ? 1 : 3;
+        }
+
+        @Override
+        public boolean isGrayscale() {
+            return grayscale;
+        }
+
+        @Override
+        public void computeTile(ImageBuffer source, int sourceX, int sourceY, ImageBuffer tile, int tileX, int tileY) {
+            int width = tile.getWidth();
+            for (int channel = 0; channel < getNumPlanes(); channel++) {
+                int[] input = source.getPlane(channel);
+                int[] output = tile.getPlane(channel);
+                for (int row = 0; row < tile.getHeight(); row++) {
+                    int src = row * source.getStride();
+                    int dst = row * tile.getStride();
+                    for (int col = 0; col < width; col++) {
+                        output[dst + col] = table[input[src + col]];
+                    }
+                }
             }
-        }        
-        return outputMatrix;
-    }    
+        }
+    }
 }
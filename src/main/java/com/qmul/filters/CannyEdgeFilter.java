@@ -0,0 +1,90 @@
+/*
+ * Description: Canny edge detection of the image luminance. The edges are
+ * white on black. detectEdges runs the same detection without a panel, for
+ * headless use.
+ * Date: 18/10/2026
+ */
+package com.qmul.filters;
+
+import com.qmul.commandFramework.AbstractCommandFilter;
+import com.qmul.model.FImagePath;
+import com.qmul.model.PathPanel;
+import com.qmul.imageTransformation.BorderMode;
+import com.qmul.imageTransformation.CannyEdgeDetector;
+import com.qmul.imageTransformation.Gradient;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageUtil;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class CannyEdgeFilter extends AbstractCommandFilter{
+    private final CannyEdgeDetector detector;
+
+  /**
+   * This constructor creates a Canny command with the default smoothing and thresholds
+   *
+   * @param panel           path panel
+   * @param bi              image to filter, null for the current image of the panel
+   * @param operator        derivative operator, SOBEL or SCHARR
+   * @param padding         border mode name, see BorderMode
+   */
+    public CannyEdgeFilter(PathPanel panel, BufferedImage bi, Gradient.Operator operator, String padding) {
+        this(panel, bi, new CannyEdgeDetector(operator, BorderMode.fromName(padding)));
+    }
+
+  /**
+   * This constructor creates a Canny command with a configured detector
+   *
+   * @param panel           path panel
+   * @param bi              image to filter, null for the current image of the panel
+   * @param detector        edge detector
+   */
+    public CannyEdgeFilter(PathPanel panel, BufferedImage bi, CannyEdgeDetector detector) {
+        super(panel, bi);
+        this.commandName = "Canny edge detection";
+        this.detector = detector;
+    }
+
+  /**
+   * This method provides override transform which is used to execute the command.
+   * the processed buffered image will be added to the panel.
+   */
+    @Override
+    protected void transform() {
+        FImagePath transformedImage = null;
+        try {
+            transformedImage = new FImagePath(detectEdges(this.bufferImg, this.detector));
+        } catch (IOException ex) {
+            Logger.getLogger(CannyEdgeFilter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        if (transformedImage != null){
+            transformedImage.setCurrentAngle(this.angle);
+            panel.add(transformedImage);
+        }
+    }
+
+  /**
+   * This method finds the edges of the luminance of a buffered image
+   *
+   * @param bi          buffered image
+   * @param detector    edge detector
+   * @return binary image, edges are white
+   */
+    public static BufferedImage detectEdges(BufferedImage bi, CannyEdgeDetector detector) throws IOException{
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        ImageBuffer luminance = ImageUtil.convertRgbToGrayscale(channels, pool);
+        pool.release(channels);
+        int width = luminance.getWidth();
+        int height = luminance.getHeight();
+        int[] edges = detector.detect(luminance.getPlane(ImageBuffer.GRAY), width, height, luminance.getStride());
+        pool.release(luminance);
+        ImageBuffer mask = new ImageBuffer(width, height, width, new int[][] {edges});
+        BufferedImage binaryImage = ImageUtil.convertBinaryToBufferedImg(mask);
+        pool.release(mask);
+        return binaryImage;
+    }
+}
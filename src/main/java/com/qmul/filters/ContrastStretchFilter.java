@@ -0,0 +1,111 @@
+/*
+ * Description: Contrast stretch and auto-levels command. The range to stretch
+ * comes from percentiles of the statistics kept with the image, so the
+ * stretch is one table per channel applied in one pass. Contrast stretch
+ * uses one range for all channels and keeps the colour balance, auto-levels
+ * stretches each channel over its own range.
+ * Date: 18/10/2026
+ */
+package com.qmul.filters;
+
+import com.qmul.commandFramework.AbstractCommandFilter;
+import com.qmul.frame.Reference;
+import com.qmul.model.FImagePath;
+import com.qmul.model.PathPanel;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageStatistics;
+import com.qmul.imgUtil.ImageUtil;
+import static com.qmul.imgUtil.ImageUtil.convertBufferToBufferedImg;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ContrastStretchFilter extends AbstractCommandFilter{
+    private final String mode;
+    private final double clipPercent;
+
+  /**
+   * This constructor creates a contrast stretch command
+   *
+   * @param panel           path panel
+   * @param bi              image to process, null for the current image of the panel
+   * @param mode            Reference.STRETCH_CONTRAST or Reference.STRETCH_AUTO_LEVELS
+   * @param clipPercent     percentage of the pixels clipped at each end of the range
+   */
+    public ContrastStretchFilter(PathPanel panel, BufferedImage bi, String mode, double clipPercent) {
+        super(panel, bi);
+        this.commandName = String.format("%s clipping %s%%", mode, clipPercent);
+        this.mode = mode;
+        this.clipPercent = Math.max(0, Math.min(50, clipPercent));
+    }
+
+  /**
+   * This method provides override transform which is used to execute the command.
+   * the processed buffered image will be added to the panel.
+   */
+    @Override
+    protected void transform() {
+        FImagePath transformedImage = null;
+        try {
+            transformedImage = new FImagePath(stretchProcess(this.bufferImg, this.mode, this.clipPercent));
+        } catch (IOException ex) {
+            Logger.getLogger(ContrastStretchFilter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        if (transformedImage != null){
+            transformedImage.setCurrentAngle(this.angle);
+            panel.add(transformedImage);
+        }
+    }
+
+  /**
+   * This method stretch the channels of the buffered image
+   *
+   * @param bi          buffered image
+   * @param mode        Reference.STRETCH_CONTRAST or Reference.STRETCH_AUTO_LEVELS
+   * @param clipPercent percentage of the pixels clipped at each end of the range
+   */
+    private BufferedImage stretchProcess(BufferedImage bi, String mode, double clipPercent) throws IOException{
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        ImageStatistics statistics = getStatistics(channels);
+        int[] low = new int[3];
+        int[] high = new int[3];
+        for (int channel = 0; channel < low.length; channel++) {
+            low[channel] = statistics.getPercentile(channel, clipPercent);
+            high[channel] = statistics.getPercentile(channel, 100 - clipPercent);
+        }
+        if (!Reference.STRETCH_AUTO_LEVELS.equals(mode)) {
+            // one range over all channels
+            int jointLow = Math.min(low[0], Math.min(low[1], low[2]));
+            int jointHigh = Math.max(high[0], Math.max(high[1], high[2]));
+            for (int channel = 0; channel < low.length; channel++) {
+                low[channel] = jointLow;
+                high[channel] = jointHigh;
+            }
+        }
+        ImageUtil.mapChannels(channels, getStretchTable(low[0], high[0]), getStretchTable(low[1], high[1]),
+                              getStretchTable(low[2], high[2]));
+        BufferedImage stretchedImg = convertBufferToBufferedImg(channels);
+        pool.release(channels);
+        return stretchedImg;
+    }
+
+  /**
+   * This method return the table stretching low..high to 0..255, the levels
+   * outside clamped and the identity for an empty range
+   *
+   * @param low         level mapped to 0
+   * @param high        level mapped to 255
+   * @return table indexed by level
+   */
+    static int[] getStretchTable(int low, int high) {
+        int[] table = new int[256];
+        for (int level = 0; level < table.length; level++) {
+            table[level] = high > low ? ImageUtil.normalisePixelRange(Math.round(255.0 * (level - low) / (high - low)))
+                                      : level;
+        }
+        return table;
+    }
+}
@@ -8,6 +8,7 @@ package com.qmul.filters;
 import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
+import com.qmul.imgUtil.TiledImage;
 import java.awt.image.BufferedImage;
 
 public class DisplayImage extends AbstractCommandFilter{
@@ -16,12 +17,22 @@ public class DisplayImage extends AbstractCommandFilter{
         super(panel, bi);
         this.commandName = "Display Image";
     }
+
+    public DisplayImage(PathPanel panel, TiledImage tiledImage) {
+        super(panel, tiledImage);
+        this.commandName = "Display Image";
+    }
   
   /**
    * This method provides override transform to add loaded buffered image to the panel 
    */     
     @Override
     protected void transform() {
-        panel.add(new FImagePath(this.bufferImg));
+        if (this.tiledImg != null){
+            panel.add(new FImagePath(this.tiledImg));
+        }
+        else{
+            panel.add(new FImagePath(this.bufferImg));
+        }
     }    
-}
+}
\ No newline at end of file
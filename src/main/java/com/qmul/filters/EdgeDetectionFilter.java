@@ -9,8 +9,13 @@ import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.frame.Reference;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
+import com.qmul.imageTransformation.BorderMode;
+import com.qmul.imageTransformation.Gradient;
 import com.qmul.imageTransformation.Transformation;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
 import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.ParallelBands;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -18,6 +23,8 @@ import java.util.logging.Logger;
 
 public class EdgeDetectionFilter extends AbstractCommandFilter{
     private final double[][] selectedKernel;
+    private final Gradient.Operator gradientOperator;
+    private final String padding;
     private final boolean enableGrayScale;
     
     private static final double[][] KERNEL_VERTICAL     = {{1, 0, -1}, {1, 0, -1}, {1, 0, -1}};
@@ -28,11 +35,28 @@ public class EdgeDetectionFilter extends AbstractCommandFilter{
 
     private static final double[][] KERNEL_SCHARR_V = {{3, 0, -3}, {10, 0, -10}, {3, 0, -3}};
     private static final double[][] KERNEL_SCHARR_H = {{3, 10, 3}, {0, 0, 0}, {-3, -10, -3}};    
+
+    private static final int[] RGB_CHANNELS = {ImageBuffer.RED, ImageBuffer.GREEN, ImageBuffer.BLUE};
     
     public EdgeDetectionFilter(PathPanel panel, BufferedImage bi, String kernelName, boolean enableGrayScale) {
+        this(panel, bi, kernelName, Reference.BORDER_NONE, enableGrayScale);
+    }
+
+  /**
+   * This constructor creates an edge detection command with a border mode
+   * 
+   * @param panel           path panel
+   * @param bi              image to filter, null for the current image of the panel
+   * @param kernelName      selected kernel
+   * @param padding         border mode name, see BorderMode
+   * @param enableGrayScale output grayscale
+   */     
+    public EdgeDetectionFilter(PathPanel panel, BufferedImage bi, String kernelName, String padding, boolean enableGrayScale) {
         super(panel, bi);
         this.commandName = String.format("Edgae Detection filter using %s kernel", kernelName);        
         this.selectedKernel = selectKernel(kernelName);
+        this.gradientOperator = selectGradientOperator(kernelName);
+        this.padding = padding;
         this.enableGrayScale = enableGrayScale;
     }
   /**
@@ -43,7 +67,12 @@ public class EdgeDetectionFilter extends AbstractCommandFilter{
     protected void transform() {
         FImagePath transformedImage = null;
         try {
-            transformedImage = new FImagePath(edgeDetectionProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.selectedKernel, this.enableGrayScale));
+            if (this.gradientOperator != null){
+                transformedImage = new FImagePath(gradientProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.gradientOperator, this.padding, this.enableGrayScale));
+            }
+            else{
+                transformedImage = new FImagePath(edgeDetectionProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.selectedKernel, this.padding, this.enableGrayScale));
+            }
         } catch (IOException ex) {
             Logger.getLogger(EdgeDetectionFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -60,28 +89,91 @@ public class EdgeDetectionFilter extends AbstractCommandFilter{
    * @param width   image width
    * @param height  image height
    * @param kernel  kernel array 2d
+   * @param padding border mode name
    * @param enableGrayScale enable the output image be in grayscale or rgb
    */     
-    private BufferedImage edgeDetectionProcess(BufferedImage bi, int width, int height, double[][] kernel, boolean enableGrayScale) throws IOException{
+    private BufferedImage edgeDetectionProcess(BufferedImage bi, int width, int height, double[][] kernel, String padding, boolean enableGrayScale) throws IOException{
         int kernelWidth = kernel.length;
         int kernelHeight = kernel[0].length;
         int kernelDivisor = 1;
         BufferedImage convolutedImage;
-        int[][][] image = ImageUtil.convertImageToMatrix(bi);      
-        int[][] redConv   = Transformation.convolution(image[0], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
-        int[][] greenConv = Transformation.convolution(image[1], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
-        int[][] blueConv  = Transformation.convolution(image[2], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
-        int[][] alphaConv = Transformation.convolution(image[3], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
+        BufferPool pool = BufferPool.shared();
+        // the output has no alpha, the colour channels are convolved together in one sweep
+        ImageBuffer image = ImageUtil.convertImageToRgbBuffer(bi, pool);      
+        ImageBuffer convoluted = Transformation.convolution(image, RGB_CHANNELS, kernel, kernelWidth, kernelHeight, padding, kernelDivisor);
+        pool.release(image);
         if (enableGrayScale == true){
-            convolutedImage = ImageUtil.convertRgbToGrayscale(redConv, greenConv, blueConv);       
+            ImageBuffer luminance = ImageUtil.convertRgbToGrayscale(convoluted, pool);
+            convolutedImage = ImageUtil.convertGrayscaleToBufferedImg(luminance);       
+            pool.release(luminance);
         }
         else{
-            convolutedImage = ImageUtil.convertArrayToBufferedImg(redConv, greenConv, blueConv, alphaConv);        
+            convolutedImage = ImageUtil.convertBufferToBufferedImg(convoluted);        
         }
+        pool.release(convoluted);
         
         return convolutedImage;
     }    
 
+  /**
+   * This method computes the gradient magnitude of the buffered image, both
+   * derivatives of a pixel in one pass. Magnitudes above 255 are shown as 255.
+   * 
+   * @param bi       buffered image
+   * @param width    image width
+   * @param height   image height
+   * @param operator derivative operator
+   * @param padding  border mode name
+   * @param enableGrayScale enable the output image be in grayscale or rgb
+   */     
+    private BufferedImage gradientProcess(BufferedImage bi, int width, int height, Gradient.Operator operator, String padding, boolean enableGrayScale) throws IOException{
+        BufferedImage gradientImage;
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer image = ImageUtil.convertImageToRgbBuffer(bi, pool);      
+        BorderMode border = BorderMode.fromName(padding);
+        // the channels are differentiated side by side
+        int[][] planes = new int[RGB_CHANNELS.length][];
+        ParallelBands.invokeAll(planes.length, channel -> {
+            int[] magnitude = Gradient.magnitude(image.getPlane(RGB_CHANNELS[channel]), width, height, image.getStride(), operator, Gradient.Norm.L2, border);
+            for (int i = 0; i < width * height; i++) {
+                magnitude[i] = Math.min(magnitude[i], 255);
+            }
+            planes[channel] = magnitude;
+        });
+        ImageBuffer gradient = new ImageBuffer(width, height, width, planes);
+        pool.release(image);
+        if (enableGrayScale == true){
+            ImageBuffer luminance = ImageUtil.convertRgbToGrayscale(gradient, pool);
+            gradientImage = ImageUtil.convertGrayscaleToBufferedImg(luminance);       
+            pool.release(luminance);
+            pool.release(gradient);
+        }
+        else{
+            gradientImage = ImageUtil.createRgbImage(gradient);        
+            pool.release(gradient);
+        }
+        return gradientImage;
+    }    
+
+  /**
+   * This method return the derivative operator of a gradient magnitude kernel
+   * 
+   * @param kernelName  kernel name
+   * @return operator, null for a directional kernel
+   */     
+    private Gradient.Operator selectGradientOperator(String kernelName){
+        switch(kernelName){
+            case Reference.ED_PREWITT_MAGNITUDE:
+                return Gradient.Operator.PREWITT;
+            case Reference.ED_SOBEL_MAGNITUDE:
+                return Gradient.Operator.SOBEL;
+            case Reference.ED_SCHARR_MAGNITUDE:
+                return Gradient.Operator.SCHARR;
+            default:
+                return null;
+        }
+    }
+
   /**
    * This method return the selected kernel 
    * 
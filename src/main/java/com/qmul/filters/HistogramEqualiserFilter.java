@@ -6,18 +6,60 @@
 package com.qmul.filters;
 
 import com.qmul.commandFramework.AbstractCommandFilter;
+import com.qmul.frame.Reference;
+import com.qmul.imageTransformation.Clahe;
 import com.qmul.model.FImagePath;
+import com.qmul.pointOperations.PointOperations;
+import com.qmul.pointOperations.PointPipeline;
 import com.qmul.model.PathPanel;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ColourConverter;
+import com.qmul.imgUtil.Histogram;
+import com.qmul.imgUtil.ImageBuffer;
 import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.ParallelBands;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class HistogramEqualiserFilter  extends AbstractCommandFilter{
+    private final String method;
+    private final int tilesX;
+    private final int tilesY;
+    private final double clipLimit;
+    private final boolean enableGrayScale;
+
         public HistogramEqualiserFilter(PathPanel panel, BufferedImage bi) {
+        this(panel, bi, Reference.EQ_GLOBAL, 1, 1, 0, true);
+    }
+
+  /**
+   * This constructor creates a global or contrast limited adaptive histogram equalisation command
+   * 
+   * @param panel           path panel
+   * @param bi              image to equalise, null for the current image of the panel
+   * @param method          Reference.EQ_GLOBAL or Reference.EQ_CLAHE
+   * @param tilesX          CLAHE tile columns
+   * @param tilesY          CLAHE tile rows
+   * @param clipLimit       CLAHE clip limit as a multiple of the mean bin count, 0 for none
+   * @param enableGrayScale output grayscale, otherwise the luma of a colour image is equalised
+   */     
+    public HistogramEqualiserFilter(PathPanel panel, BufferedImage bi, String method, int tilesX, int tilesY,
+                                    double clipLimit, boolean enableGrayScale) {
         super(panel, bi);
-        this.commandName = String.format("Histogram Equalisation.");        
+        if (Reference.EQ_CLAHE.equalsIgnoreCase(method)) {
+            this.commandName = String.format("CLAHE with %dx%d tiles and clip limit %s", tilesX, tilesY, clipLimit);
+        } else if (enableGrayScale) {
+            this.commandName = String.format("Histogram Equalisation.");        
+        } else {
+            this.commandName = String.format("Colour Histogram Equalisation.");        
+        }
+        this.method = method;
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.clipLimit = clipLimit;
+        this.enableGrayScale = enableGrayScale;
     }
   /**
    * This method provides override transform which is used to execute the command.
@@ -27,7 +69,13 @@ public class HistogramEqualiserFilter  extends AbstractCommandFilter{
     protected void transform() {
         FImagePath histogramEqualisedImg = null;
         try {
-            histogramEqualisedImg = new FImagePath(imgHist(this.bufferImg, this.imgWidth, this.imgHeight));
+            if (Reference.EQ_CLAHE.equalsIgnoreCase(this.method)) {
+                histogramEqualisedImg = new FImagePath(imgClahe(this.bufferImg, this.tilesX, this.tilesY, this.clipLimit, this.enableGrayScale));
+            } else if (this.enableGrayScale) {
+                histogramEqualisedImg = new FImagePath(imgHist(this.bufferImg));
+            } else {
+                histogramEqualisedImg = new FImagePath(imgHistColour(this.bufferImg, this.imgWidth, this.imgHeight));
+            }
         } catch (IOException ex) {
             Logger.getLogger(HistogramEqualiserFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -38,94 +86,118 @@ public class HistogramEqualiserFilter  extends AbstractCommandFilter{
     }    
 
   /**
-   * This method process histogram equalisation on the buffered image
+   * This method process histogram equalisation on the buffered image. The
+   * cumulative distribution function of the luminance histogram kept with the
+   * image is the table of the gray levels, applied in one pass.
    * 
    * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
    */      
-    private BufferedImage imgHist(BufferedImage bi, int width, int height) throws IOException{
-        // get the  RGB channels
-        int[][][] channels = ImageUtil.convertImageToMatrix(bi);
-        // convert the RGB channels to grayscale
-        var grayScaleImage = ImageUtil.convertRgbToGrayscale(channels[0], channels[1], channels[2]);      
-        // calculate the histogram
-        int[] calculatedHist = calculateHistogram(grayScaleImage);
-        // Calculate Cumulative Distribution Function 
-        int[] calHistCDF = calculateCDF(calculatedHist, width * height);
-        // Apply the CDF to the grayscale image
-        return histEqualize(grayScaleImage, width, height, calHistCDF);
+    private BufferedImage imgHist(BufferedImage bi) throws IOException{
+        return PointPipeline.of(PointOperations.equalisation())
+                            .apply(bi, () -> getHistogram(Histogram.Source.LUMINANCE, null));
     }
  
   /**
-   * This method calculate the histogram of the image.
+   * This method process histogram equalisation on the Rec.601 luma of the
+   * buffered image and keeps its colours. The equalisation table maps a luma
+   * to the shift of the channels, applied in the same pass that reads the
+   * luma of the pixel, so no gray plane or grayscale image is made. Moving
+   * every channel by the change of the luma leaves the Cb and Cr chroma as
+   * they were.
    * 
    * @param bi      buffered image
-   */     
-    private int[] calculateHistogram(BufferedImage bi) throws IOException{
-        int width = bi.getWidth();
-        int height = bi.getHeight();
-        int pixel[];
-        // Create an empty array to store the bins 255
-        int[] bins = new int[256];
-        for (int row = 0; row < width; row++) {
-            for (int col = 0; col < height; col++) {
-                // get each pixels value R/G/B the intensity
-                pixel = bi.getRaster().getPixel(row, col, new int[3]);
-                // increment the bin based on the gray scale channel
-                bins[pixel[0]]++;
-            }
+   * @param width   image width
+   * @param height  image height
+   */      
+    private BufferedImage imgHistColour(BufferedImage bi, int width, int height) throws IOException{
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        // the luma histogram is counted once per image and kept with it
+        Histogram histogram = getHistogram(Histogram.Source.LUMA, channels);
+        int[] calHistCDF = PointOperations.equalisation().createTable(histogram.getCounts(0), (long) width * height);
+        int[] shifts = new int[calHistCDF.length];
+        for (int level = 0; level < shifts.length; level++) {
+            shifts[level] = calHistCDF[level] - level;
         }
-        return bins;
-    }
-
-  /**
-   * This method calculate cumulative distribution function
-   * 
-   * @param calculatedHist      buffered image
-   * @param res total image resolution
-   */    
-    private int[] calculateCDF(int[] calculatedHist, int res){
-        long sum = 0;
-        //calculate the scale factor
-        float scale = (float) 255.0 / res;
-        //calculate cumulative distribution function
-        for (int x = 0; x < calculatedHist.length; x++) {
-            sum += calculatedHist[x];
-            int value = (int) (scale * sum);
-            if (value > 255) {
-               value = 255;
+        int stride = channels.getStride();
+        int[] red = channels.getPlane(ImageBuffer.RED);
+        int[] green = channels.getPlane(ImageBuffer.GREEN);
+        int[] blue = channels.getPlane(ImageBuffer.BLUE);
+        ParallelBands.forEach(0, height, 3L * width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                for (int col = 0; col < width; col++, idx++) {
+                    int shift = shifts[ColourConverter.rec601Luma(red[idx], green[idx], blue[idx])];
+                    red[idx] = ImageUtil.normalisePixelRange(red[idx] + shift);
+                    green[idx] = ImageUtil.normalisePixelRange(green[idx] + shift);
+                    blue[idx] = ImageUtil.normalisePixelRange(blue[idx] + shift);
+                }
             }
-            calculatedHist[x] = value;
-        }   
-        return calculatedHist;
+        });
+        BufferedImage equalisedImage = ImageUtil.createRgbImage(channels);
+        pool.release(channels);
+        return equalisedImage;
     }
 
   /**
-   * This method apply histogram equalisation on the image using calculated cumulative distribution function
+   * This method process contrast limited adaptive histogram equalisation on
+   * the buffered image. A colour image keeps its colours: its Rec.601 luma is
+   * equalised and every channel moves by the change of the luma, which leaves
+   * the Cb and Cr chroma of the pixel as they were.
    * 
-   * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
-   * @param calHist calculated histogram
-   */    
-    private BufferedImage histEqualize(BufferedImage bi, int width, int height, int[] calHist) {
-        // calculate total number of pixel in the original image.  
-        int cdfVal;
-        int pixel[];
-        int gray;
-        BufferedImage histEqualisedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        for (int row = 0; row < width; row++) {
-            for (int col = 0; col < height; col++) {
-                // get the pixel value 
-                pixel = bi.getRaster().getPixel(row, col, new int[3]);
-                // get the cdf value
-                cdfVal = calHist[pixel[0]];
-                // create grayscale pixel without alpha channel
-                gray = (cdfVal << 16) + (cdfVal << 8) + cdfVal; 
-                histEqualisedImage.setRGB(row, col, gray);
-            }
+   * @param bi              buffered image
+   * @param tilesX          tile columns
+   * @param tilesY          tile rows
+   * @param clipLimit       clip limit as a multiple of the mean bin count
+   * @param enableGrayScale output grayscale
+   */      
+    private BufferedImage imgClahe(BufferedImage bi, int tilesX, int tilesY, double clipLimit, boolean enableGrayScale) throws IOException{
+        BufferPool pool = BufferPool.shared();
+        if (enableGrayScale) {
+            ImageBuffer grayScaleImage = ImageUtil.convertImageToByteGrayBuffer(bi, pool);
+            int width = grayScaleImage.getWidth();
+            int height = grayScaleImage.getHeight();
+            int[] equalised = Clahe.equalise(grayScaleImage.getPlane(ImageBuffer.GRAY), width, height, grayScaleImage.getStride(),
+                                             tilesX, tilesY, clipLimit);
+            pool.release(grayScaleImage);
+            BufferedImage equalisedImage = ImageUtil.createGrayscaleRgbImage(new ImageBuffer(width, height, width, new int[][] {equalised}));
+            pool.release(equalised);
+            return equalisedImage;
         }
-        return histEqualisedImage;
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        int width = channels.getWidth();
+        int height = channels.getHeight();
+        int stride = channels.getStride();
+        int[] red = channels.getPlane(ImageBuffer.RED);
+        int[] green = channels.getPlane(ImageBuffer.GREEN);
+        int[] blue = channels.getPlane(ImageBuffer.BLUE);
+        int[] luma = pool.lease(width * height);
+        ParallelBands.forEach(0, height, 3L * width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                int outIdx = row * width;
+                for (int col = 0; col < width; col++, idx++, outIdx++) {
+                    luma[outIdx] = ColourConverter.rec601Luma(red[idx], green[idx], blue[idx]);
+                }
+            }
+        });
+        int[] equalised = Clahe.equalise(luma, width, height, width, tilesX, tilesY, clipLimit);
+        ParallelBands.forEach(0, height, 3L * width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                int lumaIdx = row * width;
+                for (int col = 0; col < width; col++, idx++, lumaIdx++) {
+                    int shift = equalised[lumaIdx] - luma[lumaIdx];
+                    red[idx] = ImageUtil.normalisePixelRange(red[idx] + shift);
+                    green[idx] = ImageUtil.normalisePixelRange(green[idx] + shift);
+                    blue[idx] = ImageUtil.normalisePixelRange(blue[idx] + shift);
+                }
+            }
+        });
+        pool.release(luma);
+        pool.release(equalised);
+        BufferedImage equalisedImage = ImageUtil.createRgbImage(channels);
+        pool.release(channels);
+        return equalisedImage;
     }
 }
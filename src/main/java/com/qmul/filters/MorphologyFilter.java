@@ -0,0 +1,108 @@
+/*
+ * Description: Morphology command with a rectangular structuring element.
+ * Binary images stay binary, grayscale output works on the luminance and
+ * colour output on each of the red, green and blue channels.
+ * Date: 18/10/2026
+ */
+package com.qmul.filters;
+
+import com.qmul.commandFramework.AbstractCommandFilter;
+import com.qmul.model.FImagePath;
+import com.qmul.model.PathPanel;
+import com.qmul.imageTransformation.BorderMode;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.ParallelBands;
+import com.qmul.morphology.Morphology;
+import com.qmul.morphology.StructuringElement;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class MorphologyFilter extends AbstractCommandFilter{
+    private final Morphology.Operation operation;
+    private final StructuringElement element;
+    private final String padding;
+    private final boolean enableGrayScale;
+
+    private static final int[] RGB_CHANNELS = {ImageBuffer.RED, ImageBuffer.GREEN, ImageBuffer.BLUE};
+
+  /**
+   * This constructor creates a morphology command
+   *
+   * @param panel           path panel
+   * @param bi              image to filter, null for the current image of the panel
+   * @param operationName   selected operation, see Morphology.Operation
+   * @param elementWidth    width of the rectangular structuring element
+   * @param elementHeight   height of the rectangular structuring element
+   * @param padding         border mode name, see BorderMode
+   * @param enableGrayScale output grayscale
+   */
+    public MorphologyFilter(PathPanel panel, BufferedImage bi, String operationName, int elementWidth, int elementHeight,
+                            String padding, boolean enableGrayScale) {
+        super(panel, bi);
+        this.operation = Morphology.Operation.fromName(operationName);
+        this.element = StructuringElement.rectangle(elementWidth, elementHeight);
+        this.commandName = String.format("Morphology %s with a %s rectangle", this.operation.getLabel(), this.element);
+        this.padding = padding;
+        this.enableGrayScale = enableGrayScale;
+    }
+
+  /**
+   * This method provides override transform which is used to execute the command.
+   * the processed buffered image will be added to the panel.
+   */
+    @Override
+    protected void transform() {
+        FImagePath transformedImage = null;
+        try {
+            transformedImage = new FImagePath(morphologyProcess(this.bufferImg, this.operation, this.element,
+                                                                BorderMode.fromName(this.padding), this.enableGrayScale));
+        } catch (IOException ex) {
+            Logger.getLogger(MorphologyFilter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        if (transformedImage != null){
+            transformedImage.setCurrentAngle(this.angle);
+            panel.add(transformedImage);
+        }
+    }
+
+  /**
+   * This method apply a morphology operation to the buffered image
+   *
+   * @param bi              buffered image
+   * @param operation       morphology operation
+   * @param element         structuring element
+   * @param border          treatment of windows reaching past the image
+   * @param enableGrayScale output grayscale
+   */
+    private BufferedImage morphologyProcess(BufferedImage bi, Morphology.Operation operation, StructuringElement element,
+                                            BorderMode border, boolean enableGrayScale) throws IOException{
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        int width = channels.getWidth();
+        int height = channels.getHeight();
+        boolean binary = bi.getType() == BufferedImage.TYPE_BYTE_BINARY;
+        if (binary || enableGrayScale){
+            ImageBuffer luminance = ImageUtil.convertRgbToGrayscale(channels, pool);
+            pool.release(channels);
+            int[] result = Morphology.apply(operation, luminance.getPlane(ImageBuffer.GRAY), width, height, luminance.getStride(), element, border);
+            pool.release(luminance);
+            ImageBuffer output = new ImageBuffer(width, height, width, new int[][] {result});
+            BufferedImage outputImage = binary ? ImageUtil.convertBinaryToBufferedImg(output) : ImageUtil.convertGrayscaleToBufferedImg(output);
+            pool.release(output);
+            return outputImage;
+        }
+        // the channels are filtered side by side, each one in bands of rows
+        int[][] planes = new int[RGB_CHANNELS.length][];
+        ParallelBands.invokeAll(planes.length, channel -> planes[channel] =
+            Morphology.apply(operation, channels.getPlane(RGB_CHANNELS[channel]), width, height, channels.getStride(), element, border));
+        pool.release(channels);
+        ImageBuffer output = new ImageBuffer(width, height, width, planes);
+        BufferedImage outputImage = ImageUtil.createRgbImage(output);
+        pool.release(output);
+        return outputImage;
+    }
+}
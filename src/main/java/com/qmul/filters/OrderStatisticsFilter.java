@@ -9,20 +9,48 @@ import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.frame.Reference;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
+import com.qmul.imageTransformation.BorderMode;
+import com.qmul.imageTransformation.RankFilter;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
 import com.qmul.imgUtil.ImageUtil;
-import static com.qmul.imgUtil.ImageUtil.convertArrayToBufferedImg;
+import com.qmul.imgUtil.ParallelBands;
+import static com.qmul.imgUtil.ImageUtil.createRgbImage;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class OrderStatisticsFilter  extends AbstractCommandFilter{
     private final String filterType;
+    private final int radius;
+    private final String padding;
+
+    private static final int[] RGB_CHANNELS = {ImageBuffer.RED, ImageBuffer.GREEN, ImageBuffer.BLUE};
+
     public OrderStatisticsFilter(PathPanel panel, BufferedImage bi, String filterType) {
+        this(panel, bi, filterType, 1, Reference.BORDER_NONE);
+    }
+
+  /**
+   * This constructor creates an order statistics command with a window radius and a border mode
+   * 
+   * @param panel           path panel
+   * @param bi              image to filter, null for the current image of the panel
+   * @param filterType      selected filter type
+   * @param radius          window radius, the window is 2 * radius + 1 pixels wide
+   * @param padding         border mode name, see BorderMode
+   */     
+    public OrderStatisticsFilter(PathPanel panel, BufferedImage bi, String filterType, int radius, String padding) {
         super(panel, bi);
-        this.commandName = String.format("Order statistics Enhancement %s", filterType);  
+        if (radius == 1) {
+            this.commandName = String.format("Order statistics Enhancement %s", filterType);  
+        } else {
+            this.commandName = String.format("Order statistics Enhancement %s of radius %d", filterType, radius);  
+        }
         this.filterType = filterType;
+        this.radius = radius;
+        this.padding = padding;
     }
   /**
    * This method provides override transform which is used to execute the command.
@@ -32,7 +60,7 @@ public class OrderStatisticsFilter  extends AbstractCommandFilter{
     protected void transform() {
         FImagePath transformedImage = null;
         try {
-            transformedImage = new FImagePath(orderStatisticsProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.filterType));
+            transformedImage = new FImagePath(orderStatisticsProcess(this.bufferImg, this.filterType, this.radius, BorderMode.fromName(this.padding)));
         } catch (IOException ex) {
             Logger.getLogger(OrderStatisticsFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -46,127 +74,84 @@ public class OrderStatisticsFilter  extends AbstractCommandFilter{
    * This method apply order statistics filters to enhance the image
    * 
    * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
    * @param filterType selected filter type
+   * @param radius  window radius
+   * @param border  treatment of windows reaching past the image
    */     
-    private BufferedImage orderStatisticsProcess(BufferedImage bi, int width, int height, String filterType) throws IOException{
+    private BufferedImage orderStatisticsProcess(BufferedImage bi, String filterType, int radius, BorderMode border) throws IOException{
         
         
-        int[][][] shiftedImg;
+        ImageBuffer shiftedImg;
         // get the  RGB channels
-        int[][][] channels = ImageUtil.convertImageToMatrix(bi);
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
         // apply the statistic filter based on selected filter type
         if(filterType == null ? Reference.OS_MID == null : filterType.equals(Reference.OS_MID)){
-            shiftedImg = getMidPoint(channels, width, height);
+            shiftedImg = getMidPoint(channels, radius, border);
         }
         else {
-            shiftedImg = getOrderStatistics(channels, width, height, filterType);
+            shiftedImg = getOrderStatistics(channels, getPercentile(filterType), radius, border);
         }
-        return convertArrayToBufferedImg(shiftedImg[0], shiftedImg[1], shiftedImg[2], shiftedImg[3]);           
+        pool.release(channels);
+        BufferedImage filteredImg = createRgbImage(shiftedImg);
+        pool.release(shiftedImg);
+        return filteredImg;
     }
  
   /**
    * This method apply order statistics filters to enhance the image
    * 
-   * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
-   * @param filterType selected filter type
+   * @param input   image buffer
+   * @param percentile  window percentile to select
+   * @param radius  window radius
+   * @param border  treatment of windows reaching past the image
    */ 
-    private int[][][] getOrderStatistics(int[][][] input, int width, int height, String filterType){
-           
-        int [][][] filteredMatrix = new int[4][width][height];
-        int winSize = 9;
-        int channelNum = 3;
-        // get the index of the osWindow. This index is used to select pixel.
-        int winIdx = getOrderedIndex(filterType, winSize);
-        int[][] osWindow = new int[channelNum][winSize];
-        int winCounter;
-        for(int row = 1; row < width - 1; row++){
-            for(int col = 1; col < height - 1; col++){
-                // get the neighbour pixel values
-                winCounter = 0;
-                for(int winRow = -1; winRow <= 1; winRow++){
-                    for(int winCol = -1; winCol <= 1; winCol++){
-                        osWindow[0][winCounter] = input[0][row + winRow][col + winCol];   // red channel
-                        osWindow[1][winCounter] = input[1][row + winRow][col + winCol];   // green channel
-                        osWindow[2][winCounter] = input[2][row + winRow][col + winCol];   // blue channel
-                        winCounter++;
-                    }
-                }
-                // sort the neighbouring pixel values 
-                Arrays.sort(osWindow[0]);
-                Arrays.sort(osWindow[1]);
-                Arrays.sort(osWindow[2]);
-                // select pixel value based on selected index
-                filteredMatrix[0][row][col] = osWindow[0][winIdx];
-                filteredMatrix[1][row][col] = osWindow[1][winIdx];
-                filteredMatrix[2][row][col] = osWindow[2][winIdx];
-            }
-        }   
-        return filteredMatrix;
+    private ImageBuffer getOrderStatistics(ImageBuffer input, double percentile, int radius, BorderMode border){
+        int width = input.getWidth();
+        int height = input.getHeight();
+        // the channels are filtered side by side, each one in bands of rows
+        int[][] planes = new int[RGB_CHANNELS.length][];
+        ParallelBands.invokeAll(planes.length, channel -> planes[channel] =
+            RankFilter.percentile(input.getPlane(RGB_CHANNELS[channel]), width, height, input.getStride(), radius, percentile, border));
+        return new ImageBuffer(width, height, width, planes);
     }  
     
   /**
    * This method apply order statistics mid point filter to enhance the image
    * 
-   * @param input      buffered image
-   * @param width   image width
-   * @param height  image height
+   * @param input   image buffer
+   * @param radius  window radius
+   * @param border  treatment of windows reaching past the image
    */ 
-    private int[][][] getMidPoint(int[][][] input, int width, int height){
-           
-        int [][][] filteredMatrix = new int[4][width][height];
-        int winSize = 9;
-        int channelNum = 3;
-        int[][] osWindow = new int[channelNum][winSize];
-        int winCounter = 0;
-        for(int row = 1; row < width - 1; row++){
-            for(int col = 1; col < height - 1; col++){
-                // get the neighbour pixel values
-                winCounter = 0;
-                for(int winRow = -1; winRow <= 1; winRow++){
-                    for(int winCol = -1; winCol <= 1; winCol++){
-                        osWindow[0][winCounter] = input[0][row + winRow][col + winCol];   // red channel
-                        osWindow[1][winCounter] = input[1][row + winRow][col + winCol];   // green channel
-                        osWindow[2][winCounter] = input[2][row + winRow][col + winCol];   // blue channel
-                        winCounter++;
-                    }
-                }
-                // sort the neighbouring pixel values 
-                Arrays.sort(osWindow[0]);
-                Arrays.sort(osWindow[1]);
-                Arrays.sort(osWindow[2]);
-                // select pixel value based on min index value + max min value
-                filteredMatrix[0][row][col] = (int)((osWindow[0][0] + osWindow[0][winSize - 1]) / 2.0);
-                filteredMatrix[1][row][col] = (int)((osWindow[1][0] + osWindow[1][winSize - 1]) / 2.0);
-                filteredMatrix[2][row][col] = (int)((osWindow[2][0] + osWindow[2][winSize - 1]) / 2.0);
-            }
-        }   
-        return filteredMatrix;
+    private ImageBuffer getMidPoint(ImageBuffer input, int radius, BorderMode border){
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int[][] planes = new int[RGB_CHANNELS.length][];
+        // select pixel value based on min value + max value
+        ParallelBands.invokeAll(planes.length, channel -> planes[channel] =
+            RankFilter.midPoint(input.getPlane(RGB_CHANNELS[channel]), width, height, input.getStride(), radius, border));
+        return new ImageBuffer(width, height, width, planes);
     }  
     
   /**
-   * This method apply order statistics mid point filter to enhance the image
+   * This method return the window percentile of a filter mode
    * 
    * @param filterType     selected filter mode
-   * @param windowLength   array length
    */     
-    private int getOrderedIndex(String filterType, int windowLength){
-        int idx = 0;
+    private double getPercentile(String filterType){
+        double percentile = 0;
         switch(filterType){
             case Reference.OS_MEDIAN:
-                idx = windowLength / 2;
+                percentile = 50;
                 break;
             case Reference.OS_MIN:
-                idx = 0;
+                percentile = 0;
                 break;
             case Reference.OS_MAX:
-                idx = windowLength - 1;
+                percentile = 100;
                 break;                 
             }
-        return idx;
+        return percentile;
     }
     
 }
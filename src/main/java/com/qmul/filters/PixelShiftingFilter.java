@@ -8,8 +8,11 @@ package com.qmul.filters;
 import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageStatistics;
 import com.qmul.imgUtil.ImageUtil;
-import static com.qmul.imgUtil.ImageUtil.convertArrayToBufferedImg;
+import static com.qmul.imgUtil.ImageUtil.convertBufferToBufferedImg;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -32,7 +35,7 @@ public class PixelShiftingFilter extends AbstractCommandFilter{
     protected void transform() {
         FImagePath transformedImage = null;
         try {
-            transformedImage = new FImagePath(pixelShiftingProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.shiftVal, this.scalingFactor));
+            transformedImage = new FImagePath(pixelShiftingProcess(this.bufferImg, this.shiftVal, this.scalingFactor));
         } catch (IOException ex) {
             Logger.getLogger(PixelShiftingFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -43,83 +46,58 @@ public class PixelShiftingFilter extends AbstractCommandFilter{
     }
     
   /**
-   * This method apply order statistics mid point filter to enhance the image
+   * This method shift and scale the pixels of the image and normalise the
+   * result of each channel to 0..255. Both steps are a table of each channel,
+   * applied in one pass.
    * 
    * @param bi      buffered image
-   * @param width   image width
-   * @param height  image height
    * @param shiftVal shift value
    * @param scalingFactor scaling factor
    */      
-    private BufferedImage pixelShiftingProcess(BufferedImage bi, int width, int height, int shiftVal, double scalingFactor) throws IOException{
+    private BufferedImage pixelShiftingProcess(BufferedImage bi, int shiftVal, double scalingFactor) throws IOException{
         // get the  RGB channels
-        int[][][] channels = ImageUtil.convertImageToMatrix(bi);
-        
-        int[][][] shiftedImg = getPixelShiftMatrix(channels, width, height, shiftVal, scalingFactor);
-        return convertArrayToBufferedImg(shiftedImg[0], shiftedImg[1], shiftedImg[2], shiftedImg[3]);         
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        // the levels of each channel come from the statistics kept with the image
+        int[][] tables = getPixelShiftTables(getStatistics(channels), shiftVal, scalingFactor);
+        ImageUtil.mapChannels(channels, tables[0], tables[1], tables[2]);
+        BufferedImage shiftedImg = convertBufferToBufferedImg(channels);
+        pool.release(channels);
+        return shiftedImg;         
     }
     
   /**
-   * This method apply order statistics mid point filter to enhance the image
+   * This method calculate the table of each channel. A level is shifted and
+   * scaled, then normalised with the smallest and largest shifted value of the
+   * levels present in the channel. A channel of a single value becomes zero.
    * 
-   * @param channels     image rgb channels
-   * @param width        image width
-   * @param height       image height
+   * @param statistics   statistics of the image rgb channels
    * @param shiftVal     shift value
    * @param scalingFactor scaling factor
+   * @return red, green and blue tables indexed by level
    */      
-    int[][][] getPixelShiftMatrix(int[][][] channels,int width, int height, int shiftVal, double scalingFactor){
-        int redMin, redMax, greenMin, greenMax, blueMin, blueMax;
-        int [][][] outputMatrix = new int[4][width][height];
-        
-        // initialise the rgb min and max
-        redMax = redMin = (int)Math.round(scalingFactor * (channels[0][0][0] + shiftVal)); 
-        greenMax = greenMin = (int)Math.round(scalingFactor * (channels[1][0][0] + shiftVal)); 
-        blueMax = blueMin = (int)Math.round(scalingFactor * (channels[2][0][0] + shiftVal)); 
-        
-        for(int row = 0; row < width; row++){
-            for(int col = 0; col < height; col++){
-                
-                outputMatrix[0][row][col] = (int)Math.round(scalingFactor * (channels[0][row][col] + shiftVal)); 
-                outputMatrix[1][row][col] = (int)Math.round(scalingFactor * (channels[1][row][col] + shiftVal)); 
-                outputMatrix[2][row][col] = (int)Math.round(scalingFactor * (channels[2][row][col] + shiftVal)); 
-                
-                // update red pixel minimum value
-                if (redMin > outputMatrix[0][row][col]) { 
-                    redMin = outputMatrix[0][row][col]; 
-                }
-                // update red pixel maximum value
-                if (redMax < outputMatrix[0][row][col]) { 
-                    redMax = outputMatrix[0][row][col]; 
-                } 
-                // update green pixel minimum value
-                if (greenMin > outputMatrix[1][row][col]) { 
-                    greenMin = outputMatrix[1][row][col]; 
-                }
-                // update green pixel maximum value
-                if (greenMax < outputMatrix[1][row][col]) { 
-                    greenMax = outputMatrix[1][row][col]; 
-                } 
-                // update blue pixel minimum value
-                if (blueMin > outputMatrix[2][row][col]) { 
-                    blueMin = outputMatrix[2][row][col]; 
-                }
-                // update blue pixel maximum value
-                if (blueMax < outputMatrix[2][row][col]) { 
-                    blueMax = outputMatrix[2][row][col]; 
+    int[][] getPixelShiftTables(ImageStatistics statistics, int shiftVal, double scalingFactor){
+        int[][] tables = new int[3][256];
+        int[] shifted = new int[256];
+        for (int level = 0; level < shifted.length; level++) {
+            shifted[level] = (int) Math.round(scalingFactor * (level + shiftVal));
+        }
+        for (int channel = 0; channel < tables.length; channel++) {
+            // the shifted minimum and maximum of the channel
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int level = 0; level < shifted.length; level++) {
+                if (statistics.getCount(channel, level) > 0) {
+                    min = Math.min(min, shifted[level]);
+                    max = Math.max(max, shifted[level]);
                 }
             }
-        }
-
-        // apply general Method
-        for(int row = 0; row < width; row++){
-            for(int col = 0; col < width; col++){
-                outputMatrix[0][row][col] = 255 * (outputMatrix[0][row][col] - redMin)   / ( redMax - redMin);
-                outputMatrix[1][row][col] = 255 * (outputMatrix[1][row][col] - greenMin) / ( greenMax - greenMin);
-                outputMatrix[2][row][col] = 255 * (outputMatrix[2][row][col] - blueMin)  / ( blueMax - blueMin);
+            // apply general Method
+            for (int level = 0; level < shifted.length; level++) {
+                tables[channel][level] = max > min ? 255 * (shifted[level] - min) / (max - min) : 0;
             }
-        }   
-        return outputMatrix;        
+        }
+        return tables;        
     }
     
 }
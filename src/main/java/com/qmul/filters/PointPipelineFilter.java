@@ -0,0 +1,57 @@
+/*
+ * Description: Command applying a chain of point operations in one pass,
+ * one step on the command stack for the whole chain.
+ * Date: 18/10/2026
+ */
+package com.qmul.filters;
+
+import com.qmul.commandFramework.AbstractCommandFilter;
+import com.qmul.model.FImagePath;
+import com.qmul.model.PathPanel;
+import com.qmul.imgUtil.Histogram;
+import com.qmul.pointOperations.PointOperation;
+import com.qmul.pointOperations.PointPipeline;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.StringJoiner;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PointPipelineFilter extends AbstractCommandFilter{
+    private final PointPipeline pipeline;
+
+  /**
+   * This constructor creates a command applying a chain of point operations
+   *
+   * @param panel           path panel
+   * @param bi              image to process, null for the current image of the panel
+   * @param pipeline        point operations in the order they apply
+   */
+    public PointPipelineFilter(PathPanel panel, BufferedImage bi, PointPipeline pipeline) {
+        super(panel, bi);
+        StringJoiner names = new StringJoiner(", ");
+        for (PointOperation operation : pipeline.getOperations()) {
+            names.add(operation.getName());
+        }
+        this.commandName = String.format("Point operations %s", names);
+        this.pipeline = pipeline;
+    }
+
+  /**
+   * This method provides override transform which is used to execute the command.
+   * the processed buffered image will be added to the panel.
+   */
+    @Override
+    protected void transform() {
+        FImagePath transformedImage = null;
+        try {
+            transformedImage = new FImagePath(this.pipeline.apply(this.bufferImg, () -> getHistogram(Histogram.Source.LUMINANCE, null)));
+        } catch (IOException ex) {
+            Logger.getLogger(PointPipelineFilter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        if (transformedImage != null){
+            transformedImage.setCurrentAngle(this.angle);
+            panel.add(transformedImage);
+        }
+    }
+}
@@ -9,8 +9,17 @@ import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.frame.Reference;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
+import com.qmul.imageTransformation.BorderMode;
+import com.qmul.imageTransformation.BoxFilter;
 import com.qmul.imageTransformation.Transformation;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ColourConverter;
+import com.qmul.imgUtil.ImageBuffer;
 import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.ParallelBands;
+import com.qmul.imgUtil.TileOperator;
+import com.qmul.imgUtil.TiledImage;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -19,17 +28,54 @@ import java.util.logging.Logger;
 public class SmoothingFilter extends AbstractCommandFilter{
     private double kernelDivisor = 0.0;
     private final double[][] selectedKernel;
+    private final int radius;
+    private final String padding;
     private final boolean enableGrayScale;
     
     private static final double[][] KERNEL_BOX                = {{1, 1, 1}, {1, 1, 1}, {1, 1, 1}};
     private static final double[][] KERNEL_WEIGHTED_AVERAGE   = {{1, 2, 1}, {2, 4, 2}, {1, 2, 1}};
     private static final double[][] KERNEL_GAUSSIAN           = {{0.3679, 0.6065, 0.3679}, {0.6065, 1.0, 0.6065}, {0.3679, 0.6065, 0.3679}};
+
+    private static final int[] RGB_CHANNELS = {ImageBuffer.RED, ImageBuffer.GREEN, ImageBuffer.BLUE};
     
     public SmoothingFilter(PathPanel panel, BufferedImage bi, String kernelName, boolean enableGrayScale) {
+        this(panel, bi, kernelName, 1, enableGrayScale);
+    }
+
+  /**
+   * This constructor creates a smoothing command with a window radius for the mean kernel
+   * 
+   * @param panel           path panel
+   * @param bi              image to smooth, null for the current image of the panel
+   * @param kernelName      selected kernel
+   * @param radius          window radius of the mean kernel, the window is 2 * radius + 1 pixels wide
+   * @param enableGrayScale output grayscale
+   */     
+    public SmoothingFilter(PathPanel panel, BufferedImage bi, String kernelName, int radius, boolean enableGrayScale) {
+        this(panel, bi, kernelName, radius, Reference.BORDER_NONE, enableGrayScale);
+    }
+
+  /**
+   * This constructor creates a smoothing command with a window radius and a border mode
+   * 
+   * @param panel           path panel
+   * @param bi              image to smooth, null for the current image of the panel
+   * @param kernelName      selected kernel
+   * @param radius          window radius of the mean kernel, the window is 2 * radius + 1 pixels wide
+   * @param padding         border mode name, see BorderMode
+   * @param enableGrayScale output grayscale
+   */     
+    public SmoothingFilter(PathPanel panel, BufferedImage bi, String kernelName, int radius, String padding, boolean enableGrayScale) {
         super(panel, bi);
-        this.commandName = String.format("Smooth filter using %s kernel", kernelName);        
+        if (Reference.SMOOTH_MEAN.equals(kernelName)) {
+            this.commandName = String.format("Smooth filter using %s kernel of radius %d", kernelName, radius);
+        } else {
+            this.commandName = String.format("Smooth filter using %s kernel", kernelName);
+        }
         this.selectedKernel = selectKernel(kernelName);
         this.kernelDivisor  = selectKernelDivisor(kernelName);
+        this.radius = radius;
+        this.padding = padding;
         Reference.filterFlag = true;
         this.enableGrayScale = enableGrayScale;
     }
@@ -40,8 +86,18 @@ public class SmoothingFilter extends AbstractCommandFilter{
     @Override
     protected void transform() {
         FImagePath transformedImage = null;
+        if (this.tiledImg != null && BorderMode.fromName(this.padding) == BorderMode.WRAP){
+            // a wrapped border reads the opposite edge of the image, which a tile does not have
+            this.bufferImg = this.tiledImg.toBufferedImage();
+            this.tiledImg = null;
+        }
         try {
-            transformedImage = new FImagePath(smoothingProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.selectedKernel, this.kernelDivisor, this.enableGrayScale));
+            if (this.tiledImg != null){
+                transformedImage = new FImagePath(this.tiledImg.map(new SmoothingOperator(this.tiledImg, this.selectedKernel, this.kernelDivisor, this.radius, this.padding, this.enableGrayScale)));
+            }
+            else{
+                transformedImage = new FImagePath(smoothingProcess(this.bufferImg, this.imgWidth, this.imgHeight, this.selectedKernel, this.kernelDivisor, this.radius, this.padding, this.enableGrayScale));
+            }
         } catch (IOException ex) {
             Logger.getLogger(SmoothingFilter.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -50,6 +106,11 @@ public class SmoothingFilter extends AbstractCommandFilter{
             panel.add(transformedImage);
         }
     }    
+
+    @Override
+    protected boolean supportsTiles() {
+        return true;
+    }
  
   /**
    * This method apply smoothing filter to the buffered image
@@ -57,28 +118,56 @@ public class SmoothingFilter extends AbstractCommandFilter{
    * @param channels     image rgb channels
    * @param width        image width
    * @param height       image height
-   * @param kernel          selected kernel
+   * @param kernel          selected kernel, null for the mean kernel
    * @param kernelDivisor   kernel divisor 
+   * @param radius          window radius of the mean kernel
+   * @param padding         border mode name
    * @param enableGrayScale output grayscale
    */     
-    private BufferedImage smoothingProcess(BufferedImage bi, int width, int height, double[][] kernel, double kernelDivisor, boolean enableGrayScale) throws IOException{
-        int kernelWidth = kernel.length;
-        int kernelHeight = kernel[0].length;
+    private BufferedImage smoothingProcess(BufferedImage bi, int width, int height, double[][] kernel, double kernelDivisor, int radius, String padding, boolean enableGrayScale) throws IOException{
         BufferedImage convolutedImage;
-        int[][][] image = ImageUtil.convertImageToMatrix(bi);      
-        int[][] redConv   = Transformation.convolution(image[0], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
-        int[][] greenConv = Transformation.convolution(image[1], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
-        int[][] blueConv  = Transformation.convolution(image[2], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
-        int[][] alphaConv = Transformation.convolution(image[3], width, height, kernel, kernelWidth, kernelHeight, "None", kernelDivisor);
+        BufferPool pool = BufferPool.shared();
+        // the output has no alpha, so only the colour channels are read and smoothed
+        ImageBuffer image = ImageUtil.convertImageToRgbBuffer(bi, pool);      
+        ImageBuffer convoluted = smooth(image, kernel, kernelDivisor, radius, padding);
+        pool.release(image);
         if (enableGrayScale == true){
-            convolutedImage = ImageUtil.convertRgbToGrayscale(redConv, greenConv, blueConv);       
+            ImageBuffer luminance = ImageUtil.convertRgbToGrayscale(convoluted, pool);
+            convolutedImage = ImageUtil.convertGrayscaleToBufferedImg(luminance);       
+            pool.release(luminance);
+            pool.release(convoluted);
         }
         else{
-            convolutedImage = ImageUtil.convertArrayToBufferedImg(redConv, greenConv, blueConv, alphaConv);        
+            convolutedImage = ImageUtil.createRgbImage(convoluted);        
+            pool.release(convoluted);
         }
         return convolutedImage;
     }    
 
+  /**
+   * This method smooths the red, green and blue channels of an image
+   * 
+   * @param image           image planes
+   * @param kernel          selected kernel, null for the mean kernel
+   * @param kernelDivisor   kernel divisor 
+   * @param radius          window radius of the mean kernel
+   * @param padding         border mode name
+   * @return smoothed red, green and blue planes leased from the shared buffer pool
+   */     
+    private static ImageBuffer smooth(ImageBuffer image, double[][] kernel, double kernelDivisor, int radius, String padding){
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (kernel == null){
+            // the running sums are per channel, the channels are smoothed side by side
+            int[][] planes = new int[RGB_CHANNELS.length][];
+            ParallelBands.invokeAll(planes.length, channel -> planes[channel] =
+                BoxFilter.mean(image.getPlane(RGB_CHANNELS[channel]), width, height, image.getStride(), radius, BorderMode.fromName(padding)));
+            return new ImageBuffer(width, height, width, planes);
+        }
+        // the three channels are convolved together in one sweep
+        return Transformation.convolution(image, RGB_CHANNELS, kernel, kernel.length, kernel[0].length, padding, kernelDivisor);
+    }
+
   /**
    * This method get the selected kernel
    * 
@@ -97,6 +186,10 @@ public class SmoothingFilter extends AbstractCommandFilter{
             case Reference.SMOOTH_GAUSSIAN:
                 kernel = KERNEL_GAUSSIAN;
                 break;                  
+            case Reference.SMOOTH_MEAN:
+                // computed by BoxFilter with running sums instead of a kernel
+                kernel = null;
+                break;
             }
         return kernel;
     }
@@ -122,4 +215,86 @@ public class SmoothingFilter extends AbstractCommandFilter{
             }
         return kDiv;
     }
+
+    /*
+     * Smooths the tiles of a tiled image as they are needed. Each tile gets
+     * the same samples as the whole-image convolution.
+     */
+    private static final class SmoothingOperator implements TileOperator {
+        private final int width;
+        private final int height;
+        private final boolean grayscaleSource;
+        private final double[][] kernel;
+        private final double kernelDivisor;
+        private final int radius;
+        private final String padding;
+        private final boolean enableGrayScale;
+
+        private SmoothingOperator(TiledImage source, double[][] kernel, double kernelDivisor, int radius, String padding, boolean enableGrayScale) {
+            if (BorderMode.fromName(padding) == BorderMode.WRAP) {
+                throw new IllegalArgumentException("a tile cannot wrap around the image, smooth the whole image instead");
+            }
+            this.width = source.getWidth();
+            this.height = source.getHeight();
+            this.grayscaleSource = source.isGrayscale();
+            this.kernel = kernel;
+            this.kernelDivisor = kernelDivisor;
+            this.radius = radius;
+            this.padding = padding;
+            this.enableGrayScale = enableGrayScale;
+        }
+
+        @Override
+        public int getHalo() {
+            if (kernel == null) {
+                return radius;
+            }
+            return Math.max(kernel.length, kernel[0].length) / 2;
+        }
+
+        @Override
+        public int getNumPlanes() {
+            return isGrayscale() ? 1 : 3;
+        }
+
+        @Override
+        public boolean isGrayscale() {
+            return grayscaleSource || enableGrayScale;
+        }
+
+        @Override
+        public void computeTile(ImageBuffer source, int sourceX, int sourceY, ImageBuffer tile, int tileX, int tileY) {
+            Rectangle area = new Rectangle(tileX, tileY, tile.getWidth(), tile.getHeight());
+            if (grayscaleSource || !enableGrayScale) {
+                convolve(source, sourceX, sourceY, tile, area);
+                return;
+            }
+            BufferPool pool = BufferPool.shared();
+            ImageBuffer convoluted = pool.leaseBuffer(tile.getWidth(), tile.getHeight(), 3);
+            convolve(source, sourceX, sourceY, convoluted, area);
+            ColourConverter.toGrayscale(convoluted, ColourConverter.Conversion.REC709_GAMMA, tile.getPlane(ImageBuffer.GRAY), tile.getStride());
+            pool.release(convoluted);
+            // match the levels of the TYPE_BYTE_GRAY image the whole-image filter produces
+            ImageUtil.quantiseToByteGray(tile);
+        }
+
+        private void convolve(ImageBuffer source, int sourceX, int sourceY, ImageBuffer target, Rectangle area) {
+            int channels = grayscaleSource ? 1 : 3;
+            int[][] inputs = new int[channels][];
+            int[][] outputs = new int[channels][];
+            for (int channel = 0; channel < channels; channel++) {
+                inputs[channel] = source.getPlane(channel);
+                outputs[channel] = target.getPlane(channel);
+            }
+            if (kernel == null) {
+                for (int channel = 0; channel < channels; channel++) {
+                    BoxFilter.mean(inputs[channel], sourceX, sourceY, source.getStride(), width, height,
+                            radius, BorderMode.fromName(padding), outputs[channel], target.getStride(), area);
+                }
+                return;
+            }
+            Transformation.convolution(inputs, sourceX, sourceY, source.getStride(), width, height,
+                    kernel, kernel.length, kernel[0].length, padding, kernelDivisor, outputs, target.getStride(), area);
+        }
+    }
 }
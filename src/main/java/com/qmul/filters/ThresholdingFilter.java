@@ -8,7 +8,8 @@ package com.qmul.filters;
 import com.qmul.commandFramework.AbstractCommandFilter;
 import com.qmul.model.FImagePath;
 import com.qmul.model.PathPanel;
-import com.qmul.imgUtil.ImageUtil;
+import com.qmul.pointOperations.PointOperations;
+import com.qmul.pointOperations.PointPipeline;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -19,7 +20,7 @@ public class ThresholdingFilter extends AbstractCommandFilter{
     private final int threshold;
     public ThresholdingFilter(PathPanel panel, BufferedImage bi, int threshold) {
         super(panel, bi);
-        this.commandName = String.format("Thresholing filter using %s level", threshold);      
+        this.commandName = String.format("Thresholing filter using %s level", threshold);
         this.threshold = threshold;
     }
   /**
@@ -41,48 +42,13 @@ public class ThresholdingFilter extends AbstractCommandFilter{
     }    
 
   /**
-   * This method apply thresholding filter to the buffered image
+   * This method apply thresholding filter to the buffered image with the table
+   * of the threshold, in one pass.
    * 
    * @param bi          image rgb channels
    * @param threshold   selected threshold
    */     
     private BufferedImage thresholding(BufferedImage bi, int threshold) throws IOException{
-                // get the  RGB channels
-        int[][][] channels = ImageUtil.convertImageToMatrix(bi);
-        // convert the RGB channels to grayscale
-        var grayScaleImage = ImageUtil.convertRgbToGrayscale(channels[0], channels[1], channels[2]); 
-        BufferedImage binaryImage = calculateThresholdingImg(grayScaleImage, threshold);
-        return binaryImage;
+        return PointPipeline.of(PointOperations.threshold(threshold)).apply(bi);
     }
-    
-  /**
-   * This method apply smoothing filter to the buffered image
-   * 
-   * @param grayScaleImage  image grayscale
-   * @param threshold        selected threshold
-   */     
-    private BufferedImage calculateThresholdingImg(BufferedImage grayScaleImage, int threshold) throws IOException{
-        int binVal;
-        int width = grayScaleImage.getWidth();
-        int height = grayScaleImage.getHeight();
-        int pixel[];
-        BufferedImage outputBinaryImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
-        for (int row = 0; row < width; row++) {
-            for (int col = 0; col < height; col++) {
-                pixel = grayScaleImage.getRaster().getPixel(row, col, new int[3]);
-                if (pixel[0] >= threshold){
-                    binVal = 0;
-                }
-                else {
-                    binVal = 255;
-                }
-                int binaryValue = (binVal << 16) + (binVal << 8) + binVal; 
-                outputBinaryImage.setRGB(row, col, binaryValue);
-            }
-        }
-        return outputBinaryImage;
-    }    
-    
-   
-
 }
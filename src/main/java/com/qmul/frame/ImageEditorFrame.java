@@ -10,14 +10,20 @@ package com.qmul.frame;
 import com.qmul.filters.RotatationFilter;
 import com.qmul.commandFramework.CommandStack;
 import com.qmul.filters.BitPlaneFilter;
+import com.qmul.filters.CannyEdgeFilter;
 import com.qmul.filters.EdgeDetectionFilter;
 import com.qmul.filters.DisplayImage;
 import com.qmul.filters.HistogramEqualiserFilter;
+import com.qmul.filters.ContrastStretchFilter;
+import com.qmul.filters.MorphologyFilter;
 import com.qmul.filters.BrightnessFilter;
 import com.qmul.filters.OrderStatisticsFilter;
 import com.qmul.filters.PixelShiftingFilter;
 import com.qmul.filters.SmoothingFilter;
 import com.qmul.filters.ThresholdingFilter;
+import com.qmul.imageTransformation.Gradient;
+import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.TiledImage;
 import com.qmul.model.PathPanel;
 
 import javax.imageio.ImageIO;
@@ -26,6 +32,7 @@ import javax.swing.filechooser.FileFilter;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.Observable;
@@ -78,12 +85,16 @@ public class ImageEditorFrame extends JFrame {
         btnEdgeDetection = new javax.swing.JButton(); 
         tlbSep6 = new javax.swing.JToolBar.Separator(); 
         btnSmoothing = new javax.swing.JButton(); 
+        txtSmoothingRadius = new javax.swing.JTextField("7", 15);
+        txtOrderStatisticsRadius = new javax.swing.JTextField("1", 15);
         tlbSep7 = new javax.swing.JToolBar.Separator(); 
         btnHistEqualisation = new javax.swing.JButton();
         tlbSep8 = new javax.swing.JToolBar.Separator(); 
         btnThresholding = new javax.swing.JButton();
         txtThresholding = new javax.swing.JTextField("150", 15);
         chkGrayScale = new javax.swing.JCheckBox("Gray-Scale");
+        String[] borderModesList = {Reference.BORDER_NONE, Reference.BORDER_ZERO, Reference.BORDER_REPLICATE, Reference.BORDER_REFLECT, Reference.BORDER_WRAP};
+        cbBorderMode = new javax.swing.JComboBox(borderModesList);
         tlbSep9 = new javax.swing.JToolBar.Separator(); 
         btnBrightness = new javax.swing.JButton();
         txtBrightness = new javax.swing.JTextField("2.0", 15);        
@@ -95,6 +106,20 @@ public class ImageEditorFrame extends JFrame {
         tlbSep11 = new javax.swing.JToolBar.Separator();
         btnOrderStatistics = new javax.swing.JButton();
         tlbSep12 = new javax.swing.JToolBar.Separator();
+        tlbSep13 = new javax.swing.JToolBar.Separator();
+        btnMorphology = new javax.swing.JButton();
+        txtMorphologyWidth = new javax.swing.JTextField("3", 15);
+        txtMorphologyHeight = new javax.swing.JTextField("3", 15);
+        tlbSep14 = new javax.swing.JToolBar.Separator();
+        String[] equalisationList = {Reference.EQ_GLOBAL, Reference.EQ_CLAHE};
+        cbEqualisation = new javax.swing.JComboBox(equalisationList);
+        txtClaheTiles = new javax.swing.JTextField("8", 15);
+        txtClaheClip = new javax.swing.JTextField("2.0", 15);
+        tlbSep15 = new javax.swing.JToolBar.Separator();
+        btnStretch = new javax.swing.JButton();
+        String[] stretchList = {Reference.STRETCH_CONTRAST, Reference.STRETCH_AUTO_LEVELS};
+        cbStretch = new javax.swing.JComboBox(stretchList);
+        txtStretchClip = new javax.swing.JTextField("0.5", 15);
         lblImage = new javax.swing.JLabel();
         mnuMain = new javax.swing.JMenuBar();
         mnuFile = new javax.swing.JMenu();
@@ -274,7 +299,9 @@ public class ImageEditorFrame extends JFrame {
          
         tlbMain.add(btnEdgeDetection); 
         //String[] edgeDetectionKernelsList = {"Horizontal", "Vertical", "Sobel Horizontal", "Sobel Vertical", "Scharr Horizontal", "Scharr Vertical"};
-        String[] edgeDetectionKernelsList = {Reference.ED_H, Reference.ED_V, Reference.ED_SOBEL_V, Reference.ED_SOBEL_H, Reference.ED_SCHARR_V, Reference.ED_SCHARR_H};
+        String[] edgeDetectionKernelsList = {Reference.ED_H, Reference.ED_V, Reference.ED_SOBEL_V, Reference.ED_SOBEL_H, Reference.ED_SCHARR_V, Reference.ED_SCHARR_H,
+                                             Reference.ED_PREWITT_MAGNITUDE, Reference.ED_SOBEL_MAGNITUDE, Reference.ED_SCHARR_MAGNITUDE,
+                                             Reference.ED_CANNY};
         //Create the combo box, select item at index 4.
         //Indices start at 0, so 4 specifies the pig.
         cbEdgeDetectionKernel = new javax.swing.JComboBox(edgeDetectionKernelsList);
@@ -297,12 +324,17 @@ public class ImageEditorFrame extends JFrame {
             }
         });     
         tlbMain.add(btnSmoothing);         
-        String[] smoothingKernelsList = {Reference.SMOOTH_BOX, Reference.SMOOTH_WEIGHTED_AVERAGE, Reference.SMOOTH_GAUSSIAN};
+        String[] smoothingKernelsList = {Reference.SMOOTH_BOX, Reference.SMOOTH_WEIGHTED_AVERAGE, Reference.SMOOTH_GAUSSIAN, Reference.SMOOTH_MEAN};
         //Create the combo box, select item at index 4.
         //Indices start at 0, so 4 specifies the pig.
         cbSmoothingKernel = new javax.swing.JComboBox(smoothingKernelsList);
         cbSmoothingKernel.setSelectedIndex(0);
         tlbMain.add(cbSmoothingKernel);  
+        txtSmoothingRadius.setPreferredSize(new Dimension(50,44));
+        txtSmoothingRadius.setMaximumSize(new Dimension(50,45));  
+        txtSmoothingRadius.setToolTipText("Window radius for the Mean kernel"); 
+        txtSmoothingRadius.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMain.add(txtSmoothingRadius); 
         tlbMain.add(tlbSep7);
         btnHistEqualisation.setIcon(new javax.swing.ImageIcon(getClass().getResource("/tlbIcons/histEqual.png"))); // NOI18N        
         btnHistEqualisation.setFocusable(false);
@@ -343,6 +375,82 @@ public class ImageEditorFrame extends JFrame {
         chkGrayScale.setSelected(true);
         chkGrayScale.setToolTipText("Convert output of covolution to Grayscale or RGB!");
         tlbMainLower.add(chkGrayScale);
+        cbBorderMode.setSelectedIndex(0);
+        cbBorderMode.setMaximumSize(new Dimension(100,45));
+        cbBorderMode.setToolTipText("Border handling of the window filters");
+        tlbMainLower.add(cbBorderMode);
+        tlbMainLower.add(tlbSep13);
+        btnMorphology.setText("Morphology");
+        btnMorphology.setFocusable(false);
+        btnMorphology.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
+        btnMorphology.setVerticalTextPosition(javax.swing.SwingConstants.BOTTOM);
+        btnMorphology.setToolTipText("Morphology with a rectangular structuring element"); 
+        btnMorphology.addMouseListener(new java.awt.event.MouseAdapter() {
+        public void mouseClicked(java.awt.event.MouseEvent evt) {
+                try {
+                    btnMorphologyMouseClicked(evt);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });      
+        tlbMainLower.add(btnMorphology);
+        String[] morphologyList = {Reference.MORPH_EROSION, Reference.MORPH_DILATION, Reference.MORPH_OPENING, Reference.MORPH_CLOSING,
+                                   Reference.MORPH_TOP_HAT, Reference.MORPH_BLACK_HAT, Reference.MORPH_GRADIENT};
+        cbMorphology = new javax.swing.JComboBox(morphologyList);
+        cbMorphology.setSelectedIndex(0);
+        cbMorphology.setMaximumSize(new Dimension(100,45));
+        tlbMainLower.add(cbMorphology);
+        txtMorphologyWidth.setPreferredSize(new Dimension(50,44));
+        txtMorphologyWidth.setMaximumSize(new Dimension(50,45));  
+        txtMorphologyWidth.setToolTipText("Structuring element width"); 
+        txtMorphologyWidth.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMainLower.add(txtMorphologyWidth); 
+        txtMorphologyHeight.setPreferredSize(new Dimension(50,44));
+        txtMorphologyHeight.setMaximumSize(new Dimension(50,45));  
+        txtMorphologyHeight.setToolTipText("Structuring element height"); 
+        txtMorphologyHeight.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMainLower.add(txtMorphologyHeight); 
+        tlbMainLower.add(tlbSep14);
+        cbEqualisation.setSelectedIndex(0);
+        cbEqualisation.setMaximumSize(new Dimension(100,45));
+        cbEqualisation.setToolTipText("Histogram equalisation method");
+        tlbMainLower.add(cbEqualisation);
+        txtClaheTiles.setPreferredSize(new Dimension(50,44));
+        txtClaheTiles.setMaximumSize(new Dimension(50,45));  
+        txtClaheTiles.setToolTipText("CLAHE tiles across and down"); 
+        txtClaheTiles.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMainLower.add(txtClaheTiles); 
+        txtClaheClip.setPreferredSize(new Dimension(50,44));
+        txtClaheClip.setMaximumSize(new Dimension(50,45));  
+        txtClaheClip.setToolTipText("CLAHE clip limit, 0 for none"); 
+        txtClaheClip.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMainLower.add(txtClaheClip); 
+        tlbMainLower.add(tlbSep15);
+        btnStretch.setText("Stretch");
+        btnStretch.setFocusable(false);
+        btnStretch.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
+        btnStretch.setVerticalTextPosition(javax.swing.SwingConstants.BOTTOM);
+        btnStretch.setToolTipText("Stretch the range of the channels to 0..255"); 
+        btnStretch.addMouseListener(new java.awt.event.MouseAdapter() {
+        public void mouseClicked(java.awt.event.MouseEvent evt) {
+                try {
+                    btnStretchMouseClicked(evt);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });      
+        tlbMainLower.add(btnStretch);
+        cbStretch.setSelectedIndex(0);
+        cbStretch.setMaximumSize(new Dimension(100,45));
+        cbStretch.setToolTipText("Stretch method");
+        tlbMainLower.add(cbStretch);
+        txtStretchClip.setPreferredSize(new Dimension(50,44));
+        txtStretchClip.setMaximumSize(new Dimension(50,45));  
+        txtStretchClip.setToolTipText("Percentage of pixels clipped at each end"); 
+        txtStretchClip.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMainLower.add(txtStretchClip); 
         btnBitPlane.setText("Bit-Plane");
         btnBitPlane.setFocusable(false);
         btnBitPlane.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
@@ -432,6 +540,11 @@ public class ImageEditorFrame extends JFrame {
         cbOrderStatistics = new javax.swing.JComboBox(orderStatisticsList);
         cbOrderStatistics.setSelectedIndex(0);
         tlbMain.add(cbOrderStatistics);
+        txtOrderStatisticsRadius.setPreferredSize(new Dimension(50,44));
+        txtOrderStatisticsRadius.setMaximumSize(new Dimension(50,45));  
+        txtOrderStatisticsRadius.setToolTipText("Window radius for the order statistics filters"); 
+        txtOrderStatisticsRadius.setHorizontalAlignment(javax.swing.SwingConstants.CENTER);
+        tlbMain.add(txtOrderStatisticsRadius); 
         
         lblImage.setText("Image");
         mnuFile.setText("File");
@@ -455,11 +568,29 @@ public class ImageEditorFrame extends JFrame {
         mnuSave.setAccelerator(javax.swing.KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S, java.awt.event.InputEvent.CTRL_DOWN_MASK));
         mnuSave.setIcon(new javax.swing.ImageIcon(getClass().getResource("/mnuIcons/save.png"))); // NOI18N
         mnuSave.setText("Save");
+        mnuSave.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                try {
+                    SaveFile();
+                } catch (IOException ex) {
+                    Logger.getLogger(ImageEditorFrame.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        });
         mnuFile.add(mnuSave);
 
         mnuSaveAs.setAccelerator(javax.swing.KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S, java.awt.event.InputEvent.SHIFT_DOWN_MASK | java.awt.event.InputEvent.CTRL_DOWN_MASK));
         mnuSaveAs.setIcon(new javax.swing.ImageIcon(getClass().getResource("/mnuIcons/saveas.png"))); // NOI18N
         mnuSaveAs.setText("Save As");
+        mnuSaveAs.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                try {
+                    SaveFile();
+                } catch (IOException ex) {
+                    Logger.getLogger(ImageEditorFrame.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        });
         mnuFile.add(mnuSaveAs);
         mnuFile.add(mnuSep2);
 
@@ -615,14 +746,49 @@ public class ImageEditorFrame extends JFrame {
             revalidate();
             repaint();
             //this.setContentPane(new ImageDisplay(Arrays.asList(files)));          
+            TiledImage tiledImage = null;
             for(File filename : files)
             {
-                this.bi = ImageIO.read(new File(filename.toString()));
+                File file = new File(filename.toString());
+                Dimension size = ImageUtil.readImageSize(file);
+                // very large images are decoded tile by tile when they are shown
+                if ((long) size.width * size.height >= Reference.TILED_IMAGE_PIXELS){
+                    tiledImage = TiledImage.fromFile(file);
+                    this.bi = null;
+                }
+                else{
+                    tiledImage = null;
+                    this.bi = ImageIO.read(file);
+                }
+            }
+            if (tiledImage != null){
+                stack.execute(new DisplayImage(pathPanel, tiledImage));
+            }
+            else{
+                stack.execute(new DisplayImage(pathPanel, this.bi));
             }
-            stack.execute(new DisplayImage(pathPanel, this.bi));
             this.pack();    
         }        
     }
+
+    private void SaveFile() throws IOException{
+        RenderedImage image = pathPanel.getRenderedImage();
+        if (image == null){
+            System.out.println("No Image selected!");
+            return;
+        }
+        JFileChooser dbSave = new JFileChooser();
+        dbSave.setFileFilter(new FileNameExtensionFilter("PNG Image (.png)", "png"));
+        int returnVal = dbSave.showSaveDialog(this);
+        if (returnVal == javax.swing.JFileChooser.APPROVE_OPTION)
+        {
+            String path = dbSave.getSelectedFile().getPath();
+            if (!path.toLowerCase().endsWith(".png")){
+                path = path + ".png";
+            }
+            ImageUtil.saveImage(path, image);
+        }
+    }
     
     private void btnAddFileMouseClicked(java.awt.event.MouseEvent evt) throws IOException {
         // TODO add your handling code here:
@@ -741,7 +907,12 @@ public class ImageEditorFrame extends JFrame {
         //add your elements
         revalidate();
         repaint();
-        stack.execute(new EdgeDetectionFilter(pathPanel, null, (String) cbEdgeDetectionKernel.getSelectedItem(), chkGrayScale.isSelected()));
+        String kernelName = (String) cbEdgeDetectionKernel.getSelectedItem();
+        if (Reference.ED_CANNY.equals(kernelName)) {
+            stack.execute(new CannyEdgeFilter(pathPanel, null, Gradient.Operator.SOBEL, (String) cbBorderMode.getSelectedItem()));
+        } else {
+            stack.execute(new EdgeDetectionFilter(pathPanel, null, kernelName, (String) cbBorderMode.getSelectedItem(), chkGrayScale.isSelected()));
+        }
         this.pack();             
     }
     
@@ -754,7 +925,15 @@ public class ImageEditorFrame extends JFrame {
         //add your elements
         revalidate();
         repaint();
-        stack.execute(new SmoothingFilter(pathPanel, null, (String) cbSmoothingKernel.getSelectedItem(), chkGrayScale.isSelected()));
+        int radius;
+        try {
+           radius = Math.max(0, Integer.parseInt(txtSmoothingRadius.getText()));
+        }
+        catch (NumberFormatException e)
+        {
+           radius = 1;
+        }
+        stack.execute(new SmoothingFilter(pathPanel, null, (String) cbSmoothingKernel.getSelectedItem(), radius, (String) cbBorderMode.getSelectedItem(), chkGrayScale.isSelected()));
         this.pack();          
     }
     
@@ -767,7 +946,19 @@ public class ImageEditorFrame extends JFrame {
         //add your elements
         revalidate();
         repaint();
-        stack.execute(new HistogramEqualiserFilter(pathPanel, null));
+        int tiles;
+        double clipLimit;
+        try {
+           tiles = Math.max(1, Integer.parseInt(txtClaheTiles.getText()));
+           clipLimit = Double.parseDouble(txtClaheClip.getText());
+        }
+        catch (NumberFormatException e)
+        {
+           tiles = 8;
+           clipLimit = 2.0;
+        }
+        stack.execute(new HistogramEqualiserFilter(pathPanel, null, (String) cbEqualisation.getSelectedItem(), tiles, tiles,
+                                                   clipLimit, chkGrayScale.isSelected()));
         this.pack();          
     }  
 
@@ -867,7 +1058,61 @@ public class ImageEditorFrame extends JFrame {
         //add your elements
         revalidate();
         repaint();
-        stack.execute(new OrderStatisticsFilter(pathPanel, null, (String)cbOrderStatistics.getSelectedItem()));
+        int radius;
+        try {
+           radius = Math.max(0, Integer.parseInt(txtOrderStatisticsRadius.getText()));
+        }
+        catch (NumberFormatException e)
+        {
+           radius = 1;
+        }
+        stack.execute(new OrderStatisticsFilter(pathPanel, null, (String)cbOrderStatistics.getSelectedItem(), radius, (String) cbBorderMode.getSelectedItem()));
+        this.pack();        
+    }
+    
+    private void btnMorphologyMouseClicked(java.awt.event.MouseEvent evt)throws IOException {
+        morphologyProcessing();
+    }
+    
+    private void morphologyProcessing(){
+        imagePanel.removeAll();
+        //add your elements
+        revalidate();
+        repaint();
+        int elementWidth;
+        int elementHeight;
+        try {
+           elementWidth = Math.max(1, Integer.parseInt(txtMorphologyWidth.getText()));
+           elementHeight = Math.max(1, Integer.parseInt(txtMorphologyHeight.getText()));
+        }
+        catch (NumberFormatException e)
+        {
+           elementWidth = 3;
+           elementHeight = 3;
+        }
+        stack.execute(new MorphologyFilter(pathPanel, null, (String) cbMorphology.getSelectedItem(), elementWidth, elementHeight,
+                                           (String) cbBorderMode.getSelectedItem(), chkGrayScale.isSelected()));
+        this.pack();        
+    }
+    
+    private void btnStretchMouseClicked(java.awt.event.MouseEvent evt)throws IOException {
+        stretchProcessing();
+    }
+    
+    private void stretchProcessing(){
+        imagePanel.removeAll();
+        //add your elements
+        revalidate();
+        repaint();
+        double clipPercent;
+        try {
+           clipPercent = Double.parseDouble(txtStretchClip.getText());
+        }
+        catch (NumberFormatException e)
+        {
+           clipPercent = 0.5;
+        }
+        stack.execute(new ContrastStretchFilter(pathPanel, null, (String) cbStretch.getSelectedItem(), clipPercent));
         this.pack();        
     }
     
@@ -887,10 +1132,12 @@ public class ImageEditorFrame extends JFrame {
     private javax.swing.JComboBox cbEdgeDetectionKernel;
     private javax.swing.JButton btnSmoothing;
     private javax.swing.JComboBox cbSmoothingKernel;
+    private javax.swing.JTextField txtSmoothingRadius;
     private javax.swing.JButton btnHistEqualisation;
     private javax.swing.JButton btnThresholding;
     private javax.swing.JTextField txtThresholding;
     private javax.swing.JCheckBox chkGrayScale;
+    private javax.swing.JComboBox cbBorderMode;
     private javax.swing.JComboBox cbBitPlane;
     private javax.swing.JButton btnBitPlane;
     private javax.swing.JButton btnBrightness;
@@ -900,6 +1147,17 @@ public class ImageEditorFrame extends JFrame {
     private javax.swing.JTextField txtPixelScaleFactor;
     private javax.swing.JButton btnOrderStatistics;
     private javax.swing.JComboBox cbOrderStatistics;    
+    private javax.swing.JTextField txtOrderStatisticsRadius;
+    private javax.swing.JButton btnMorphology;
+    private javax.swing.JComboBox cbMorphology;
+    private javax.swing.JComboBox cbEqualisation;
+    private javax.swing.JButton btnStretch;
+    private javax.swing.JComboBox cbStretch;
+    private javax.swing.JTextField txtStretchClip;
+    private javax.swing.JTextField txtClaheTiles;
+    private javax.swing.JTextField txtClaheClip;
+    private javax.swing.JTextField txtMorphologyWidth;
+    private javax.swing.JTextField txtMorphologyHeight;
     private javax.swing.JButton btnOpen;
     private javax.swing.JButton btnAddFile;
     private javax.swing.JButton btnRedo;
@@ -925,6 +1183,9 @@ public class ImageEditorFrame extends JFrame {
     private javax.swing.JToolBar.Separator tlbSep10;
     private javax.swing.JToolBar.Separator tlbSep11;
     private javax.swing.JToolBar.Separator tlbSep12;
+    private javax.swing.JToolBar.Separator tlbSep13;
+    private javax.swing.JToolBar.Separator tlbSep14;
+    private javax.swing.JToolBar.Separator tlbSep15;
     private javax.swing.JMenuItem mnuAbout;
     private javax.swing.JMenuItem mnuCopy;
     private javax.swing.JMenuItem mnuCut;
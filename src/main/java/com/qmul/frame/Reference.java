@@ -14,17 +14,47 @@ public class Reference {
 
     public static final String ED_SCHARR_V = "Scharr Vertical";
     public static final String ED_SCHARR_H = "Scharr Horizontal";
+
+    public static final String ED_PREWITT_MAGNITUDE = "Prewitt Magnitude";
+    public static final String ED_SOBEL_MAGNITUDE = "Sobel Magnitude";
+    public static final String ED_SCHARR_MAGNITUDE = "Scharr Magnitude";
+
+    public static final String ED_CANNY = "Canny";
     
     public static final String SMOOTH_BOX = "Box";
     public static final String SMOOTH_WEIGHTED_AVERAGE = "Weighted Average";
     public static final String SMOOTH_GAUSSIAN = "Gaussian";
+    public static final String SMOOTH_MEAN = "Mean";
+    
+    public static final String BORDER_NONE = "None";
+    public static final String BORDER_ZERO = "Zero";
+    public static final String BORDER_REPLICATE = "Replicate";
+    public static final String BORDER_REFLECT = "Reflect";
+    public static final String BORDER_WRAP = "Wrap";
     
     public static boolean filterFlag = false;
     
+    // images with at least this many pixels are opened as tiled images
+    public static final long TILED_IMAGE_PIXELS = Long.getLong("qmul.tiledImagePixels", 1L << 26);
+    
     public static final String OS_MEDIAN = "Median Filter";
     public static final String OS_MAX = "Max Filter";
     public static final String OS_MIN = "Min Filter";      
     public static final String OS_MID = "Mid point Filter";    
+
+    public static final String MORPH_EROSION = "Erosion";
+    public static final String MORPH_DILATION = "Dilation";
+    public static final String MORPH_OPENING = "Opening";
+    public static final String MORPH_CLOSING = "Closing";
+    public static final String MORPH_TOP_HAT = "Top-hat";
+    public static final String MORPH_BLACK_HAT = "Black-hat";
+    public static final String MORPH_GRADIENT = "Gradient";
+
+    public static final String EQ_GLOBAL = "Global";
+    public static final String EQ_CLAHE = "CLAHE";
+
+    public static final String STRETCH_CONTRAST = "Contrast stretch";
+    public static final String STRETCH_AUTO_LEVELS = "Auto-levels";
   
     
 }
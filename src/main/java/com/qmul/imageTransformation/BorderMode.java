@@ -0,0 +1,124 @@
+/*
+ * Description: How a convolution treats the pixels whose kernel window
+ * reaches past the image. NONE keeps the original behaviour: those pixels
+ * are not computed and stay zero. The other modes compute every pixel from
+ * a padded copy of the source, so the convolution loops themselves never
+ * check bounds:
+ *   ZERO       samples outside the image are zero
+ *   REPLICATE  the nearest edge sample is repeated, aaa|abcd|ddd
+ *   REFLECT    the image is mirrored at its edges, cba|abcd|dcb
+ *   WRAP       the image repeats periodically, bcd|abcd|abc
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+public enum BorderMode {
+    NONE("None"),
+    ZERO("Zero"),
+    REPLICATE("Replicate"),
+    REFLECT("Reflect"),
+    WRAP("Wrap");
+
+    private final String label;
+
+    BorderMode(String label) {
+        this.label = label;
+    }
+
+  /**
+   * This method return the mode of a padding name, as passed to Transformation.convolution
+   *
+   * @param padding     padding name, null for NONE
+   * @return BorderMode
+   */
+    public static BorderMode fromName(String padding) {
+        if (padding == null) {
+            return NONE;
+        }
+        for (BorderMode mode : values()) {
+            if (mode.label.equalsIgnoreCase(padding) || mode.name().equalsIgnoreCase(padding)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("unknown padding: " + padding);
+    }
+
+    /**
+    * This method return the padding name of the mode
+    *
+    * @return String
+    */
+    public String getLabel() {
+        return label;
+    }
+
+  /**
+   * This method maps a coordinate outside the image to the sample it repeats
+   *
+   * @param coordinate  column or row, may be outside the image
+   * @param size        image width or height
+   * @return coordinate inside the image, -1 if the sample is zero
+   */
+    public int map(int coordinate, int size) {
+        if (coordinate >= 0 && coordinate < size) {
+            return coordinate;
+        }
+        switch (this) {
+            case REPLICATE:
+                return coordinate < 0 ? 0 : size - 1;
+            case REFLECT:
+                int period = Math.floorMod(coordinate, 2 * size);
+                return period < size ? period : 2 * size - 1 - period;
+            case WRAP:
+                return Math.floorMod(coordinate, size);
+            default:
+                return -1;
+        }
+    }
+
+  /**
+   * This method copies a rectangle of the image, extended past the image
+   * edges by this mode, into a plane leased from the shared buffer pool.
+   * The source region must hold every sample the rectangle maps to.
+   *
+   * @param input       source region, row-major
+   * @param sourceX     image column of the first source sample
+   * @param sourceY     image row of the first source sample
+   * @param stride      distance between two rows of the source region
+   * @param width       image width
+   * @param height      image height
+   * @param padded      rectangle to copy in image coordinates, may reach past the image
+   * @return plane of padded.width * padded.height samples with a stride of padded.width
+   */
+    public int[] pad(int[] input, int sourceX, int sourceY, int stride, int width, int height, Rectangle padded) {
+        int[] output = BufferPool.shared().lease(padded.width * padded.height);
+        // columns inside the image are copied as a block, only the border columns are mapped
+        int inside0 = Math.min(Math.max(padded.x, 0), padded.x + padded.width);
+        int inside1 = Math.max(Math.min(padded.x + padded.width, width), inside0);
+        for (int v = 0; v < padded.height; v++) {
+            int outIdx = v * padded.width;
+            int y = map(padded.y + v, height);
+            if (y < 0) {
+                Arrays.fill(output, outIdx, outIdx + padded.width, 0);
+                continue;
+            }
+            int inIdx = (y - sourceY) * stride - sourceX;
+            for (int x = padded.x; x < inside0; x++) {
+                output[outIdx + x - padded.x] = sample(input, inIdx, map(x, width));
+            }
+            System.arraycopy(input, inIdx + inside0, output, outIdx + inside0 - padded.x, inside1 - inside0);
+            for (int x = inside1; x < padded.x + padded.width; x++) {
+                output[outIdx + x - padded.x] = sample(input, inIdx, map(x, width));
+            }
+        }
+        return output;
+    }
+
+    private static int sample(int[] input, int rowIdx, int x) {
+        return x < 0 ? 0 : input[rowIdx + x];
+    }
+}
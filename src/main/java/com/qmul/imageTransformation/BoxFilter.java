@@ -0,0 +1,140 @@
+/*
+ * Description: Mean of a square window of any radius in constant time per
+ * pixel. The filter keeps a running sum for every column of the window and
+ * slides a running sum of those column sums along each row. Moving the
+ * window costs two additions and two subtractions however large it is,
+ * where the convolution costs one multiply-add per window pixel.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.Rectangle;
+
+public class BoxFilter {
+
+    private BoxFilter() {
+    }
+
+  /**
+   * This method apply a mean filter to an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param radius      window radius, the window is 2 * radius + 1 pixels wide and high
+   * @return filtered plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] mean(int[] input, int width, int height, int stride, int radius) {
+        return mean(input, width, height, stride, radius, BorderMode.NONE);
+    }
+
+  /**
+   * This method apply a mean filter to an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param radius      window radius, the window is 2 * radius + 1 pixels wide and high
+   * @param border      treatment of windows reaching past the image
+   * @return filtered plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] mean(int[] input, int width, int height, int stride, int radius, BorderMode border) {
+        int[] output = BufferPool.shared().lease(width * height);
+        mean(input, 0, 0, stride, width, height, radius, border, output, width, new Rectangle(0, 0, width, height));
+        return output;
+    }
+
+  /**
+   * This method apply a mean filter to one region of an image, for example a tile.
+   * Each pixel becomes the window mean truncated towards zero, like the box
+   * kernel of Transformation.convolution. With the border mode NONE, pixels
+   * whose window reaches past the image become zero.
+   *
+   * @param input       source region, row-major
+   * @param sourceX     image column of the first source sample
+   * @param sourceY     image row of the first source sample
+   * @param stride      distance between two rows of the source region
+   * @param width       image width
+   * @param height      image height
+   * @param radius      window radius, the window is 2 * radius + 1 pixels wide and high
+   * @param border      treatment of windows reaching past the image
+   * @param output      destination region, row-major
+   * @param outputStride  distance between two rows of the destination region
+   * @param area        destination region in image coordinates, the source region
+   *                    must cover it grown by the radius, clipped to the image,
+   *                    and for WRAP the whole image
+   */
+    public static void mean(int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius, BorderMode border,
+                            int[] output, int outputStride, Rectangle area) {
+        long size = 2L * radius + 1;
+        if (radius < 0 || size * size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("window radius out of range: " + radius);
+        }
+        IntegerDivisor divisor = new IntegerDivisor(size * size);
+
+        if (border != BorderMode.NONE) {
+            // filter a copy extended past the image edges, every window then lies inside it
+            Rectangle padded = new Rectangle(area.x - radius, area.y - radius, area.width + 2 * radius, area.height + 2 * radius);
+            int[] paddedInput = border.pad(input, sourceX, sourceY, stride, width, height, padded);
+            ParallelBands.forEach(area.y, area.y + area.height, 4L * area.width,
+                    (first, end) -> meanRows(paddedInput, padded.x, padded.y, padded.width, radius, divisor, output, outputStride, area,
+                                             area.x, area.x + area.width - 1, first, end - 1));
+            BufferPool.shared().release(paddedInput);
+            return;
+        }
+
+        int x0 = Math.max(area.x, radius);
+        int y0 = Math.max(area.y, radius);
+        int x1 = Math.min(area.x + area.width - 1, width - 1 - radius);
+        int y1 = Math.min(area.y + area.height - 1, height - 1 - radius);
+        Transformation.clearOutside(output, outputStride, area, x0, y0, x1, y1);
+        if (x0 > x1 || y0 > y1) {
+            return;
+        }
+
+        // bands of rows are independent, each starts its own running sums
+        ParallelBands.forEach(y0, y1 + 1, 4L * (x1 - x0 + 1),
+                (first, end) -> meanRows(input, sourceX, sourceY, stride, radius, divisor, output, outputStride, area, x0, x1, first, end - 1));
+    }
+
+    private static void meanRows(int[] input, int sourceX, int sourceY, int stride, int radius, IntegerDivisor divisor,
+                                 int[] output, int outputStride, Rectangle area, int x0, int x1, int y0, int y1) {
+        int window = 2 * radius + 1;
+        // column sums over the window rows of the current output row, for the source columns x0 - radius .. x1 + radius
+        int columns = x1 - x0 + window;
+        int firstColumn = x0 - radius - sourceX;
+        long[] columnSums = new long[columns];
+        for (int y = y0 - radius; y <= y0 + radius; y++) {
+            addRow(input, (y - sourceY) * stride + firstColumn, columnSums, 1);
+        }
+
+        for (int y = y0; y <= y1; y++) {
+            int outIdx = (y - area.y) * outputStride + x0 - area.x;
+            long sum = 0;
+            for (int c = 0; c < window; c++) {
+                sum += columnSums[c];
+            }
+            output[outIdx] = divisor.divide(sum);
+            for (int c = window; c < columns; c++) {
+                sum += columnSums[c] - columnSums[c - window];
+                output[++outIdx] = divisor.divide(sum);
+            }
+
+            if (y < y1) {
+                // slide the window one row down
+                addRow(input, (y - radius - sourceY) * stride + firstColumn, columnSums, -1);
+                addRow(input, (y + radius + 1 - sourceY) * stride + firstColumn, columnSums, 1);
+            }
+        }
+    }
+
+    private static void addRow(int[] input, int inIdx, long[] columnSums, int sign) {
+        for (int c = 0; c < columnSums.length; c++) {
+            columnSums[c] += sign * input[inIdx + c];
+        }
+    }
+}
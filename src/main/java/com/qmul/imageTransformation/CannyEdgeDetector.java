@@ -0,0 +1,326 @@
+/*
+ * Description: Canny edge detection of an image channel. The stages are
+ *   smoothing       separable Gaussian with integer weights
+ *   gradient        Sobel or Scharr magnitude and direction in one pass
+ *   suppression     pixels that are not a maximum across the edge are dropped
+ *   hysteresis      weak pixels are kept when connected to a strong one
+ * Every stage works on bands of rows on the parallel pool. Hysteresis
+ * labels the connected edge candidates with a union-find per band, joins
+ * the components across band seams, and keeps the components holding a
+ * strong pixel, so it needs no recursion or flood fill stack.
+ *
+ * The thresholds are in grey levels per pixel and are scaled by the gain of
+ * the derivative operator, so Sobel and Scharr give similar edges for the
+ * same thresholds. The result does not depend on the parallelism.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ParallelBands;
+import java.util.Arrays;
+
+public final class CannyEdgeDetector {
+    public static final double DEFAULT_SIGMA = 1.4;
+    public static final double DEFAULT_LOW_THRESHOLD = 5.0;
+    public static final double DEFAULT_HIGH_THRESHOLD = 12.5;
+
+    public static final int EDGE = 255;
+
+    private static final int NONE = 0;
+    private static final int WEAK = 1;
+    private static final int STRONG = 2;
+    // integer weight of the Gaussian centre
+    private static final int GAUSSIAN_SCALE = 256;
+
+    private final double sigma;
+    private final Gradient.Operator operator;
+    private final double lowThreshold;
+    private final double highThreshold;
+    private final BorderMode border;
+
+  /**
+   * This constructor creates a detector with the default smoothing and thresholds
+   *
+   * @param operator        derivative operator, SOBEL or SCHARR
+   * @param border          treatment of pixels whose windows reach past the image
+   */
+    public CannyEdgeDetector(Gradient.Operator operator, BorderMode border) {
+        this(DEFAULT_SIGMA, operator, DEFAULT_LOW_THRESHOLD, DEFAULT_HIGH_THRESHOLD, border);
+    }
+
+  /**
+   * This constructor creates a detector
+   *
+   * @param sigma           standard deviation of the Gaussian smoothing in pixels, 0 for none
+   * @param operator        derivative operator, SOBEL or SCHARR
+   * @param lowThreshold    gradient in grey levels per pixel a weak edge needs
+   * @param highThreshold   gradient in grey levels per pixel a strong edge needs
+   * @param border          treatment of pixels whose windows reach past the image. With
+   *                        NONE the image is extended by its edge pixels and pixels
+   *                        within reach of the border are never edges.
+   */
+    public CannyEdgeDetector(double sigma, Gradient.Operator operator, double lowThreshold, double highThreshold, BorderMode border) {
+        if (sigma < 0 || lowThreshold < 0 || highThreshold < lowThreshold) {
+            throw new IllegalArgumentException("invalid Canny parameters: sigma " + sigma
+                    + ", thresholds " + lowThreshold + " to " + highThreshold);
+        }
+        this.sigma = sigma;
+        this.operator = operator;
+        this.lowThreshold = lowThreshold;
+        this.highThreshold = highThreshold;
+        this.border = border;
+    }
+
+  /**
+   * This method finds the edges of an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @return edge plane leased from the shared buffer pool with a stride of width, EDGE on edges and 0 elsewhere
+   */
+    public int[] detect(int[] input, int width, int height, int stride) {
+        BufferPool pool = BufferPool.shared();
+        // the border pixels are computed from replicated samples, NONE clears them at the end
+        BorderMode padding = border == BorderMode.NONE ? BorderMode.REPLICATE : border;
+        int size = width * height;
+
+        double[][] kernel = sigma > 0 ? gaussianKernel(sigma) : null;
+        int[] smoothed;
+        if (kernel != null) {
+            double divisor = 0;
+            for (double[] column : kernel) {
+                for (double weight : column) {
+                    divisor += weight;
+                }
+            }
+            smoothed = Transformation.convolution(input, width, height, stride, kernel, kernel.length, kernel.length,
+                                                  padding.getLabel(), divisor);
+        } else {
+            smoothed = pool.lease(size);
+            for (int row = 0; row < height; row++) {
+                System.arraycopy(input, row * stride, smoothed, row * width, width);
+            }
+        }
+
+        int[] magnitude = pool.lease(size);
+        int[] orientation = pool.lease(size);
+        Gradient.gradient(smoothed, width, height, width, operator, Gradient.Norm.L2, padding, magnitude, orientation, 4);
+
+        // the smoothed plane is no longer needed and takes the edge classes
+        int[] classes = smoothed;
+        int low = (int) Math.ceil(lowThreshold * operator.getGain());
+        int high = Math.max(low, (int) Math.ceil(highThreshold * operator.getGain()));
+        ParallelBands.forEach(0, height, 8L * width,
+                (first, end) -> suppress(magnitude, orientation, classes, width, height, low, high, first, end));
+
+        int[] edges = magnitude;
+        int[] parent = orientation;
+        hysteresis(classes, parent, edges, width, height);
+        pool.release(classes);
+        pool.release(parent);
+
+        if (border == BorderMode.NONE) {
+            int margin = (kernel != null ? kernel.length / 2 : 0) + 2;
+            clearMargin(edges, width, height, margin);
+        }
+        return edges;
+    }
+
+  /**
+   * This method return a square Gaussian kernel with integer weights, the outer
+   * product of one row of weights with itself, so it runs on the separable
+   * integer engine
+   *
+   * @param sigma       standard deviation in pixels
+   * @return kernel of odd size
+   */
+    static double[][] gaussianKernel(double sigma) {
+        int radius = Math.max(1, (int) Math.ceil(3 * sigma));
+        int[] weights = new int[2 * radius + 1];
+        for (int i = -radius; i <= radius; i++) {
+            weights[i + radius] = (int) Math.round(GAUSSIAN_SCALE * Math.exp(-i * i / (2 * sigma * sigma)));
+        }
+        // drop tails that rounded to zero
+        int trim = 0;
+        while (trim < radius && weights[trim] == 0) {
+            trim++;
+        }
+        int size = weights.length - 2 * trim;
+        double[][] kernel = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                kernel[i][j] = (double) weights[i + trim] * weights[j + trim];
+            }
+        }
+        return kernel;
+    }
+
+  /**
+   * This method keeps the pixels whose magnitude is a maximum across the edge
+   * and classifies them by the thresholds. Of two equal neighbours along the
+   * gradient only the first is kept, so edges stay one pixel thick.
+   */
+    private static void suppress(int[] magnitude, int[] orientation, int[] classes, int width, int height,
+                                 int low, int high, int first, int end) {
+        for (int y = first; y < end; y++) {
+            int idx = y * width;
+            for (int x = 0; x < width; x++, idx++) {
+                int value = magnitude[idx];
+                if (value < low || value == 0) {
+                    classes[idx] = NONE;
+                    continue;
+                }
+                // neighbours before and after the pixel along the gradient direction
+                int dx;
+                int dy;
+                switch (orientation[idx]) {
+                    case 0:
+                        dx = 1;
+                        dy = 0;
+                        break;
+                    case 1:
+                        dx = 1;
+                        dy = 1;
+                        break;
+                    case 2:
+                        dx = 0;
+                        dy = 1;
+                        break;
+                    default:
+                        dx = -1;
+                        dy = 1;
+                        break;
+                }
+                int before = sample(magnitude, width, height, x - dx, y - dy);
+                int after = sample(magnitude, width, height, x + dx, y + dy);
+                if (value > before && value >= after) {
+                    classes[idx] = value >= high ? STRONG : WEAK;
+                } else {
+                    classes[idx] = NONE;
+                }
+            }
+        }
+    }
+
+    private static int sample(int[] plane, int width, int height, int x, int y) {
+        return x < 0 || y < 0 || x >= width || y >= height ? 0 : plane[y * width + x];
+    }
+
+  /**
+   * This method keeps the edge candidates connected to a strong pixel. The
+   * candidates of each band are joined to their 8-connected neighbours above
+   * and to the left with a union-find in which each band only touches its own
+   * pixels. The bands are then joined along their seams, every candidate is
+   * pointed straight at its root, and roots holding a strong pixel are marked.
+   *
+   * @param classes     edge classes, the roots are marked STRONG in place
+   * @param parent      union-find parents, any contents
+   * @param edges       destination edge plane
+   * @param width       image width
+   * @param height      image height
+   */
+    private static void hysteresis(int[] classes, int[] parent, int[] edges, int width, int height) {
+        boolean[] bandStart = new boolean[height];
+        ParallelBands.forEach(0, height, 4L * width, (first, end) -> {
+            bandStart[first] = true;
+            for (int y = first; y < end; y++) {
+                int idx = y * width;
+                for (int x = 0; x < width; x++, idx++) {
+                    if (classes[idx] == NONE) {
+                        continue;
+                    }
+                    parent[idx] = idx;
+                    if (x > 0 && classes[idx - 1] != NONE) {
+                        union(parent, idx - 1, idx);
+                    }
+                    if (y > first) {
+                        joinAbove(classes, parent, width, x, idx);
+                    }
+                }
+            }
+        });
+
+        // the seams are few, they are joined on the calling thread
+        for (int y = 1; y < height; y++) {
+            if (!bandStart[y]) {
+                continue;
+            }
+            int idx = y * width;
+            for (int x = 0; x < width; x++, idx++) {
+                if (classes[idx] != NONE) {
+                    joinAbove(classes, parent, width, x, idx);
+                }
+            }
+        }
+
+        // a root only ever changes to its own root, so concurrent flattening reads stay valid
+        ParallelBands.forEach(0, height, 4L * width, (first, end) -> {
+            for (int idx = first * width; idx < end * width; idx++) {
+                if (classes[idx] == NONE) {
+                    continue;
+                }
+                int root = root(parent, idx);
+                parent[idx] = root;
+                if (classes[idx] == STRONG) {
+                    classes[root] = STRONG;
+                }
+            }
+        });
+        ParallelBands.forEach(0, height, 2L * width, (first, end) -> {
+            for (int idx = first * width; idx < end * width; idx++) {
+                edges[idx] = classes[idx] != NONE && classes[parent[idx]] == STRONG ? EDGE : 0;
+            }
+        });
+    }
+
+    private static void joinAbove(int[] classes, int[] parent, int width, int x, int idx) {
+        int above = idx - width;
+        for (int dx = -1; dx <= 1; dx++) {
+            if (x + dx >= 0 && x + dx < width && classes[above + dx] != NONE) {
+                union(parent, above + dx, idx);
+            }
+        }
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        // the smaller index becomes the root, which keeps the roots deterministic
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private static int find(int[] parent, int idx) {
+        // path halving
+        while (parent[idx] != idx) {
+            parent[idx] = parent[parent[idx]];
+            idx = parent[idx];
+        }
+        return idx;
+    }
+
+    private static int root(int[] parent, int idx) {
+        while (parent[idx] != idx) {
+            idx = parent[idx];
+        }
+        return idx;
+    }
+
+    private static void clearMargin(int[] edges, int width, int height, int margin) {
+        for (int y = 0; y < height; y++) {
+            int idx = y * width;
+            if (y < margin || y >= height - margin) {
+                Arrays.fill(edges, idx, idx + width, 0);
+            } else {
+                Arrays.fill(edges, idx, idx + Math.min(margin, width), 0);
+                Arrays.fill(edges, idx + Math.max(width - margin, 0), idx + width, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Description: Contrast limited adaptive histogram equalisation (CLAHE). The
+ * image is cut into a grid of tiles and each tile is equalised with its own
+ * histogram, clipped at a multiple of the mean bin count so that flat areas
+ * do not have their noise stretched; the counts cut off are spread over all
+ * the levels. A pixel takes the tables of the four tiles whose centres
+ * surround it, weighted by its distance to each centre, so no tile edges
+ * show. The tile tables are computed side by side and the interpolation runs
+ * in bands of rows on the parallel pool.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ParallelBands;
+import java.util.Arrays;
+
+public final class Clahe {
+    private static final int LEVELS = 256;
+    // interpolation weights are held with 8 fractional bits, so the blend of four levels fits an int
+    private static final int WEIGHT_BITS = 8;
+    private static final int ONE = 1 << WEIGHT_BITS;
+
+    private Clahe() {
+    }
+
+  /**
+   * This method equalises an image channel plane of levels 0 to 255
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param tilesX      number of tile columns, at most the image width
+   * @param tilesY      number of tile rows, at most the image height
+   * @param clipLimit   highest bin count as a multiple of the mean bin count of a tile,
+   *                    0 or less for no limit
+   * @return equalised plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] equalise(int[] input, int width, int height, int stride, int tilesX, int tilesY, double clipLimit) {
+        int columns = Math.max(1, Math.min(tilesX, width));
+        int rows = Math.max(1, Math.min(tilesY, height));
+        int[] tileLeft = tileStarts(width, columns);
+        int[] tileTop = tileStarts(height, rows);
+        int[] luts = new int[columns * rows * LEVELS];
+        long tileArea = (long) (width / columns + 1) * (height / rows + 1);
+        ParallelBands.forEach(0, columns * rows, tileArea, (first, end) -> {
+            int[] bins = new int[LEVELS];
+            for (int tile = first; tile < end; tile++) {
+                int tileX = tile % columns;
+                int tileY = tile / columns;
+                tableOfTile(input, stride, tileLeft[tileX], tileTop[tileY], tileLeft[tileX + 1], tileTop[tileY + 1],
+                            clipLimit, bins, luts, tile * LEVELS);
+            }
+        });
+
+        // the pair of tiles on either side of each column and row, and the weight of the second
+        int[] leftOffset = new int[width];
+        int[] rightOffset = new int[width];
+        int[] columnWeight = new int[width];
+        neighbours(tileLeft, width, LEVELS, leftOffset, rightOffset, columnWeight);
+        int[] topOffset = new int[height];
+        int[] bottomOffset = new int[height];
+        int[] rowWeight = new int[height];
+        neighbours(tileTop, height, columns * LEVELS, topOffset, bottomOffset, rowWeight);
+
+        int[] output = BufferPool.shared().lease(width * height);
+        ParallelBands.forEach(0, height, 4L * width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int top = topOffset[row];
+                int bottom = bottomOffset[row];
+                int weight = rowWeight[row];
+                int idx = row * stride;
+                int outIdx = row * width;
+                for (int col = 0; col < width; col++, idx++, outIdx++) {
+                    int level = input[idx];
+                    int left = leftOffset[col] + level;
+                    int right = rightOffset[col] + level;
+                    int across = columnWeight[col];
+                    int upper = (luts[top + left] << WEIGHT_BITS) + across * (luts[top + right] - luts[top + left]);
+                    int lower = (luts[bottom + left] << WEIGHT_BITS) + across * (luts[bottom + right] - luts[bottom + left]);
+                    output[outIdx] = ((upper << WEIGHT_BITS) + weight * (lower - upper) + (ONE * ONE >> 1)) >> (2 * WEIGHT_BITS);
+                }
+            }
+        });
+        return output;
+    }
+
+    private static int[] tileStarts(int length, int tiles) {
+        int[] starts = new int[tiles + 1];
+        for (int tile = 0; tile <= tiles; tile++) {
+            starts[tile] = (int) ((long) tile * length / tiles);
+        }
+        return starts;
+    }
+
+  /**
+   * This method writes the equalisation table of one tile, from its histogram
+   * clipped at the limit with the clipped counts spread over the levels
+   */
+    private static void tableOfTile(int[] input, int stride, int x0, int y0, int x1, int y1, double clipLimit,
+                                    int[] bins, int[] luts, int lutOffset) {
+        Arrays.fill(bins, 0);
+        for (int row = y0; row < y1; row++) {
+            int idx = row * stride + x0;
+            int rowEnd = row * stride + x1;
+            for (; idx < rowEnd; idx++) {
+                bins[input[idx]]++;
+            }
+        }
+        int area = (x1 - x0) * (y1 - y0);
+        if (clipLimit > 0) {
+            int limit = Math.max(1, (int) (clipLimit * area / LEVELS));
+            int excess = 0;
+            for (int level = 0; level < LEVELS; level++) {
+                if (bins[level] > limit) {
+                    excess += bins[level] - limit;
+                    bins[level] = limit;
+                }
+            }
+            int share = excess / LEVELS;
+            int remainder = excess - share * LEVELS;
+            for (int level = 0; level < LEVELS; level++) {
+                bins[level] += share;
+            }
+            // the remainder goes to levels evenly apart
+            int step = Math.max(1, LEVELS / Math.max(1, remainder));
+            for (int level = 0; level < LEVELS && remainder > 0; level += step, remainder--) {
+                bins[level]++;
+            }
+        }
+        float scale = (float) (LEVELS - 1) / area;
+        int sum = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            sum += bins[level];
+            luts[lutOffset + level] = Math.min(LEVELS - 1, Math.round(sum * scale));
+        }
+    }
+
+  /**
+   * This method finds, for each position along one axis, the tiles whose
+   * centres lie before and after it. Positions before the first centre or
+   * after the last take that tile alone.
+   */
+    private static void neighbours(int[] starts, int length, int tileOffset, int[] first, int[] second, int[] weight) {
+        int tiles = starts.length - 1;
+        int tile = 0;
+        for (int position = 0; position < length; position++) {
+            while (tile < tiles - 1 && position >= centre(starts, tile + 1)) {
+                tile++;
+            }
+            double from = centre(starts, tile);
+            if (position <= from || tile == tiles - 1) {
+                first[position] = tile * tileOffset;
+                second[position] = first[position];
+                weight[position] = 0;
+            } else {
+                first[position] = tile * tileOffset;
+                second[position] = (tile + 1) * tileOffset;
+                weight[position] = (int) Math.round(ONE * (position - from) / (centre(starts, tile + 1) - from));
+            }
+        }
+    }
+
+    private static double centre(int[] starts, int tile) {
+        return (starts[tile] + starts[tile + 1] - 1) / 2.0;
+    }
+}
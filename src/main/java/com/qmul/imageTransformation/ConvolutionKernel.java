@@ -0,0 +1,250 @@
+/*
+ * Description: Convolution kernel analysed for the fast convolution paths.
+ * A kernel of rank one is the outer product of a row vector and a column
+ * vector, kernel[i][j] = rowWeights[i] * columnWeights[j], and can be applied
+ * as a horizontal pass followed by a vertical pass, which costs
+ * kernelWidth + kernelHeight instead of kernelWidth * kernelHeight
+ * multiply-adds per pixel.
+ *
+ * Kernels whose weights are all integers are also kept as int weights, so
+ * they can be applied with integer arithmetic only. Integer kernels are
+ * factored into integer vectors, so both passes stay exact and give the same
+ * result as the 2D loop. Other kernels are taken as separable only when the
+ * factors rebuild them to within rounding, and can be quantised to fixed
+ * point weights.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+public final class ConvolutionKernel {
+    // largest difference to the rebuilt kernel, relative to its largest weight
+    private static final double RANK_ONE_TOLERANCE = 1e-12;
+    // keeps the long sums of 32-bit samples times integer weights from overflowing
+    private static final int MAX_INTEGER_WEIGHT = 1 << 20;
+
+    private final double[][] kernel;
+    private final double[] rowWeights;
+    private final double[] columnWeights;
+    private final int[][] integerKernel;
+
+  /**
+   * This constructor analyses a kernel, kernel[i][j] weights the pixel at (x + i, y + j)
+   *
+   * @param kernel      kernel weights, every column of the same length
+   */
+    public ConvolutionKernel(double[][] kernel) {
+        this.kernel = kernel;
+        double[][] factors = factorise(kernel);
+        this.rowWeights = factors != null ? factors[0] : null;
+        this.columnWeights = factors != null ? factors[1] : null;
+        this.integerKernel = toIntegers(kernel);
+    }
+
+    /**
+    * This method return the kernel weights
+    *
+    * @return double[][]
+    */
+    public double[][] getKernel() {
+        return kernel;
+    }
+
+    /**
+    * This method return the kernel width
+    *
+    * @return int
+    */
+    public int getWidth() {
+        return kernel.length;
+    }
+
+    /**
+    * This method return the kernel height
+    *
+    * @return int
+    */
+    public int getHeight() {
+        return kernel[0].length;
+    }
+
+    /**
+    * This method return whether the kernel can be applied as a row and a column pass
+    *
+    * @return boolean
+    */
+    public boolean isSeparable() {
+        return rowWeights != null;
+    }
+
+    /**
+    * This method return the horizontal factor, indexed like the first kernel index
+    *
+    * @return double[], null if the kernel is not separable
+    */
+    public double[] getRowWeights() {
+        return rowWeights;
+    }
+
+    /**
+    * This method return the vertical factor, indexed like the second kernel index
+    *
+    * @return double[], null if the kernel is not separable
+    */
+    public double[] getColumnWeights() {
+        return columnWeights;
+    }
+
+    /**
+    * This method return whether every weight is an integer
+    *
+    * @return boolean
+    */
+    public boolean isIntegral() {
+        return integerKernel != null;
+    }
+
+    /**
+    * This method return the weights as integers
+    *
+    * @return int[][], null if the kernel has fractional weights
+    */
+    public int[][] getIntegerKernel() {
+        return integerKernel;
+    }
+
+  /**
+   * This method quantises the kernel divided by the divisor to fixed point
+   * weights with the given number of fraction bits
+   *
+   * @param kernelDivisor   kernel divisor
+   * @param fractionBits    number of fraction bits, between 1 and 30
+   * @return fixed point weights, null if a weight does not fit an int
+   */
+    public int[][] quantise(double kernelDivisor, int fractionBits) {
+        if (fractionBits < 1 || fractionBits > 30) {
+            throw new IllegalArgumentException("fraction bits must be between 1 and 30: " + fractionBits);
+        }
+        double scale = Math.scalb(1.0, fractionBits) / kernelDivisor;
+        int[][] weights = new int[kernel.length][kernel[0].length];
+        double total = 0.0;
+        long quantisedTotal = 0;
+        int pivotI = 0;
+        int pivotJ = 0;
+        for (int i = 0; i < kernel.length; i++) {
+            for (int j = 0; j < kernel[0].length; j++) {
+                double weight = Math.rint(kernel[i][j] * scale);
+                if (!(Math.abs(weight) <= Integer.MAX_VALUE)) {
+                    return null;
+                }
+                weights[i][j] = (int) weight;
+                total += kernel[i][j];
+                quantisedTotal += weights[i][j];
+                if (Math.abs(weight) > Math.abs(weights[pivotI][pivotJ])) {
+                    pivotI = i;
+                    pivotJ = j;
+                }
+            }
+        }
+        // the rounding error goes to the largest weight, so flat areas keep their exact value
+        long correction = (long) Math.rint(total * scale) - quantisedTotal;
+        long pivot = weights[pivotI][pivotJ] + correction;
+        if (Math.abs(pivot) > Integer.MAX_VALUE) {
+            return null;
+        }
+        weights[pivotI][pivotJ] = (int) pivot;
+        return weights;
+    }
+
+  /**
+   * This method splits a kernel of rank one into its row and column factors
+   *
+   * @param kernel      kernel weights
+   * @return row and column factors, null if the kernel has a higher rank
+   */
+    private static double[][] factorise(double[][] kernel) {
+        int width = kernel.length;
+        int height = kernel[0].length;
+        boolean integral = true;
+        int pivotI = 0;
+        int pivotJ = 0;
+        for (int i = 0; i < width; i++) {
+            if (kernel[i].length != height) {
+                return null;
+            }
+            for (int j = 0; j < height; j++) {
+                double weight = kernel[i][j];
+                if (!Double.isFinite(weight)) {
+                    return null;
+                }
+                integral &= weight == Math.rint(weight) && Math.abs(weight) <= Integer.MAX_VALUE;
+                if (Math.abs(weight) > Math.abs(kernel[pivotI][pivotJ])) {
+                    pivotI = i;
+                    pivotJ = j;
+                }
+            }
+        }
+        double pivot = kernel[pivotI][pivotJ];
+        if (pivot == 0.0) {
+            return null;
+        }
+
+        // the column through the largest weight gives the row factor
+        double[] rowWeights = new double[width];
+        long divisor = 0;
+        for (int i = 0; i < width; i++) {
+            rowWeights[i] = kernel[i][pivotJ];
+            if (integral) {
+                divisor = gcd(divisor, (long) Math.abs(rowWeights[i]));
+            }
+        }
+        if (integral) {
+            // a primitive integer row factor makes the column factor integral as well
+            for (int i = 0; i < width; i++) {
+                rowWeights[i] /= divisor;
+            }
+        }
+        double[] columnWeights = new double[height];
+        for (int j = 0; j < height; j++) {
+            columnWeights[j] = kernel[pivotI][j] / rowWeights[pivotI];
+            if (integral && columnWeights[j] != Math.rint(columnWeights[j])) {
+                return null;
+            }
+        }
+
+        double tolerance = integral ? 0.0 : RANK_ONE_TOLERANCE * Math.abs(pivot);
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                if (Math.abs(rowWeights[i] * columnWeights[j] - kernel[i][j]) > tolerance) {
+                    return null;
+                }
+            }
+        }
+        return new double[][] {rowWeights, columnWeights};
+    }
+
+    private static int[][] toIntegers(double[][] kernel) {
+        int[][] weights = new int[kernel.length][kernel[0].length];
+        for (int i = 0; i < kernel.length; i++) {
+            if (kernel[i].length != weights[i].length) {
+                return null;
+            }
+            for (int j = 0; j < kernel[i].length; j++) {
+                double weight = kernel[i][j];
+                if (weight != Math.rint(weight) || Math.abs(weight) > MAX_INTEGER_WEIGHT) {
+                    return null;
+                }
+                weights[i][j] = (int) weight;
+            }
+        }
+        return weights;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+}
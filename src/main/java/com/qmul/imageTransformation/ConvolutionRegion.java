@@ -0,0 +1,113 @@
+/*
+ * Description: Source and destination of one convolution call. The output
+ * pixel at image coordinates (x, y) is computed from the source samples
+ * starting at (x - left, y - top), which inputIndex locates. A region may
+ * hold several channel planes with the same layout, the engines then compute
+ * all of them in one sweep and share the addressing and kernel weights.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+final class ConvolutionRegion {
+    final int[][] inputs;
+    final int[][] outputs;
+    final int[] input;
+    final int originX;
+    final int originY;
+    final int stride;
+    final int[] output;
+    final int outputX;
+    final int outputY;
+    final int outputStride;
+    final int x0;
+    final int y0;
+    final int x1;
+    final int y1;
+
+  /**
+   * This constructor describes the pixels (x0..x1, y0..y1) to compute
+   *
+   * @param inputs          source region planes, row-major
+   * @param originX         image column whose output reads from the first source sample
+   * @param originY         image row whose output reads from the first source sample
+   * @param stride          distance between two rows of the source region
+   * @param outputs         destination region planes, row-major, one per source plane
+   * @param outputX         image column of the first destination sample
+   * @param outputY         image row of the first destination sample
+   * @param outputStride    distance between two rows of the destination region
+   * @param x0              first column to compute
+   * @param y0              first row to compute
+   * @param x1              last column to compute
+   * @param y1              last row to compute
+   */
+    ConvolutionRegion(int[][] inputs, int originX, int originY, int stride, int[][] outputs, int outputX, int outputY, int outputStride,
+                      int x0, int y0, int x1, int y1) {
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.input = inputs[0];
+        this.originX = originX;
+        this.originY = originY;
+        this.stride = stride;
+        this.output = outputs[0];
+        this.outputX = outputX;
+        this.outputY = outputY;
+        this.outputStride = outputStride;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+    }
+
+  /**
+   * This method return the same region restricted to some of its rows
+   *
+   * @param first       first row to compute
+   * @param last        last row to compute
+   * @return ConvolutionRegion
+   */
+    ConvolutionRegion rows(int first, int last) {
+        return new ConvolutionRegion(inputs, originX, originY, stride, outputs, outputX, outputY, outputStride, x0, first, x1, last);
+    }
+
+  /**
+   * This method return the same region restricted to one of its planes
+   *
+   * @param plane       plane index
+   * @return ConvolutionRegion
+   */
+    ConvolutionRegion plane(int plane) {
+        return new ConvolutionRegion(new int[][] {inputs[plane]}, originX, originY, stride, new int[][] {outputs[plane]},
+                                     outputX, outputY, outputStride, x0, y0, x1, y1);
+    }
+
+    /**
+    * This method return the number of planes
+    *
+    * @return int
+    */
+    int getNumPlanes() {
+        return inputs.length;
+    }
+
+  /**
+   * This method return the index of the first source sample of an output pixel
+   *
+   * @param x           image column
+   * @param y           image row
+   * @return int
+   */
+    int inputIndex(int x, int y) {
+        return (y - originY) * stride + x - originX;
+    }
+
+  /**
+   * This method return the index of an output pixel
+   *
+   * @param x           image column
+   * @param y           image row
+   * @return int
+   */
+    int outputIndex(int x, int y) {
+        return (y - outputY) * outputStride + x - outputX;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Description: Iterative radix-2 fast Fourier transform of complex samples
+ * held in separate real and imaginary arrays, in one and two dimensions.
+ * The twiddle factors and the bit reversal permutation are computed once
+ * per transform size. Real signals can be transformed two at a time by
+ * putting the second one in the imaginary part.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+public final class FFT {
+    private final int size;
+    private final int[] reversed;
+    private final double[] cos;
+    private final double[] sin;
+
+  /**
+   * This constructor prepares the transform of one size
+   *
+   * @param size        number of samples, a power of two
+   */
+    public FFT(int size) {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("transform size must be a power of two: " + size);
+        }
+        this.size = size;
+        this.reversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(2 * Math.PI * i / size);
+            sin[i] = Math.sin(2 * Math.PI * i / size);
+        }
+    }
+
+    /**
+    * This method return the transform size
+    *
+    * @return int
+    */
+    public int getSize() {
+        return size;
+    }
+
+  /**
+   * This method transforms size samples in place. The inverse transform is scaled by 1 / size.
+   *
+   * @param re          real parts
+   * @param im          imaginary parts
+   * @param inverse     true for the inverse transform
+   */
+    public void transform(double[] re, double[] im, boolean inverse) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        // forward uses exp(-2 pi i k / n), inverse exp(+2 pi i k / n)
+        double sign = inverse ? 1.0 : -1.0;
+        for (int half = 1; half < size; half <<= 1) {
+            int step = size / (2 * half);
+            for (int start = 0; start < size; start += 2 * half) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sign * sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+        if (inverse) {
+            double scale = 1.0 / size;
+            for (int i = 0; i < size; i++) {
+                re[i] *= scale;
+                im[i] *= scale;
+            }
+        }
+    }
+
+  /**
+   * This method transforms a size x size block in place, rows first and then columns
+   *
+   * @param re          real parts, row-major
+   * @param im          imaginary parts, row-major
+   * @param inverse     true for the inverse transform
+   */
+    public void transform2D(double[] re, double[] im, boolean inverse) {
+        double[] rowRe = new double[size];
+        double[] rowIm = new double[size];
+        for (int row = 0; row < size; row++) {
+            System.arraycopy(re, row * size, rowRe, 0, size);
+            System.arraycopy(im, row * size, rowIm, 0, size);
+            transform(rowRe, rowIm, inverse);
+            System.arraycopy(rowRe, 0, re, row * size, size);
+            System.arraycopy(rowIm, 0, im, row * size, size);
+        }
+        for (int col = 0; col < size; col++) {
+            for (int row = 0, idx = col; row < size; row++, idx += size) {
+                rowRe[row] = re[idx];
+                rowIm[row] = im[idx];
+            }
+            transform(rowRe, rowIm, inverse);
+            for (int row = 0, idx = col; row < size; row++, idx += size) {
+                re[idx] = rowRe[row];
+                im[idx] = rowIm[row];
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Description: Convolution through the frequency domain for large kernels.
+ * The output is cut into blocks, each block is transformed together with
+ * the source samples its kernel window reaches, multiplied by the kernel
+ * spectrum and transformed back (overlap-save), so no transform is larger
+ * than a few kernel sizes whatever the image size. Two blocks share one
+ * complex transform, one as the real and one as the imaginary part.
+ *
+ * The kernel is applied as integer weights. The sums come back from the
+ * inverse transform within rounding of an integer, so rounding them gives
+ * the exact sums of the spatial engines. Kernel spectra are cached by
+ * weights and transform size, so channels and images reuse them.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.ParallelBands;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class FftConvolution {
+    private static final int MIN_SIZE = 32;
+    private static final int MAX_SIZE = 512;
+    private static final int CACHED_SPECTRA = 16;
+    // allowed error of a sum before rounding, well below half an integer
+    private static final double MAX_ERROR = 0.125;
+
+    private static final FFT[] TRANSFORMS = new FFT[31];
+    private static final Map<SpectrumKey, double[][]> SPECTRA = new LinkedHashMap<SpectrumKey, double[][]>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SpectrumKey, double[][]> eldest) {
+            return size() > CACHED_SPECTRA;
+        }
+    };
+
+    private FftConvolution() {
+    }
+
+  /**
+   * This method apply integer weights to a region through the frequency domain
+   *
+   * @param region      pixels to compute
+   * @param weights     integer kernel weights
+   * @param divisor     kernel divisor
+   * @return false if the samples are too large for exact rounding, nothing is written then
+   */
+    static boolean convolve(ConvolutionRegion region, int[][] weights, IntegerDivisor divisor) {
+        int kernelWidth = weights.length;
+        int kernelHeight = weights[0].length;
+        int columns = region.x1 - region.x0 + 1;
+        int rows = region.y1 - region.y0 + 1;
+        int size = transformSize(kernelWidth, kernelHeight, columns, rows);
+        if (!isExact(region, weights, size)) {
+            return false;
+        }
+
+        int blockWidth = size - kernelWidth + 1;
+        int blockHeight = size - kernelHeight + 1;
+        int blocksAcross = (columns + blockWidth - 1) / blockWidth;
+        int blocks = blocksAcross * ((rows + blockHeight - 1) / blockHeight);
+        double[][] spectrum = spectrum(weights, size);
+        FFT fft = transform(size);
+        // block pairs are independent, each band of pairs works in its own buffers
+        long workPerPair = 4L * size * size * Integer.numberOfTrailingZeros(size);
+        ParallelBands.forEach(0, (blocks + 1) / 2, workPerPair, (firstPair, endPair) -> {
+            double[] re = new double[size * size];
+            double[] im = new double[size * size];
+            for (int block = 2 * firstPair; block < 2 * endPair && block < blocks; block += 2) {
+                int x = region.x0 + (block % blocksAcross) * blockWidth;
+                int y = region.y0 + (block / blocksAcross) * blockHeight;
+                load(region, x, y, blockWidth, blockHeight, kernelWidth, kernelHeight, re, size);
+                int nextX = region.x0 + ((block + 1) % blocksAcross) * blockWidth;
+                int nextY = region.y0 + ((block + 1) / blocksAcross) * blockHeight;
+                if (block + 1 < blocks) {
+                    load(region, nextX, nextY, blockWidth, blockHeight, kernelWidth, kernelHeight, im, size);
+                } else {
+                    Arrays.fill(im, 0.0);
+                }
+
+                fft.transform2D(re, im, false);
+                double[] kernelRe = spectrum[0];
+                double[] kernelIm = spectrum[1];
+                for (int i = 0; i < re.length; i++) {
+                    double r = re[i] * kernelRe[i] - im[i] * kernelIm[i];
+                    im[i] = re[i] * kernelIm[i] + im[i] * kernelRe[i];
+                    re[i] = r;
+                }
+                fft.transform2D(re, im, true);
+
+                store(region, x, y, blockWidth, blockHeight, re, size, divisor);
+                if (block + 1 < blocks) {
+                    store(region, nextX, nextY, blockWidth, blockHeight, im, size, divisor);
+                }
+            }
+        });
+        return true;
+    }
+
+  /**
+   * This method return the transform size for a kernel, large enough that most of
+   * each block is output and no larger than the region needs
+   *
+   * @param kernelWidth     kernel width
+   * @param kernelHeight    kernel height
+   * @param columns         region width
+   * @param rows            region height
+   * @return power of two
+   */
+    private static int transformSize(int kernelWidth, int kernelHeight, int columns, int rows) {
+        int kernelSize = Math.max(kernelWidth, kernelHeight);
+        int size = Math.max(MIN_SIZE, Math.min(MAX_SIZE, powerOfTwo(4L * kernelSize)));
+        size = Math.max(size, powerOfTwo(2L * kernelSize));
+        int needed = powerOfTwo(Math.max((long) columns + kernelWidth - 1, (long) rows + kernelHeight - 1));
+        return Math.min(size, needed);
+    }
+
+    private static int powerOfTwo(long atLeast) {
+        if (atLeast > 1 << 30) {
+            throw new IllegalArgumentException("transform too large: " + atLeast);
+        }
+        return atLeast <= 1 ? 1 : Integer.highestOneBit((int) atLeast - 1) << 1;
+    }
+
+  /**
+   * This method checks that rounding errors of the transforms stay far below
+   * half an integer for the samples of the region
+   *
+   * @param region      pixels to compute
+   * @param weights     integer kernel weights
+   * @param size        transform size
+   * @return boolean
+   */
+    private static boolean isExact(ConvolutionRegion region, int[][] weights, int size) {
+        double weightNorm = 0.0;
+        for (int[] column : weights) {
+            for (int weight : column) {
+                weightNorm += (double) weight * weight;
+            }
+        }
+        long maxSample = 0;
+        int columns = region.x1 - region.x0 + weights.length;
+        for (int y = region.y0; y <= region.y1 + weights[0].length - 1; y++) {
+            int inIdx = region.inputIndex(region.x0, y);
+            for (int c = 0; c < columns; c++) {
+                maxSample = Math.max(maxSample, Math.abs((long) region.input[inIdx + c]));
+            }
+        }
+        // error of a transform convolution grows with the norms of both inputs and log(size)
+        double bound = Math.ulp(1.0) * 4 * Math.log(size) * size * maxSample * Math.sqrt(weightNorm);
+        return bound <= MAX_ERROR;
+    }
+
+    private static void load(ConvolutionRegion region, int x, int y, int blockWidth, int blockHeight,
+                             int kernelWidth, int kernelHeight, double[] block, int size) {
+        Arrays.fill(block, 0.0);
+        int columns = Math.min(blockWidth, region.x1 - x + 1) + kernelWidth - 1;
+        int rows = Math.min(blockHeight, region.y1 - y + 1) + kernelHeight - 1;
+        for (int v = 0; v < rows; v++) {
+            int inIdx = region.inputIndex(x, y + v);
+            for (int u = 0; u < columns; u++) {
+                block[v * size + u] = region.input[inIdx + u];
+            }
+        }
+    }
+
+    private static void store(ConvolutionRegion region, int x, int y, int blockWidth, int blockHeight,
+                              double[] block, int size, IntegerDivisor divisor) {
+        int columns = Math.min(blockWidth, region.x1 - x + 1);
+        int rows = Math.min(blockHeight, region.y1 - y + 1);
+        for (int v = 0; v < rows; v++) {
+            int outIdx = region.outputIndex(x, y + v);
+            for (int u = 0; u < columns; u++) {
+                region.output[outIdx + u] = divisor.divide(Math.round(block[v * size + u]));
+            }
+        }
+    }
+
+  /**
+   * This method return the spectrum of the mirrored kernel, so the product with a block
+   * spectrum correlates the block with the kernel like the spatial engines
+   *
+   * @param weights     integer kernel weights
+   * @param size        transform size
+   * @return real and imaginary parts
+   */
+    private static double[][] spectrum(int[][] weights, int size) {
+        SpectrumKey key = new SpectrumKey(weights, size);
+        synchronized (SPECTRA) {
+            double[][] spectrum = SPECTRA.get(key);
+            if (spectrum != null) {
+                return spectrum;
+            }
+        }
+        double[] re = new double[size * size];
+        double[] im = new double[size * size];
+        for (int i = 0; i < weights.length; i++) {
+            for (int j = 0; j < weights[0].length; j++) {
+                re[((size - j) % size) * size + (size - i) % size] = weights[i][j];
+            }
+        }
+        transform(size).transform2D(re, im, false);
+        double[][] spectrum = {re, im};
+        synchronized (SPECTRA) {
+            SPECTRA.put(key, spectrum);
+        }
+        return spectrum;
+    }
+
+    private static FFT transform(int size) {
+        int bits = Integer.numberOfTrailingZeros(size);
+        synchronized (TRANSFORMS) {
+            if (TRANSFORMS[bits] == null) {
+                TRANSFORMS[bits] = new FFT(size);
+            }
+            return TRANSFORMS[bits];
+        }
+    }
+
+    private static final class SpectrumKey {
+        private final int[][] weights;
+        private final int size;
+
+        private SpectrumKey(int[][] weights, int size) {
+            this.weights = weights;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SpectrumKey)) {
+                return false;
+            }
+            SpectrumKey key = (SpectrumKey) other;
+            return size == key.size && Arrays.deepEquals(weights, key.weights);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.deepHashCode(weights) + size;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Description: Gradient of an image channel in one pass. The horizontal and
+ * vertical derivative kernels of an operator such as Sobel share the same
+ * 3x3 neighbourhood: every source column is smoothed and differenced
+ * vertically once, and both derivatives of a pixel are combined from the
+ * three columns around it, so each sample is loaded once per pixel instead
+ * of once per kernel. The magnitude is written as the L1 norm, the L2 norm
+ * or a fast approximation of the L2 norm, and the orientation optionally
+ * as one of a number of sectors.
+ *
+ * Samples are expected in the range of image levels; the derivatives are
+ * computed in int.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.Rectangle;
+
+public final class Gradient {
+
+    /*
+     * Derivative operators, given by the weights across the derivative
+     * direction: side, centre, side.
+     */
+    public enum Operator {
+        PREWITT(1, 1),
+        SOBEL(1, 2),
+        SCHARR(3, 10);
+
+        private final int side;
+        private final int centre;
+
+        Operator(int side, int centre) {
+            this.side = side;
+            this.centre = centre;
+        }
+
+        /**
+        * This method return the derivative the operator gives for a ramp rising by one level per pixel
+        *
+        * @return int
+        */
+        public int getGain() {
+            return 2 * (2 * side + centre);
+        }
+    }
+
+    /*
+     * How the two derivatives are combined into the magnitude. APPROXIMATE is
+     * the alpha max plus beta min estimate of L2 with alpha 15/16 and beta
+     * 15/32, within about 6% of L2 without a square root.
+     */
+    public enum Norm {
+        L1,
+        L2,
+        APPROXIMATE
+    }
+
+    private Gradient() {
+    }
+
+  /**
+   * This method computes the gradient magnitude of an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param operator    derivative operator
+   * @param norm        magnitude norm
+   * @param border      treatment of pixels whose neighbourhood reaches past the image
+   * @return magnitude plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] magnitude(int[] input, int width, int height, int stride, Operator operator, Norm norm, BorderMode border) {
+        int[] magnitude = BufferPool.shared().lease(width * height);
+        gradient(input, 0, 0, stride, width, height, operator, norm, border, magnitude, null, 0, width, new Rectangle(0, 0, width, height));
+        return magnitude;
+    }
+
+  /**
+   * This method computes the gradient magnitude and orientation of an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param operator    derivative operator
+   * @param norm        magnitude norm
+   * @param border      treatment of pixels whose neighbourhood reaches past the image
+   * @param magnitude   destination magnitude plane, row-major with a stride of width
+   * @param orientation destination orientation plane with a stride of width, null for none
+   * @param sectors     number of orientation sectors, see the region overload
+   */
+    public static void gradient(int[] input, int width, int height, int stride, Operator operator, Norm norm, BorderMode border,
+                                int[] magnitude, int[] orientation, int sectors) {
+        gradient(input, 0, 0, stride, width, height, operator, norm, border, magnitude, orientation, sectors, width,
+                 new Rectangle(0, 0, width, height));
+    }
+
+  /**
+   * This method computes the gradient of one region of an image, for example a tile.
+   * The orientation is the direction of the gradient, with x to the right and y
+   * downwards, folded to 0 to 180 degrees and quantised to sectors centred on
+   * k * 180 / sectors degrees: with four sectors, 0 is a horizontal gradient
+   * (a vertical edge), 1 points down and right, 2 is vertical and 3 points down
+   * and left. A zero gradient is in sector 0. With the border mode NONE, pixels
+   * whose neighbourhood reaches past the image become zero.
+   *
+   * @param input       source region, row-major
+   * @param sourceX     image column of the first source sample
+   * @param sourceY     image row of the first source sample
+   * @param stride      distance between two rows of the source region
+   * @param width       image width
+   * @param height      image height
+   * @param operator    derivative operator
+   * @param norm        magnitude norm
+   * @param border      treatment of pixels whose neighbourhood reaches past the image
+   * @param magnitude   destination magnitude region, row-major
+   * @param orientation destination orientation region, same layout, null for none
+   * @param sectors     number of orientation sectors over 180 degrees
+   * @param outputStride  distance between two rows of the destination regions
+   * @param area        destination region in image coordinates, the source region
+   *                    must cover it grown by one pixel, clipped to the image,
+   *                    and for WRAP the whole image
+   */
+    public static void gradient(int[] input, int sourceX, int sourceY, int stride, int width, int height,
+                                Operator operator, Norm norm, BorderMode border,
+                                int[] magnitude, int[] orientation, int sectors, int outputStride, Rectangle area) {
+        if (orientation != null && sectors < 1) {
+            throw new IllegalArgumentException("orientation sectors out of range: " + sectors);
+        }
+        Sectors quantiser = orientation != null ? new Sectors(sectors) : null;
+
+        if (border != BorderMode.NONE) {
+            // differentiate a copy extended one pixel past the image edges
+            Rectangle padded = new Rectangle(area.x - 1, area.y - 1, area.width + 2, area.height + 2);
+            int[] paddedInput = border.pad(input, sourceX, sourceY, stride, width, height, padded);
+            ParallelBands.forEach(area.y, area.y + area.height, 8L * area.width,
+                    (first, end) -> gradientRows(paddedInput, padded.x, padded.y, padded.width, operator, norm, quantiser,
+                                                 magnitude, orientation, outputStride, area, area.x, area.x + area.width - 1, first, end - 1));
+            BufferPool.shared().release(paddedInput);
+            return;
+        }
+
+        int x0 = Math.max(area.x, 1);
+        int y0 = Math.max(area.y, 1);
+        int x1 = Math.min(area.x + area.width - 1, width - 2);
+        int y1 = Math.min(area.y + area.height - 1, height - 2);
+        Transformation.clearOutside(magnitude, outputStride, area, x0, y0, x1, y1);
+        if (orientation != null) {
+            Transformation.clearOutside(orientation, outputStride, area, x0, y0, x1, y1);
+        }
+        if (x0 > x1 || y0 > y1) {
+            return;
+        }
+        ParallelBands.forEach(y0, y1 + 1, 8L * (x1 - x0 + 1),
+                (first, end) -> gradientRows(input, sourceX, sourceY, stride, operator, norm, quantiser,
+                                             magnitude, orientation, outputStride, area, x0, x1, first, end - 1));
+    }
+
+    private static void gradientRows(int[] input, int sourceX, int sourceY, int stride, Operator operator, Norm norm, Sectors quantiser,
+                                     int[] magnitude, int[] orientation, int outputStride, Rectangle area, int x0, int x1, int y0, int y1) {
+        int side = operator.side;
+        int centre = operator.centre;
+        for (int y = y0; y <= y1; y++) {
+            int mid = (y - sourceY) * stride - sourceX;
+            int above = mid - stride;
+            int below = mid + stride;
+            // smoothed sum and difference down the columns x - 1 and x
+            int x = x0 - 1;
+            int leftSum = side * input[above + x] + centre * input[mid + x] + side * input[below + x];
+            int leftDiff = input[below + x] - input[above + x];
+            x = x0;
+            int sum = side * input[above + x] + centre * input[mid + x] + side * input[below + x];
+            int diff = input[below + x] - input[above + x];
+
+            int outIdx = (y - area.y) * outputStride + x0 - area.x;
+            for (x = x0; x <= x1; x++, outIdx++) {
+                int top = input[above + x + 1];
+                int bottom = input[below + x + 1];
+                int rightSum = side * (top + bottom) + centre * input[mid + x + 1];
+                int rightDiff = bottom - top;
+
+                int gx = rightSum - leftSum;
+                int gy = side * (leftDiff + rightDiff) + centre * diff;
+                magnitude[outIdx] = magnitude(gx, gy, norm);
+                if (quantiser != null) {
+                    orientation[outIdx] = quantiser.sector(gx, gy);
+                }
+
+                leftSum = sum;
+                leftDiff = diff;
+                sum = rightSum;
+                diff = rightDiff;
+            }
+        }
+    }
+
+    private static int magnitude(int gx, int gy, Norm norm) {
+        int ax = Math.abs(gx);
+        int ay = Math.abs(gy);
+        switch (norm) {
+            case L1:
+                return ax + ay;
+            case L2:
+                return (int) (Math.sqrt((double) gx * gx + (double) gy * gy) + 0.5);
+            default:
+                int max = Math.max(ax, ay);
+                int min = Math.min(ax, ay);
+                return (int) ((15L * (2L * max + min)) >> 5);
+        }
+    }
+
+    /*
+     * Quantises gradient directions to sectors by comparing them with the
+     * sector boundaries, without computing the angle.
+     */
+    private static final class Sectors {
+        private final double[] cos;
+        private final double[] sin;
+
+        private Sectors(int sectors) {
+            // boundary k lies half a sector past the centre of sector k
+            cos = new double[sectors];
+            sin = new double[sectors];
+            for (int k = 0; k < sectors; k++) {
+                double boundary = (k + 0.5) * Math.PI / sectors;
+                cos[k] = Math.cos(boundary);
+                sin[k] = Math.sin(boundary);
+            }
+        }
+
+        private int sector(int gx, int gy) {
+            // fold the direction to the lower half plane, 0 to 180 degrees
+            if (gy < 0 || (gy == 0 && gx < 0)) {
+                gx = -gx;
+                gy = -gy;
+            }
+            // the direction is past a boundary when the cross product with it is positive,
+            // all boundaries are tested so the count does not branch on the image content
+            int sector = 0;
+            for (int k = 0; k < cos.length; k++) {
+                sector += gy * cos[k] - gx * sin[k] > 0 ? 1 : 0;
+            }
+            return sector == cos.length ? 0 : sector;
+        }
+    }
+}
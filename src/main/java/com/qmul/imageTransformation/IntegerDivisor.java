@@ -0,0 +1,66 @@
+/*
+ * Description: Division by a fixed integer as a multiplication and a shift.
+ * For a divisor d with 2^(l-1) < d <= 2^l, the reciprocal
+ * m = floor(2^(31+l) / d) + 1 gives floor(n / d) = (n * m) >> (31 + l) for
+ * every 0 <= n < 2^31, and m * n still fits in a long. Signed dividends are
+ * divided by magnitude, so quotients are truncated towards zero like the
+ * (int) cast of a double division.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+final class IntegerDivisor {
+    private final long divisor;
+    private final boolean negative;
+    private final long multiplier;
+    private final int shift;
+
+  /**
+   * This constructor precomputes the reciprocal of a divisor
+   *
+   * @param divisor     divisor, not zero and at most Integer.MAX_VALUE in magnitude
+   */
+    IntegerDivisor(long divisor) {
+        if (divisor == 0 || Math.abs(divisor) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("divisor must be a non-zero int: " + divisor);
+        }
+        this.divisor = Math.abs(divisor);
+        this.negative = divisor < 0;
+        int l = 64 - Long.numberOfLeadingZeros(this.divisor - 1);
+        if ((this.divisor & (this.divisor - 1)) == 0) {
+            // powers of two only need the shift
+            this.multiplier = 1;
+            this.shift = l;
+        } else {
+            this.multiplier = (1L << (31 + l)) / this.divisor + 1;
+            this.shift = 31 + l;
+        }
+    }
+
+  /**
+   * This method divides and truncates towards zero, quotients beyond the int range saturate
+   *
+   * @param dividend    dividend
+   * @return int
+   */
+    int divide(long dividend) {
+        long magnitude = Math.abs(dividend);
+        long quotient;
+        if (magnitude <= Integer.MAX_VALUE) {
+            quotient = (magnitude * multiplier) >>> shift;
+        } else {
+            quotient = Math.min(magnitude / divisor, Integer.MAX_VALUE);
+        }
+        return (int) ((dividend < 0) != negative ? -quotient : quotient);
+    }
+
+  /**
+   * This method return whether a double divisor can be used as an integer divisor
+   *
+   * @param divisor     divisor
+   * @return boolean
+   */
+    static boolean isIntegral(double divisor) {
+        return divisor != 0.0 && divisor == Math.rint(divisor) && Math.abs(divisor) <= Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Description: Percentile of a square window of any radius, which covers the
+ * median, minimum and maximum filters, in constant time per pixel
+ * (Perreault and Hebert). A histogram of every source column over the window
+ * rows is kept and moved down one row at a time with one removal and one
+ * addition. The window histogram slides along a row by adding the column
+ * histogram entering the window and subtracting the one leaving it. The
+ * histograms are kept at two resolutions: the coarse one of 16 level groups
+ * slides at every pixel and locates the group of the percentile, and the
+ * 16 levels of a group are only brought up to date when the percentile falls
+ * in it, which in most images is the group of the previous pixel.
+ *
+ * The median, minimum and maximum of 3x3 and 5x5 windows are handed to
+ * SmallWindowFilter, which is faster for them, and the minimum and maximum
+ * of larger windows to RunningExtremum.
+ *
+ * Samples must be image levels from 0 to 255.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.morphology.RunningExtremum;
+import com.qmul.morphology.StructuringElement;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+public final class RankFilter {
+    private static final int LEVELS = 256;
+    private static final int GROUP_BITS = 4;
+    private static final int GROUPS = LEVELS >> GROUP_BITS;
+
+    private RankFilter() {
+    }
+
+  /**
+   * This method return the position in the sorted window of a percentile
+   *
+   * @param percentile  0 for the minimum, 50 for the median and 100 for the maximum
+   * @param windowSize  number of window pixels
+   * @return index from 0 to windowSize - 1
+   */
+    public static int rankOf(double percentile, int windowSize) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+        }
+        return (int) Math.round(percentile / 100 * (windowSize - 1));
+    }
+
+  /**
+   * This method apply a percentile filter to an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param radius      window radius, the window is 2 * radius + 1 pixels wide and high
+   * @param percentile  0 for the minimum, 50 for the median and 100 for the maximum
+   * @param border      treatment of windows reaching past the image
+   * @return filtered plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] percentile(int[] input, int width, int height, int stride, int radius, double percentile, BorderMode border) {
+        int[] output = BufferPool.shared().lease(width * height);
+        percentile(input, 0, 0, stride, width, height, radius, percentile, border, output, width, new Rectangle(0, 0, width, height));
+        return output;
+    }
+
+  /**
+   * This method apply a percentile filter to one region of an image, for example a tile.
+   * With the border mode NONE, pixels whose window reaches past the image become zero.
+   *
+   * @param input       source region, row-major
+   * @param sourceX     image column of the first source sample
+   * @param sourceY     image row of the first source sample
+   * @param stride      distance between two rows of the source region
+   * @param width       image width
+   * @param height      image height
+   * @param radius      window radius, the window is 2 * radius + 1 pixels wide and high
+   * @param percentile  0 for the minimum, 50 for the median and 100 for the maximum
+   * @param border      treatment of windows reaching past the image
+   * @param output      destination region, row-major
+   * @param outputStride  distance between two rows of the destination region
+   * @param area        destination region in image coordinates, the source region
+   *                    must cover it grown by the radius, clipped to the image,
+   *                    and for WRAP the whole image
+   */
+    public static void percentile(int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius, double percentile,
+                                  BorderMode border, int[] output, int outputStride, Rectangle area) {
+        long size = 2L * radius + 1;
+        if (radius < 0 || size * size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("window radius out of range: " + radius);
+        }
+        int windowSize = (int) (size * size);
+        int rank = rankOf(percentile, windowSize);
+
+        // the extremes of larger windows are an erosion and a dilation
+        if (!SmallWindowFilter.supports(radius) && radius > 0 && (rank == 0 || rank == windowSize - 1)) {
+            RunningExtremum.filter(input, sourceX, sourceY, stride, width, height, StructuringElement.square(radius), rank > 0,
+                                   border, output, outputStride, area);
+            return;
+        }
+        // small windows of the median and the extremes run on comparison networks
+        if (SmallWindowFilter.supports(radius)) {
+            if (rank == 0) {
+                SmallWindowFilter.minimum(input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+                return;
+            } else if (rank == windowSize - 1) {
+                SmallWindowFilter.maximum(input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+                return;
+            } else if (rank == windowSize / 2) {
+                SmallWindowFilter.median(input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+                return;
+            }
+        }
+
+        if (border != BorderMode.NONE) {
+            Rectangle padded = new Rectangle(area.x - radius, area.y - radius, area.width + 2 * radius, area.height + 2 * radius);
+            int[] paddedInput = border.pad(input, sourceX, sourceY, stride, width, height, padded);
+            ParallelBands.forEach(area.y, area.y + area.height, (long) LEVELS * area.width,
+                    (first, end) -> rankRows(paddedInput, padded.x, padded.y, padded.width, radius, rank, output, outputStride, area,
+                                             area.x, area.x + area.width - 1, first, end - 1));
+            BufferPool.shared().release(paddedInput);
+            return;
+        }
+
+        int x0 = Math.max(area.x, radius);
+        int y0 = Math.max(area.y, radius);
+        int x1 = Math.min(area.x + area.width - 1, width - 1 - radius);
+        int y1 = Math.min(area.y + area.height - 1, height - 1 - radius);
+        Transformation.clearOutside(output, outputStride, area, x0, y0, x1, y1);
+        if (x0 > x1 || y0 > y1) {
+            return;
+        }
+        // bands of rows are independent, each builds its own column histograms
+        ParallelBands.forEach(y0, y1 + 1, (long) LEVELS * (x1 - x0 + 1),
+                (first, end) -> rankRows(input, sourceX, sourceY, stride, radius, rank, output, outputStride, area, x0, x1, first, end - 1));
+    }
+
+  /**
+   * This method apply a mid-point filter to an image channel plane, the mean of
+   * the window minimum and maximum truncated towards zero. Small windows take
+   * both extremes in one pass.
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param radius      window radius, the window is 2 * radius + 1 pixels wide and high
+   * @param border      treatment of windows reaching past the image
+   * @return filtered plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] midPoint(int[] input, int width, int height, int stride, int radius, BorderMode border) {
+        BufferPool pool = BufferPool.shared();
+        int[] output = pool.lease(width * height);
+        Rectangle area = new Rectangle(0, 0, width, height);
+        if (SmallWindowFilter.supports(radius)) {
+            SmallWindowFilter.midPoint(input, 0, 0, stride, width, height, radius, border, output, width, area);
+            return output;
+        }
+        int[] max = pool.lease(width * height);
+        percentile(input, 0, 0, stride, width, height, radius, 0, border, output, width, area);
+        percentile(input, 0, 0, stride, width, height, radius, 100, border, max, width, area);
+        for (int i = 0; i < width * height; i++) {
+            output[i] = (output[i] + max[i]) / 2;
+        }
+        pool.release(max);
+        return output;
+    }
+
+    private static void rankRows(int[] input, int sourceX, int sourceY, int stride, int radius, int rank,
+                                 int[] output, int outputStride, Rectangle area, int x0, int x1, int y0, int y1) {
+        int window = 2 * radius + 1;
+        // histograms of the source columns x0 - radius .. x1 + radius over the window rows
+        int columns = x1 - x0 + window;
+        int firstColumn = x0 - radius - sourceX;
+        int[] columnLevels = new int[columns * LEVELS];
+        int[] columnGroups = new int[columns * GROUPS];
+        for (int y = y0 - radius; y <= y0 + radius; y++) {
+            updateColumns(input, (y - sourceY) * stride + firstColumn, columns, columnLevels, columnGroups, 1);
+        }
+
+        int[] levels = new int[LEVELS];
+        int[] groups = new int[GROUPS];
+        // window position each group of levels was last brought up to date at
+        int[] updated = new int[GROUPS];
+        for (int y = y0; y <= y1; y++) {
+            if (y > y0) {
+                // move the column histograms one row down
+                updateColumns(input, (y - radius - 1 - sourceY) * stride + firstColumn, columns, columnLevels, columnGroups, -1);
+                updateColumns(input, (y + radius - sourceY) * stride + firstColumn, columns, columnLevels, columnGroups, 1);
+            }
+            Arrays.fill(groups, 0);
+            for (int c = 0; c < window; c++) {
+                for (int g = 0; g < GROUPS; g++) {
+                    groups[g] += columnGroups[c * GROUPS + g];
+                }
+            }
+            Arrays.fill(updated, -window);
+
+            // position p is the window over the columns p .. p + window - 1
+            int outIdx = (y - area.y) * outputStride + x0 - area.x;
+            for (int position = 0; position <= x1 - x0; position++, outIdx++) {
+                if (position > 0) {
+                    int entering = (position + window - 1) * GROUPS;
+                    int leaving = (position - 1) * GROUPS;
+                    for (int g = 0; g < GROUPS; g++) {
+                        groups[g] += columnGroups[entering + g] - columnGroups[leaving + g];
+                    }
+                }
+                int remaining = rank;
+                int group = 0;
+                while (remaining >= groups[group]) {
+                    remaining -= groups[group++];
+                }
+                // the levels of a group are only updated when the percentile falls in it
+                updateGroup(levels, columnLevels, group, updated[group], position, window);
+                updated[group] = position;
+                int level = group << GROUP_BITS;
+                while (remaining >= levels[level]) {
+                    remaining -= levels[level++];
+                }
+                output[outIdx] = level;
+            }
+        }
+    }
+
+  /**
+   * This method brings the levels of one group from the window at position
+   * last to the window at position, by sliding them when the windows overlap
+   * and summing the window columns when they do not
+   */
+    private static void updateGroup(int[] levels, int[] columnLevels, int group, int last, int position, int window) {
+        int first = group << GROUP_BITS;
+        int end = first + (1 << GROUP_BITS);
+        if (position - last >= window) {
+            Arrays.fill(levels, first, end, 0);
+            for (int c = position; c < position + window; c++) {
+                int offset = c * LEVELS;
+                for (int level = first; level < end; level++) {
+                    levels[level] += columnLevels[offset + level];
+                }
+            }
+            return;
+        }
+        for (int p = last + 1; p <= position; p++) {
+            int entering = (p + window - 1) * LEVELS;
+            int leaving = (p - 1) * LEVELS;
+            for (int level = first; level < end; level++) {
+                levels[level] += columnLevels[entering + level] - columnLevels[leaving + level];
+            }
+        }
+    }
+
+    private static void updateColumns(int[] input, int inIdx, int columns, int[] columnLevels, int[] columnGroups, int count) {
+        for (int c = 0; c < columns; c++) {
+            int level = input[inIdx + c];
+            columnLevels[c * LEVELS + level] += count;
+            columnGroups[c * GROUPS + (level >> GROUP_BITS)] += count;
+        }
+    }
+}
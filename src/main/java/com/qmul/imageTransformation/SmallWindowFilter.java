@@ -0,0 +1,333 @@
+/*
+ * Description: Median, minimum, maximum and mid-point of 3x3 and 5x5 windows
+ * with comparison networks instead of sorting or histograms. Every source
+ * column of the window is reduced or sorted once per row and shared by the
+ * window pixels of the row, so a pixel only combines its window columns:
+ *   minimum, maximum    column extremes, then the extremes of the columns
+ *   mid-point           both extremes in the same pass
+ *   3x3 median          the median of the largest column minimum, the
+ *                       median of the column medians and the smallest
+ *                       column maximum
+ *   5x5 median          the sorted columns are sorted across, which leaves
+ *                       13 candidates, whose median is found by repeatedly
+ *                       dropping the smallest and largest of a shrinking set
+ * The comparisons are min and max, which do not branch on the image content.
+ * Date: 18/10/2026
+ */
+package com.qmul.imageTransformation;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.Rectangle;
+
+public final class SmallWindowFilter {
+    public static final int MAX_RADIUS = 2;
+
+    private static final int MINIMUM = 0;
+    private static final int MAXIMUM = 1;
+    private static final int MID_POINT = 2;
+
+    // positions of a 5x5 window sorted down and across that can still hold the median,
+    // six values lie below them and six above
+    private static final int[] MEDIAN25_CANDIDATES = {3, 4, 7, 8, 9, 11, 12, 13, 15, 16, 17, 20, 21};
+
+    /*
+     * Rows of one window operation, between the bounds x0 to x1 and y0 to y1
+     * of the destination area.
+     */
+    private interface WindowRows {
+        void apply(int[] input, int sourceX, int sourceY, int stride, int radius,
+                   int[] output, int outputStride, Rectangle area, int x0, int x1, int y0, int y1);
+    }
+
+    private SmallWindowFilter() {
+    }
+
+  /**
+   * This method return whether the window radius has a network path
+   *
+   * @param radius      window radius
+   * @return boolean
+   */
+    public static boolean supports(int radius) {
+        return radius >= 1 && radius <= MAX_RADIUS;
+    }
+
+  /**
+   * This method apply a median filter to one region of an image. The region
+   * parameters are the ones of RankFilter.percentile.
+   *
+   * @param input       source region, row-major
+   * @param sourceX     image column of the first source sample
+   * @param sourceY     image row of the first source sample
+   * @param stride      distance between two rows of the source region
+   * @param width       image width
+   * @param height      image height
+   * @param radius      window radius, 1 or 2
+   * @param border      treatment of windows reaching past the image
+   * @param output      destination region, row-major
+   * @param outputStride  distance between two rows of the destination region
+   * @param area        destination region in image coordinates
+   */
+    public static void median(int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius,
+                              BorderMode border, int[] output, int outputStride, Rectangle area) {
+        WindowRows rows = radius == 1 ? SmallWindowFilter::median9Rows : SmallWindowFilter::median25Rows;
+        filter(rows, input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+    }
+
+  /**
+   * This method apply a minimum filter to one region of an image, see median
+   */
+    public static void minimum(int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius,
+                               BorderMode border, int[] output, int outputStride, Rectangle area) {
+        filter(extrema(MINIMUM), input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+    }
+
+  /**
+   * This method apply a maximum filter to one region of an image, see median
+   */
+    public static void maximum(int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius,
+                               BorderMode border, int[] output, int outputStride, Rectangle area) {
+        filter(extrema(MAXIMUM), input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+    }
+
+  /**
+   * This method apply a mid-point filter to one region of an image, the mean of
+   * the window minimum and maximum truncated towards zero, see median
+   */
+    public static void midPoint(int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius,
+                                BorderMode border, int[] output, int outputStride, Rectangle area) {
+        filter(extrema(MID_POINT), input, sourceX, sourceY, stride, width, height, radius, border, output, outputStride, area);
+    }
+
+    private static void filter(WindowRows rows, int[] input, int sourceX, int sourceY, int stride, int width, int height, int radius,
+                               BorderMode border, int[] output, int outputStride, Rectangle area) {
+        if (!supports(radius)) {
+            throw new IllegalArgumentException("window radius out of range: " + radius);
+        }
+        int window = 2 * radius + 1;
+        long workPerRow = (long) window * window * area.width;
+
+        if (border != BorderMode.NONE) {
+            Rectangle padded = new Rectangle(area.x - radius, area.y - radius, area.width + 2 * radius, area.height + 2 * radius);
+            int[] paddedInput = border.pad(input, sourceX, sourceY, stride, width, height, padded);
+            ParallelBands.forEach(area.y, area.y + area.height, workPerRow,
+                    (first, end) -> rows.apply(paddedInput, padded.x, padded.y, padded.width, radius, output, outputStride, area,
+                                               area.x, area.x + area.width - 1, first, end - 1));
+            BufferPool.shared().release(paddedInput);
+            return;
+        }
+
+        int x0 = Math.max(area.x, radius);
+        int y0 = Math.max(area.y, radius);
+        int x1 = Math.min(area.x + area.width - 1, width - 1 - radius);
+        int y1 = Math.min(area.y + area.height - 1, height - 1 - radius);
+        Transformation.clearOutside(output, outputStride, area, x0, y0, x1, y1);
+        if (x0 > x1 || y0 > y1) {
+            return;
+        }
+        ParallelBands.forEach(y0, y1 + 1, workPerRow,
+                (first, end) -> rows.apply(input, sourceX, sourceY, stride, radius, output, outputStride, area, x0, x1, first, end - 1));
+    }
+
+    private static WindowRows extrema(int kind) {
+        return (input, sourceX, sourceY, stride, radius, output, outputStride, area, x0, x1, y0, y1) ->
+                extremaRows(input, sourceX, sourceY, stride, radius, kind, output, outputStride, area, x0, x1, y0, y1);
+    }
+
+    private static void extremaRows(int[] input, int sourceX, int sourceY, int stride, int radius, int kind,
+                                    int[] output, int outputStride, Rectangle area, int x0, int x1, int y0, int y1) {
+        int window = 2 * radius + 1;
+        // source columns x0 - radius .. x1 + radius
+        int columns = x1 - x0 + window;
+        int firstColumn = x0 - radius - sourceX;
+        int[] columnMin = new int[columns];
+        int[] columnMax = new int[columns];
+        for (int y = y0; y <= y1; y++) {
+            int top = (y - radius - sourceY) * stride + firstColumn;
+            for (int c = 0; c < columns; c++) {
+                int min = input[top + c];
+                int max = min;
+                for (int r = 1; r < window; r++) {
+                    int value = input[top + r * stride + c];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                columnMin[c] = min;
+                columnMax[c] = max;
+            }
+
+            int outIdx = (y - area.y) * outputStride + x0 - area.x;
+            for (int p = 0; p <= x1 - x0; p++, outIdx++) {
+                int min = columnMin[p];
+                int max = columnMax[p];
+                for (int c = 1; c < window; c++) {
+                    min = Math.min(min, columnMin[p + c]);
+                    max = Math.max(max, columnMax[p + c]);
+                }
+                output[outIdx] = kind == MINIMUM ? min : kind == MAXIMUM ? max : (min + max) / 2;
+            }
+        }
+    }
+
+    private static void median9Rows(int[] input, int sourceX, int sourceY, int stride, int radius,
+                                    int[] output, int outputStride, Rectangle area, int x0, int x1, int y0, int y1) {
+        int columns = x1 - x0 + 3;
+        int firstColumn = x0 - 1 - sourceX;
+        // each source column of the window rows sorted
+        int[] low = new int[columns];
+        int[] middle = new int[columns];
+        int[] high = new int[columns];
+        for (int y = y0; y <= y1; y++) {
+            int top = (y - 1 - sourceY) * stride + firstColumn;
+            for (int c = 0; c < columns; c++) {
+                int a = input[top + c];
+                int b = input[top + stride + c];
+                int d = input[top + 2 * stride + c];
+                low[c] = Math.min(Math.min(a, b), d);
+                middle[c] = median3(a, b, d);
+                high[c] = Math.max(Math.max(a, b), d);
+            }
+
+            int outIdx = (y - area.y) * outputStride + x0 - area.x;
+            for (int p = 0; p <= x1 - x0; p++, outIdx++) {
+                int lowest = Math.max(Math.max(low[p], low[p + 1]), low[p + 2]);
+                int median = median3(middle[p], middle[p + 1], middle[p + 2]);
+                int highest = Math.min(Math.min(high[p], high[p + 1]), high[p + 2]);
+                output[outIdx] = median3(lowest, median, highest);
+            }
+        }
+    }
+
+    private static void median25Rows(int[] input, int sourceX, int sourceY, int stride, int radius,
+                                     int[] output, int outputStride, Rectangle area, int x0, int x1, int y0, int y1) {
+        int columns = x1 - x0 + 5;
+        int firstColumn = x0 - 2 - sourceX;
+        // each source column of the window rows sorted, the k-th smallest values of all columns in row k
+        int[] sorted = new int[5 * columns];
+        int[] window = new int[25];
+        int[] candidates = new int[MEDIAN25_CANDIDATES.length];
+        for (int y = y0; y <= y1; y++) {
+            int top = (y - 2 - sourceY) * stride + firstColumn;
+            for (int c = 0; c < columns; c++) {
+                sort5(input, top + c, stride, sorted, c, columns);
+            }
+
+            int outIdx = (y - area.y) * outputStride + x0 - area.x;
+            for (int p = 0; p <= x1 - x0; p++, outIdx++) {
+                // sorting across keeps the columns sorted
+                for (int r = 0; r < 5; r++) {
+                    sort5(sorted, r * columns + p, 1, window, r * 5, 1);
+                }
+                for (int i = 0; i < candidates.length; i++) {
+                    candidates[i] = window[MEDIAN25_CANDIDATES[i]];
+                }
+                output[outIdx] = median13(candidates);
+            }
+        }
+    }
+
+  /**
+   * This method return the median of 13 values by forgetful selection: of one
+   * more than half the values, the smallest and largest cannot be the median,
+   * they are dropped and the next value is taken in, until three are left
+   */
+    private static int median13(int[] values) {
+        int v0 = values[0];
+        int v1 = values[1];
+        int v2 = values[2];
+        int v3 = values[3];
+        int v4 = values[4];
+        int v5 = values[5];
+        int v6 = values[6];
+        int v7 = values[7];
+        int t;
+        // drop the smallest and largest of v0 .. v7, take in value 8
+        t = Math.min(v0, v1); v1 = Math.max(v0, v1); v0 = t;
+        t = Math.min(v0, v2); v2 = Math.max(v0, v2); v0 = t;
+        t = Math.min(v0, v3); v3 = Math.max(v0, v3); v0 = t;
+        t = Math.min(v0, v4); v4 = Math.max(v0, v4); v0 = t;
+        t = Math.min(v0, v5); v5 = Math.max(v0, v5); v0 = t;
+        t = Math.min(v0, v6); v6 = Math.max(v0, v6); v0 = t;
+        t = Math.min(v0, v7); v7 = Math.max(v0, v7); v0 = t;
+        t = Math.min(v1, v7); v7 = Math.max(v1, v7); v1 = t;
+        t = Math.min(v2, v7); v7 = Math.max(v2, v7); v2 = t;
+        t = Math.min(v3, v7); v7 = Math.max(v3, v7); v3 = t;
+        t = Math.min(v4, v7); v7 = Math.max(v4, v7); v4 = t;
+        t = Math.min(v5, v7); v7 = Math.max(v5, v7); v5 = t;
+        t = Math.min(v6, v7); v7 = Math.max(v6, v7); v6 = t;
+        v7 = values[8];
+        // drop the smallest and largest of v1 .. v7, take in value 9
+        t = Math.min(v1, v2); v2 = Math.max(v1, v2); v1 = t;
+        t = Math.min(v1, v3); v3 = Math.max(v1, v3); v1 = t;
+        t = Math.min(v1, v4); v4 = Math.max(v1, v4); v1 = t;
+        t = Math.min(v1, v5); v5 = Math.max(v1, v5); v1 = t;
+        t = Math.min(v1, v6); v6 = Math.max(v1, v6); v1 = t;
+        t = Math.min(v1, v7); v7 = Math.max(v1, v7); v1 = t;
+        t = Math.min(v2, v7); v7 = Math.max(v2, v7); v2 = t;
+        t = Math.min(v3, v7); v7 = Math.max(v3, v7); v3 = t;
+        t = Math.min(v4, v7); v7 = Math.max(v4, v7); v4 = t;
+        t = Math.min(v5, v7); v7 = Math.max(v5, v7); v5 = t;
+        t = Math.min(v6, v7); v7 = Math.max(v6, v7); v6 = t;
+        v7 = values[9];
+        // drop the smallest and largest of v2 .. v7, take in value 10
+        t = Math.min(v2, v3); v3 = Math.max(v2, v3); v2 = t;
+        t = Math.min(v2, v4); v4 = Math.max(v2, v4); v2 = t;
+        t = Math.min(v2, v5); v5 = Math.max(v2, v5); v2 = t;
+        t = Math.min(v2, v6); v6 = Math.max(v2, v6); v2 = t;
+        t = Math.min(v2, v7); v7 = Math.max(v2, v7); v2 = t;
+        t = Math.min(v3, v7); v7 = Math.max(v3, v7); v3 = t;
+        t = Math.min(v4, v7); v7 = Math.max(v4, v7); v4 = t;
+        t = Math.min(v5, v7); v7 = Math.max(v5, v7); v5 = t;
+        t = Math.min(v6, v7); v7 = Math.max(v6, v7); v6 = t;
+        v7 = values[10];
+        // drop the smallest and largest of v3 .. v7, take in value 11
+        t = Math.min(v3, v4); v4 = Math.max(v3, v4); v3 = t;
+        t = Math.min(v3, v5); v5 = Math.max(v3, v5); v3 = t;
+        t = Math.min(v3, v6); v6 = Math.max(v3, v6); v3 = t;
+        t = Math.min(v3, v7); v7 = Math.max(v3, v7); v3 = t;
+        t = Math.min(v4, v7); v7 = Math.max(v4, v7); v4 = t;
+        t = Math.min(v5, v7); v7 = Math.max(v5, v7); v5 = t;
+        t = Math.min(v6, v7); v7 = Math.max(v6, v7); v6 = t;
+        v7 = values[11];
+        // drop the smallest and largest of v4 .. v7, take in value 12
+        t = Math.min(v4, v5); v5 = Math.max(v4, v5); v4 = t;
+        t = Math.min(v4, v6); v6 = Math.max(v4, v6); v4 = t;
+        t = Math.min(v4, v7); v7 = Math.max(v4, v7); v4 = t;
+        t = Math.min(v5, v7); v7 = Math.max(v5, v7); v5 = t;
+        t = Math.min(v6, v7); v7 = Math.max(v6, v7); v6 = t;
+        v7 = values[12];
+        return median3(v5, v6, v7);
+    }
+
+  /**
+   * This method sorts five values spaced by a step into a destination with
+   * another step, on a nine comparator network
+   */
+    private static void sort5(int[] source, int offset, int step, int[] destination, int destinationOffset, int destinationStep) {
+        int v0 = source[offset];
+        int v1 = source[offset + step];
+        int v2 = source[offset + 2 * step];
+        int v3 = source[offset + 3 * step];
+        int v4 = source[offset + 4 * step];
+        int t;
+        t = Math.min(v0, v1); v1 = Math.max(v0, v1); v0 = t;
+        t = Math.min(v3, v4); v4 = Math.max(v3, v4); v3 = t;
+        t = Math.min(v2, v4); v4 = Math.max(v2, v4); v2 = t;
+        t = Math.min(v2, v3); v3 = Math.max(v2, v3); v2 = t;
+        t = Math.min(v0, v3); v3 = Math.max(v0, v3); v0 = t;
+        t = Math.min(v0, v2); v2 = Math.max(v0, v2); v0 = t;
+        t = Math.min(v1, v4); v4 = Math.max(v1, v4); v1 = t;
+        t = Math.min(v1, v3); v3 = Math.max(v1, v3); v1 = t;
+        t = Math.min(v1, v2); v2 = Math.max(v1, v2); v1 = t;
+        destination[destinationOffset] = v0;
+        destination[destinationOffset + destinationStep] = v1;
+        destination[destinationOffset + 2 * destinationStep] = v2;
+        destination[destinationOffset + 3 * destinationStep] = v3;
+        destination[destinationOffset + 4 * destinationStep] = v4;
+    }
+
+    private static int median3(int a, int b, int c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+}
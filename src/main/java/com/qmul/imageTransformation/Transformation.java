@@ -5,7 +5,22 @@
  */
 package com.qmul.imageTransformation;
 
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.Rectangle;
+import java.util.Arrays;
+
 public class Transformation {
+    public static final String FIXED_POINT_BITS_PROPERTY = "qmul.convolution.fixedPointBits";
+
+    // fraction bits of quantised fractional kernels, 0 keeps them in double
+    private static final int FIXED_POINT_BITS = Math.max(0, Math.min(30,
+            Integer.getInteger(FIXED_POINT_BITS_PROPERTY, 24)));
+    public static final String FFT_MIN_TAPS_PROPERTY = "qmul.convolution.fftMinTaps";
+
+    // kernels needing at least this many multiply-adds per pixel go through the FFT, 0 never
+    private static final int FFT_MIN_TAPS = Integer.getInteger(FFT_MIN_TAPS_PROPERTY, 121);
     
     public Transformation(){
 
@@ -14,37 +29,504 @@ public class Transformation {
   /**
    * This method apply smoothing filter to the buffered image
    * 
-   * @param input           image rgb channels
+   * @param input           image channel plane, row-major
    * @param width           image width
    * @param height          image height
+   * @param stride          distance between two rows of the input plane
    * @param kernel          selected kernel
    * @param kernelWidth     kernel width 
    * @param kernelHeight    kernel height
-   * @param padding         padding type
+   * @param padding         padding name, see BorderMode
    * @param kernelDivisor   kernel divisor
-   * @return convoluted image
+   * @return convoluted plane leased from the shared buffer pool, row-major with a stride of width
    */        
-    public static int[][] convolution(int[][] input,  int width, int height,
+    public static int[] convolution(int[] input,  int width, int height, int stride,
                                            double[][] kernel, int kernelWidth, int kernelHeight, String padding, double kernelDivisor) {
+        // Initailise the output plane, pixels the kernel does not reach stay zero
+        int[] output = BufferPool.shared().leaseCleared(width * height);
+        convolution(input, width, height, stride, kernel, kernelWidth, kernelHeight, padding, kernelDivisor, output);
+        return output;
+    }
+
+  /**
+   * This method apply smoothing filter to the buffered image into a given plane.
+   * With the padding None only the pixels the kernel fully covers are written,
+   * the other border modes write every pixel.
+   * 
+   * @param input           image channel plane, row-major
+   * @param width           image width
+   * @param height          image height
+   * @param stride          distance between two rows of the input plane
+   * @param kernel          selected kernel
+   * @param kernelWidth     kernel width 
+   * @param kernelHeight    kernel height
+   * @param padding         padding name, see BorderMode
+   * @param kernelDivisor   kernel divisor
+   * @param output          destination plane, row-major with a stride of width
+   */        
+    public static void convolution(int[] input,  int width, int height, int stride,
+                                           double[][] kernel, int kernelWidth, int kernelHeight, String padding, double kernelDivisor, int[] output) {
+        convolution(new int[][] {input}, width, height, stride, kernel, kernelWidth, kernelHeight, padding, kernelDivisor, new int[][] {output});
+    }
+
+  /**
+   * This method apply the kernel to some channels of an image in one sweep.
+   * Every pixel is computed for all the channels at once, so the source
+   * addresses and kernel weights are worked out once per pixel rather than
+   * once per channel, and channels the caller does not list, such as alpha,
+   * are never read.
+   * 
+   * @param image           image planes
+   * @param channels        channels to convolve, for example RED, GREEN and BLUE
+   * @param kernel          selected kernel
+   * @param kernelWidth     kernel width 
+   * @param kernelHeight    kernel height
+   * @param padding         padding name, see BorderMode
+   * @param kernelDivisor   kernel divisor
+   * @return image buffer leased from the shared buffer pool, one plane per listed channel in the same order
+   */        
+    public static ImageBuffer convolution(ImageBuffer image, int[] channels,
+                                          double[][] kernel, int kernelWidth, int kernelHeight, String padding, double kernelDivisor) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[][] inputs = new int[channels.length][];
+        int[][] outputs = new int[channels.length][];
+        for (int plane = 0; plane < channels.length; plane++) {
+            inputs[plane] = image.getPlane(channels[plane]);
+            // pixels the kernel does not reach stay zero
+            outputs[plane] = BufferPool.shared().leaseCleared(width * height);
+        }
+        convolution(inputs, width, height, image.getStride(), kernel, kernelWidth, kernelHeight, padding, kernelDivisor, outputs);
+        return new ImageBuffer(width, height, width, outputs);
+    }
+
+    private static void convolution(int[][] inputs,  int width, int height, int stride,
+                                    double[][] kernel, int kernelWidth, int kernelHeight, String padding, double kernelDivisor, int[][] outputs) {
         
         int left = kernelWidth / 2;
         int top = kernelHeight / 2;
         
-        // Initailise 2d array
-        int[][] output = new int[width][height];
+        if (BorderMode.fromName(padding) != BorderMode.NONE) {
+            convolution(inputs, 0, 0, stride, width, height, kernel, kernelWidth, kernelHeight, padding, kernelDivisor,
+                        outputs, width, new Rectangle(0, 0, width, height));
+            return;
+        }
+        if (width - kernelWidth >= left && height - kernelHeight >= top) {
+            convolveRegion(inputs, 0, 0, stride, new ConvolutionKernel(kernel), left, top, kernelWidth, kernelHeight, kernelDivisor,
+                           outputs, 0, 0, width, left, top, width - kernelWidth, height - kernelHeight);
+        }
+    }      
+
+  /**
+   * This method apply the kernel to one region of an image, for example a tile.
+   * Every output pixel gets the value the whole-image convolution gives it.
+   * With the padding None, pixels the kernel does not fully cover become zero.
+   * 
+   * @param input           source region, row-major
+   * @param sourceX         image column of the first source sample
+   * @param sourceY         image row of the first source sample
+   * @param stride          distance between two rows of the source region
+   * @param width           image width
+   * @param height          image height
+   * @param kernel          selected kernel
+   * @param kernelWidth     kernel width 
+   * @param kernelHeight    kernel height
+   * @param padding         padding name, see BorderMode
+   * @param kernelDivisor   kernel divisor
+   * @param output          destination region, row-major
+   * @param outputStride    distance between two rows of the destination region
+   * @param area            destination region in image coordinates, the source region
+   *                        must cover it grown by half the kernel size, clipped to the
+   *                        image, and for the padding Wrap the whole image
+   */        
+    public static void convolution(int[] input, int sourceX, int sourceY, int stride, int width, int height,
+                                   double[][] kernel, int kernelWidth, int kernelHeight, String padding, double kernelDivisor,
+                                   int[] output, int outputStride, Rectangle area) {
+        convolution(new int[][] {input}, sourceX, sourceY, stride, width, height, kernel, kernelWidth, kernelHeight, padding, kernelDivisor,
+                    new int[][] {output}, outputStride, area);
+    }
+
+  /**
+   * This method apply the kernel to several channel planes of one region of an
+   * image in one sweep, like the single plane overload
+   * 
+   * @param inputs          source region planes, row-major with the same layout
+   * @param sourceX         image column of the first source sample
+   * @param sourceY         image row of the first source sample
+   * @param stride          distance between two rows of the source region
+   * @param width           image width
+   * @param height          image height
+   * @param kernel          selected kernel
+   * @param kernelWidth     kernel width 
+   * @param kernelHeight    kernel height
+   * @param padding         padding name, see BorderMode
+   * @param kernelDivisor   kernel divisor
+   * @param outputs         destination region planes, one per source plane
+   * @param outputStride    distance between two rows of the destination region
+   * @param area            destination region in image coordinates, see the single plane overload
+   */        
+    public static void convolution(int[][] inputs, int sourceX, int sourceY, int stride, int width, int height,
+                                   double[][] kernel, int kernelWidth, int kernelHeight, String padding, double kernelDivisor,
+                                   int[][] outputs, int outputStride, Rectangle area) {
+        
+        int left = kernelWidth / 2;
+        int top = kernelHeight / 2;
+        
+        BorderMode border = BorderMode.fromName(padding);
+        if (border != BorderMode.NONE) {
+            // convolve a copy extended past the image edges, every pixel is then fully covered
+            Rectangle padded = new Rectangle(area.x - left, area.y - top, area.width + kernelWidth - 1, area.height + kernelHeight - 1);
+            int[][] paddedInputs = new int[inputs.length][];
+            for (int plane = 0; plane < inputs.length; plane++) {
+                paddedInputs[plane] = border.pad(inputs[plane], sourceX, sourceY, stride, width, height, padded);
+            }
+            convolveRegion(paddedInputs, padded.x, padded.y, padded.width, new ConvolutionKernel(kernel), left, top, kernelWidth, kernelHeight, kernelDivisor,
+                           outputs, area.x, area.y, outputStride, area.x, area.y, area.x + area.width - 1, area.y + area.height - 1);
+            for (int[] paddedInput : paddedInputs) {
+                BufferPool.shared().release(paddedInput);
+            }
+            return;
+        }
+
+        // clear the border the kernel does not reach, then filter the rest
+        int x0 = Math.max(area.x, left);
+        int y0 = Math.max(area.y, top);
+        int x1 = Math.min(area.x + area.width - 1, width - kernelWidth);
+        int y1 = Math.min(area.y + area.height - 1, height - kernelHeight);
+        for (int[] output : outputs) {
+            clearOutside(output, outputStride, area, x0, y0, x1, y1);
+        }
+        if (x0 <= x1 && y0 <= y1) {
+            convolveRegion(inputs, sourceX, sourceY, stride, new ConvolutionKernel(kernel), left, top, kernelWidth, kernelHeight, kernelDivisor,
+                           outputs, area.x, area.y, outputStride, x0, y0, x1, y1);
+        }
+    }      
+
+  /**
+   * This method picks the cheapest exact way to apply the kernel to the pixels
+   * (x0..x1, y0..y1), which the kernel must fully cover. Large kernels go
+   * through the FFT, integer kernels with an integer divisor run in integer
+   * arithmetic, separable kernels in two passes, and other fractional kernels
+   * with quantised fixed point weights. Large regions are computed in bands
+   * of rows on the parallel pool.
+   * 
+   * @param inputs          source region planes, row-major
+   * @param sourceX         image column of the first source sample
+   * @param sourceY         image row of the first source sample
+   * @param stride          distance between two rows of the source region
+   * @param plan            analysed kernel
+   * @param left            kernel columns left of the centre
+   * @param top             kernel rows above the centre
+   * @param kernelWidth     kernel width 
+   * @param kernelHeight    kernel height
+   * @param kernelDivisor   kernel divisor
+   * @param outputs         destination region planes, row-major
+   * @param outputX         image column of the first destination sample
+   * @param outputY         image row of the first destination sample
+   * @param outputStride    distance between two rows of the destination region
+   * @param x0              first column to compute
+   * @param y0              first row to compute
+   * @param x1              last column to compute
+   * @param y1              last row to compute
+   */
+    private static void convolveRegion(int[][] inputs, int sourceX, int sourceY, int stride,
+                                       ConvolutionKernel plan, int left, int top, int kernelWidth, int kernelHeight, double kernelDivisor,
+                                       int[][] outputs, int outputX, int outputY, int outputStride,
+                                       int x0, int y0, int x1, int y1) {
+        ConvolutionRegion region = new ConvolutionRegion(inputs, sourceX + left, sourceY + top, stride, outputs, outputX, outputY, outputStride, x0, y0, x1, y1);
+        boolean integral = plan.isIntegral() && IntegerDivisor.isIntegral(kernelDivisor);
+        if (plan.getWidth() == kernelWidth && plan.getHeight() == kernelHeight && useFft(plan)) {
+            // the transforms work on one plane at a time, a plane they cannot round exactly is filtered spatially
+            for (int plane = 0; plane < region.getNumPlanes(); plane++) {
+                ConvolutionRegion single = region.plane(plane);
+                if (!fftConvolution(single, plan, integral, kernelDivisor)) {
+                    spatialBands(single, plan, kernelWidth, kernelHeight, integral, kernelDivisor);
+                }
+            }
+            return;
+        }
+        spatialBands(region, plan, kernelWidth, kernelHeight, integral, kernelDivisor);
+    }
+
+    private static void spatialBands(ConvolutionRegion region, ConvolutionKernel plan, int kernelWidth, int kernelHeight,
+                                     boolean integral, double kernelDivisor) {
+        // the spatial engines compute bands of rows independently, each with its own halo rows
+        int taps = plan.isSeparable() ? kernelWidth + kernelHeight : kernelWidth * kernelHeight;
+        ParallelBands.forEach(region.y0, region.y1 + 1, (long) (region.x1 - region.x0 + 1) * taps * region.getNumPlanes(),
+                (first, end) -> spatialConvolution(region.rows(first, end - 1), plan, kernelWidth, kernelHeight, integral, kernelDivisor));
+    }
+
+    private static void spatialConvolution(ConvolutionRegion region, ConvolutionKernel plan, int kernelWidth, int kernelHeight,
+                                           boolean integral, double kernelDivisor) {
+        if (plan.getWidth() != kernelWidth || plan.getHeight() != kernelHeight) {
+            directConvolution(region, plan.getKernel(), kernelDivisor);
+        } else if (integral) {
+            IntegerDivisor divisor = new IntegerDivisor((long) kernelDivisor);
+            if (plan.isSeparable()) {
+                separableConvolution(region, toInts(plan.getRowWeights()), toInts(plan.getColumnWeights()), divisor);
+            } else {
+                integerConvolution(region, plan.getIntegerKernel(), divisor);
+            }
+        } else if (plan.isSeparable()) {
+            separableConvolution(region, plan.getRowWeights(), plan.getColumnWeights(), kernelDivisor);
+        } else {
+            int[][] weights = FIXED_POINT_BITS > 0 ? plan.quantise(kernelDivisor, FIXED_POINT_BITS) : null;
+            if (weights != null) {
+                // the divisor is folded into the weights, only the fraction bits are shifted out
+                integerConvolution(region, weights, new IntegerDivisor(1L << FIXED_POINT_BITS));
+            } else {
+                directConvolution(region, plan.getKernel(), kernelDivisor);
+            }
+        }
+    }
+
+  /**
+   * This method zeroes the pixels of an output region outside the pixels (x0..x1, y0..y1)
+   * 
+   * @param output          destination region, row-major
+   * @param outputStride    distance between two rows of the destination region
+   * @param area            destination region in image coordinates
+   * @param x0              first computed column
+   * @param y0              first computed row
+   * @param x1              last computed column
+   * @param y1              last computed row
+   */
+    public static void clearOutside(int[] output, int outputStride, Rectangle area, int x0, int y0, int x1, int y1) {
+        for (int col = area.y; col < area.y + area.height; col++) {
+            int outIdx = (col - area.y) * outputStride;
+            if (col < y0 || col > y1 || x0 > x1) {
+                Arrays.fill(output, outIdx, outIdx + area.width, 0);
+            } else {
+                Arrays.fill(output, outIdx, outIdx + x0 - area.x, 0);
+                Arrays.fill(output, outIdx + x1 + 1 - area.x, outIdx + area.width, 0);
+            }
+        }
+    }
+
+    private static boolean useFft(ConvolutionKernel plan) {
+        if (FFT_MIN_TAPS <= 0) {
+            return false;
+        }
+        int taps = plan.isSeparable() ? plan.getWidth() + plan.getHeight() : plan.getWidth() * plan.getHeight();
+        return taps >= FFT_MIN_TAPS;
+    }
+
+    private static boolean fftConvolution(ConvolutionRegion region, ConvolutionKernel plan, boolean integral, double kernelDivisor) {
+        if (integral) {
+            return FftConvolution.convolve(region, plan.getIntegerKernel(), new IntegerDivisor((long) kernelDivisor));
+        }
+        int[][] weights = FIXED_POINT_BITS > 0 ? plan.quantise(kernelDivisor, FIXED_POINT_BITS) : null;
+        return weights != null && FftConvolution.convolve(region, weights, new IntegerDivisor(1L << FIXED_POINT_BITS));
+    }
+
+    private static void directConvolution(ConvolutionRegion region, double[][] kernel, double kernelDivisor) {
+        if (region.getNumPlanes() > 1) {
+            for (int plane = 0; plane < region.getNumPlanes(); plane++) {
+                directConvolution(region.plane(plane), kernel, kernelDivisor);
+            }
+            return;
+        }
+        int[] input = region.input;
+        int stride = region.stride;
         double convOutput;
-        // perform pixel convolution
-        for (int row = width - kernelWidth; row >= left ; row--) {
-            for (int col = height - kernelHeight; col >= top ; col--) {   
-                convOutput = 0.0;  
+        // perform pixel convolution, kernel[i][j] weights the pixel at (x + i - left, y + j - top)
+        for (int col = region.y0; col <= region.y1; col++) {
+            int inIdx = region.inputIndex(region.x0, col);
+            int outIdx = region.outputIndex(region.x0, col);
+            for (int row = region.x0; row <= region.x1; row++, inIdx++, outIdx++) {
+                convOutput = 0.0;
                 for (int i = kernel.length - 1; i >= 0 ; i--) {
                     for (int j = kernel[0].length -1 ; j >= 0 ; j--) {
-                        convOutput += (input[row + i - left][col + j - top] * kernel[i][j]);
+                        convOutput += (input[inIdx + j * stride + i] * kernel[i][j]);
                     }
                 }
-                output[row][col] = (int)(convOutput / kernelDivisor);
+                region.output[outIdx] = (int)(convOutput / kernelDivisor);
             }
         }
-        return output;
-    }      
+    }
+
+    private static void integerConvolution(ConvolutionRegion region, int[][] kernel, IntegerDivisor divisor) {
+        // flatten the non-zero weights into taps relative to the top left source sample
+        int taps = 0;
+        int[] offsets = new int[kernel.length * kernel[0].length];
+        int[] weights = new int[offsets.length];
+        for (int i = kernel.length - 1; i >= 0 ; i--) {
+            for (int j = kernel[0].length -1 ; j >= 0 ; j--) {
+                if (kernel[i][j] != 0) {
+                    offsets[taps] = j * region.stride + i;
+                    weights[taps++] = kernel[i][j];
+                }
+            }
+        }
+        if (region.getNumPlanes() == 3) {
+            colourConvolution(region, offsets, weights, taps, divisor);
+            return;
+        }
+        // every channel of a pixel is computed before moving on, the taps stay in registers and cache
+        for (int col = region.y0; col <= region.y1; col++) {
+            int inIdx = region.inputIndex(region.x0, col);
+            int outIdx = region.outputIndex(region.x0, col);
+            for (int row = region.x0; row <= region.x1; row++, inIdx++, outIdx++) {
+                for (int plane = 0; plane < region.getNumPlanes(); plane++) {
+                    int[] input = region.inputs[plane];
+                    long sum = 0;
+                    for (int tap = 0; tap < taps; tap++) {
+                        sum += (long) input[inIdx + offsets[tap]] * weights[tap];
+                    }
+                    region.outputs[plane][outIdx] = divisor.divide(sum);
+                }
+            }
+        }
+    }
+
+  /**
+   * This method apply flattened integer taps to the red, green and blue planes
+   * of a region at once, each tap offset and weight is loaded once for the
+   * three channels
+   * 
+   * @param region          pixels to compute, three planes
+   * @param offsets         tap offsets from the first source sample of a pixel
+   * @param weights         tap weights
+   * @param taps            number of taps
+   * @param divisor         kernel divisor
+   */
+    private static void colourConvolution(ConvolutionRegion region, int[] offsets, int[] weights, int taps, IntegerDivisor divisor) {
+        int[] red = region.inputs[0];
+        int[] green = region.inputs[1];
+        int[] blue = region.inputs[2];
+        int[] redOut = region.outputs[0];
+        int[] greenOut = region.outputs[1];
+        int[] blueOut = region.outputs[2];
+        for (int col = region.y0; col <= region.y1; col++) {
+            int inIdx = region.inputIndex(region.x0, col);
+            int outIdx = region.outputIndex(region.x0, col);
+            for (int row = region.x0; row <= region.x1; row++, inIdx++, outIdx++) {
+                long redSum = 0;
+                long greenSum = 0;
+                long blueSum = 0;
+                for (int tap = 0; tap < taps; tap++) {
+                    int idx = inIdx + offsets[tap];
+                    long weight = weights[tap];
+                    redSum += red[idx] * weight;
+                    greenSum += green[idx] * weight;
+                    blueSum += blue[idx] * weight;
+                }
+                redOut[outIdx] = divisor.divide(redSum);
+                greenOut[outIdx] = divisor.divide(greenSum);
+                blueOut[outIdx] = divisor.divide(blueSum);
+            }
+        }
+    }
+
+  /**
+   * This method apply a separable kernel. Each source row is filtered
+   * horizontally once into a ring of kernelHeight rows, and every output row
+   * combines the ring vertically, so the intermediate rows stay in cache.
+   * The planes of a region are filtered row by row side by side.
+   * 
+   * @param region          pixels to compute
+   * @param rowWeights      horizontal factor
+   * @param columnWeights   vertical factor
+   * @param kernelDivisor   kernel divisor
+   */
+    private static void separableConvolution(ConvolutionRegion region, double[] rowWeights, double[] columnWeights, double kernelDivisor) {
+        int kernelWidth = rowWeights.length;
+        int kernelHeight = columnWeights.length;
+        int columns = region.x1 - region.x0 + 1;
+        int planes = region.getNumPlanes();
+
+        double[][][] ring = new double[planes][kernelHeight][columns];
+        double[][] window = new double[kernelHeight][];
+        for (int sy = 0; sy < region.y1 - region.y0 + kernelHeight; sy++) {
+            int row = sy - kernelHeight + 1;
+            for (int plane = 0; plane < planes; plane++) {
+                // horizontal pass over the source row sy rows below the first one
+                int[] input = region.inputs[plane];
+                double[] filtered = ring[plane][sy % kernelHeight];
+                int inIdx = region.inputIndex(region.x0, region.y0 + sy);
+                for (int c = 0; c < columns; c++, inIdx++) {
+                    double sum = 0.0;
+                    for (int i = kernelWidth - 1; i >= 0; i--) {
+                        sum += input[inIdx + i] * rowWeights[i];
+                    }
+                    filtered[c] = sum;
+                }
+
+                // vertical pass, once the ring holds every source row of the output row
+                if (row < 0) {
+                    continue;
+                }
+                for (int j = 0; j < kernelHeight; j++) {
+                    window[j] = ring[plane][(row + j) % kernelHeight];
+                }
+                int[] output = region.outputs[plane];
+                int outIdx = region.outputIndex(region.x0, region.y0 + row);
+                for (int c = 0; c < columns; c++) {
+                    double sum = 0.0;
+                    for (int j = kernelHeight - 1; j >= 0; j--) {
+                        sum += window[j][c] * columnWeights[j];
+                    }
+                    output[outIdx + c] = (int)(sum / kernelDivisor);
+                }
+            }
+        }
+    }
+
+  /**
+   * This method apply a separable integer kernel like separableConvolution,
+   * with integer sums and the division done by multiplication
+   * 
+   * @param region          pixels to compute
+   * @param rowWeights      horizontal factor
+   * @param columnWeights   vertical factor
+   * @param divisor         kernel divisor
+   */
+    private static void separableConvolution(ConvolutionRegion region, int[] rowWeights, int[] columnWeights, IntegerDivisor divisor) {
+        int kernelWidth = rowWeights.length;
+        int kernelHeight = columnWeights.length;
+        int columns = region.x1 - region.x0 + 1;
+        int planes = region.getNumPlanes();
+
+        long[][][] ring = new long[planes][kernelHeight][columns];
+        long[][] window = new long[kernelHeight][];
+        for (int sy = 0; sy < region.y1 - region.y0 + kernelHeight; sy++) {
+            int row = sy - kernelHeight + 1;
+            for (int plane = 0; plane < planes; plane++) {
+                int[] input = region.inputs[plane];
+                long[] filtered = ring[plane][sy % kernelHeight];
+                int inIdx = region.inputIndex(region.x0, region.y0 + sy);
+                for (int c = 0; c < columns; c++, inIdx++) {
+                    long sum = 0;
+                    for (int i = kernelWidth - 1; i >= 0; i--) {
+                        sum += (long) input[inIdx + i] * rowWeights[i];
+                    }
+                    filtered[c] = sum;
+                }
+
+                if (row < 0) {
+                    continue;
+                }
+                for (int j = 0; j < kernelHeight; j++) {
+                    window[j] = ring[plane][(row + j) % kernelHeight];
+                }
+                int[] output = region.outputs[plane];
+                int outIdx = region.outputIndex(region.x0, region.y0 + row);
+                for (int c = 0; c < columns; c++) {
+                    long sum = 0;
+                    for (int j = kernelHeight - 1; j >= 0; j--) {
+                        sum += window[j][c] * columnWeights[j];
+                    }
+                    output[outIdx + c] = divisor.divide(sum);
+                }
+            }
+        }
+    }
+
+    private static int[] toInts(double[] weights) {
+        int[] ints = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            ints[i] = (int) weights[i];
+        }
+        return ints;
+    }
 }
@@ -0,0 +1,293 @@
+/*
+ * Description: Pool of int arrays for image planes. Filters lease their
+ * scratch planes from the pool and release them when they are done, so
+ * repeated filtering at the same resolution reuses the same arrays instead
+ * of allocating new ones. Arrays are grouped in size classes four to every
+ * power of two, which wastes at most a quarter of a plane. Each thread keeps
+ * a few arrays per class for itself before sharing them, and the total
+ * retained size is capped.
+ *
+ * A plane that ends up inside an image shown on the panel belongs to that
+ * image and must not be released. Releasing an array twice, or using it
+ * after release, corrupts whoever leases it next.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BufferPool {
+    public static final String MAX_BYTES_PROPERTY = "qmul.bufferPool.maxBytes";
+    public static final String THREAD_CACHE_PROPERTY = "qmul.bufferPool.threadCacheSize";
+
+    private static final int MIN_BITS = 10;
+    private static final int MIN_LENGTH = 1 << MIN_BITS;
+    // larger arrays are allocated and dropped without pooling
+    private static final int MAX_LENGTH = 1 << 28;
+    private static final int NUM_CLASSES = sizeClass(MAX_LENGTH) + 1;
+
+    private static final BufferPool SHARED = new BufferPool(
+            Long.getLong(MAX_BYTES_PROPERTY, Runtime.getRuntime().maxMemory() / 8),
+            Integer.getInteger(THREAD_CACHE_PROPERTY, 4));
+
+    private final long maxRetainedBytes;
+    private final int threadCacheSize;
+    private final ConcurrentLinkedDeque<int[]>[] shared;
+    private final ThreadLocal<ArrayDeque<int[]>[]> local;
+
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+  /**
+   * This constructor creates an empty pool
+   *
+   * @param maxRetainedBytes  upper limit of the memory kept by idle arrays
+   * @param threadCacheSize   arrays per size class kept by each thread
+   */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(long maxRetainedBytes, int threadCacheSize) {
+        if (maxRetainedBytes < 0 || threadCacheSize < 0) {
+            throw new IllegalArgumentException("pool limits must not be negative");
+        }
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.threadCacheSize = threadCacheSize;
+        this.shared = new ConcurrentLinkedDeque[NUM_CLASSES];
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            shared[i] = new ConcurrentLinkedDeque<>();
+        }
+        this.local = ThreadLocal.withInitial(() -> new ArrayDeque[NUM_CLASSES]);
+    }
+
+  /**
+   * This method return the pool used by the filters
+   *
+   * @return BufferPool
+   */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+  /**
+   * This method leases an array of at least the given length. The content is undefined.
+   *
+   * @param minLength   required length
+   * @return int array
+   */
+    public int[] lease(int minLength) {
+        int[] array = poll(minLength);
+        return array != null ? array : allocate(minLength);
+    }
+
+  /**
+   * This method leases an array of at least the given length whose first minLength samples are zero
+   *
+   * @param minLength   required length
+   * @return int array
+   */
+    public int[] leaseCleared(int minLength) {
+        int[] array = poll(minLength);
+        if (array == null) {
+            // freshly allocated arrays are already zero
+            return allocate(minLength);
+        }
+        Arrays.fill(array, 0, minLength, 0);
+        return array;
+    }
+
+  /**
+   * This method leases an image buffer whose planes come from the pool
+   *
+   * @param width       image width
+   * @param height      image height
+   * @param numPlanes   number of channels
+   * @return image buffer with a stride of width
+   */
+    public ImageBuffer leaseBuffer(int width, int height, int numPlanes) {
+        int[][] planes = new int[numPlanes][];
+        for (int plane = 0; plane < numPlanes; plane++) {
+            planes[plane] = lease(width * height);
+        }
+        return new ImageBuffer(width, height, width, planes);
+    }
+
+  /**
+   * This method returns an array to the pool. Arrays that were not leased from
+   * a pool, or that do not fit under the cap, are left to the garbage collector.
+   *
+   * @param array       leased array, may be null
+   */
+    public void release(int[] array) {
+        if (array == null) {
+            return;
+        }
+        int length = array.length;
+        if (length < MIN_LENGTH || length > MAX_LENGTH || classLength(sizeClass(length)) != length) {
+            discards.increment();
+            return;
+        }
+        long bytes = 4L * length;
+        if (retainedBytes.addAndGet(bytes) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-bytes);
+            discards.increment();
+            return;
+        }
+        releases.increment();
+        int sizeClass = sizeClass(length);
+        ArrayDeque<int[]>[] caches = local.get();
+        ArrayDeque<int[]> cache = caches[sizeClass];
+        if (cache == null && threadCacheSize > 0) {
+            cache = caches[sizeClass] = new ArrayDeque<>(threadCacheSize);
+        }
+        if (cache != null && cache.size() < threadCacheSize) {
+            cache.addFirst(array);
+        } else {
+            shared[sizeClass].addFirst(array);
+        }
+    }
+
+  /**
+   * This method returns every plane of an image buffer to the pool
+   *
+   * @param buffer      image buffer whose planes were leased, may be null
+   */
+    public void release(ImageBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        for (int[] plane : buffer.getPlanes()) {
+            release(plane);
+        }
+    }
+
+  /**
+   * This method drops the shared arrays and the arrays cached by the calling thread
+   */
+    public void clear() {
+        for (ArrayDeque<int[]> cache : local.get()) {
+            drain(cache);
+        }
+        for (ConcurrentLinkedDeque<int[]> deque : shared) {
+            drain(deque);
+        }
+    }
+
+    private int[] poll(int minLength) {
+        if (minLength > MAX_LENGTH) {
+            return null;
+        }
+        int sizeClass = sizeClass(minLength);
+        ArrayDeque<int[]> cache = local.get()[sizeClass];
+        int[] array = cache != null ? cache.pollFirst() : null;
+        if (array == null) {
+            array = shared[sizeClass].pollFirst();
+        }
+        if (array != null) {
+            retainedBytes.addAndGet(-4L * array.length);
+            hits.increment();
+        }
+        return array;
+    }
+
+    private int[] allocate(int minLength) {
+        misses.increment();
+        return new int[minLength > MAX_LENGTH ? minLength : classLength(sizeClass(minLength))];
+    }
+
+    private void drain(Deque<int[]> deque) {
+        if (deque == null) {
+            return;
+        }
+        int[] array;
+        while ((array = deque.pollFirst()) != null) {
+            retainedBytes.addAndGet(-4L * array.length);
+        }
+    }
+
+    /**
+    * This method return the number of leases served with a pooled array
+    *
+    * @return long
+    */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+    * This method return the number of leases that had to allocate
+    *
+    * @return long
+    */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+    * This method return the number of arrays taken back into the pool
+    *
+    * @return long
+    */
+    public long getReleases() {
+        return releases.sum();
+    }
+
+    /**
+    * This method return the number of released arrays that were dropped
+    *
+    * @return long
+    */
+    public long getDiscards() {
+        return discards.sum();
+    }
+
+    /**
+    * This method return the memory held by idle arrays in bytes
+    *
+    * @return long
+    */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+    * This method return the configured cap of the retained memory in bytes
+    *
+    * @return long
+    */
+    public long getMaxRetainedBytes() {
+        return maxRetainedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BufferPool[hits=%d, misses=%d, releases=%d, discards=%d, retained=%d bytes]",
+                getHits(), getMisses(), getReleases(), getDiscards(), getRetainedBytes());
+    }
+
+    // lengths up to 2^MIN_BITS share class 0, above that every power of two is split in four
+    private static int sizeClass(int length) {
+        if (length <= MIN_LENGTH) {
+            return 0;
+        }
+        int m = length - 1;
+        int bits = 31 - Integer.numberOfLeadingZeros(m);
+        int quarter = (m >>> (bits - 2)) & 3;
+        return 1 + (bits - MIN_BITS) * 4 + quarter;
+    }
+
+    private static int classLength(int sizeClass) {
+        if (sizeClass == 0) {
+            return MIN_LENGTH;
+        }
+        int bits = MIN_BITS + (sizeClass - 1) / 4;
+        int quarter = (sizeClass - 1) % 4;
+        return (5 + quarter) << (bits - 2);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Description: Table driven colour space conversion. Gamma expansion,
+ * luminance weighting and gamma compression are done with precomputed
+ * tables and fixed-point integer arithmetic instead of Math.pow.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+public class ColourConverter {
+
+    public enum Conversion {
+        /** gamma expanded Rec.709 luminance, gamma compressed again (the editor's grayscale) */
+        REC709_GAMMA,
+        /** Rec.601 luma computed directly on the gamma encoded values */
+        REC601_LUMA,
+        /** mean of the three channels */
+        AVERAGE
+    }
+
+    private static final double GAMMA = 2.2;
+
+    // linear light and the luminance weights are both held with 24 fractional bits
+    private static final int LINEAR_BITS = 24;
+    private static final int WEIGHT_BITS = 24;
+    private static final int LUMINANCE_BITS = LINEAR_BITS + WEIGHT_BITS;
+    private static final int COARSE_SHIFT = LUMINANCE_BITS - 16;
+
+    // green takes the rounding remainder so that the weights sum to exactly one
+    private static final long RED_709   = Math.round(0.2126 * (1 << WEIGHT_BITS));
+    private static final long BLUE_709  = Math.round(0.0722 * (1 << WEIGHT_BITS));
+    private static final long GREEN_709 = (1 << WEIGHT_BITS) - RED_709 - BLUE_709;
+
+    private static final int RED_601   = 77;
+    private static final int GREEN_601 = 150;
+    private static final int BLUE_601  = 29;
+
+    private static final long[] SRGB_TO_LINEAR = new long[256];
+    // smallest fixed-point luminance that compresses to each gray level
+    private static final long[] LEVEL_THRESHOLD = new long[257];
+    // gray level at the start of each coarse luminance bucket
+    private static final byte[] COARSE_LEVEL = new byte[(1 << 16) + 1];
+
+    static {
+        for (int level = 0; level < 256; level++) {
+            SRGB_TO_LINEAR[level] = Math.round(Math.pow(level / 255.0, GAMMA) * (1L << LINEAR_BITS));
+            LEVEL_THRESHOLD[level] = (long) Math.ceil(Math.pow(level / 255.0, GAMMA) * (1L << LUMINANCE_BITS));
+        }
+        LEVEL_THRESHOLD[256] = Long.MAX_VALUE;
+        int level = 0;
+        for (int bucket = 0; bucket < COARSE_LEVEL.length; bucket++) {
+            long start = (long) bucket << COARSE_SHIFT;
+            while (start >= LEVEL_THRESHOLD[level + 1]) {
+                level++;
+            }
+            COARSE_LEVEL[bucket] = (byte) level;
+        }
+    }
+
+    private ColourConverter() {
+    }
+
+  /**
+   * This method converts the red, green and blue planes of an image buffer to a gray plane
+   *
+   * @param buffer      image buffer holding red, green and blue planes
+   * @param conversion  selected conversion
+   * @return single plane image buffer
+   */
+    public static ImageBuffer toGrayscale(ImageBuffer buffer, Conversion conversion) {
+        ImageBuffer grayscale = new ImageBuffer(buffer.getWidth(), buffer.getHeight(), 1);
+        toGrayscale(buffer, conversion, grayscale.getPlane(ImageBuffer.GRAY), grayscale.getStride());
+        return grayscale;
+    }
+
+  /**
+   * This method converts the red, green and blue planes of an image buffer into a given gray plane
+   *
+   * @param buffer      image buffer holding red, green and blue planes
+   * @param conversion  selected conversion
+   * @param gray        destination plane
+   * @param grayStride  distance between two rows of the destination plane
+   */
+    public static void toGrayscale(ImageBuffer buffer, Conversion conversion, int[] gray, int grayStride) {
+        int width  = buffer.getWidth();
+        int height = buffer.getHeight();
+        int stride = buffer.getStride();
+        int[] red   = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(ImageBuffer.BLUE);
+        for (int row = 0; row < height; row++) {
+            int idx = row * stride;
+            int outIdx = row * grayStride;
+            switch (conversion) {
+                case REC709_GAMMA:
+                    for (int col = 0; col < width; col++, idx++, outIdx++) {
+                        gray[outIdx] = rec709Gamma(red[idx], green[idx], blue[idx]);
+                    }
+                    break;
+                case REC601_LUMA:
+                    for (int col = 0; col < width; col++, idx++, outIdx++) {
+                        gray[outIdx] = rec601Luma(red[idx], green[idx], blue[idx]);
+                    }
+                    break;
+                default:
+                    for (int col = 0; col < width; col++, idx++, outIdx++) {
+                        gray[outIdx] = average(red[idx], green[idx], blue[idx]);
+                    }
+                    break;
+            }
+        }
+    }
+
+  /**
+   * This method return the gamma correct Rec.709 gray level of a pixel
+   *
+   * @param red     red value
+   * @param green   green value
+   * @param blue    blue value
+   * @return gray level
+   */
+    public static int rec709Gamma(int red, int green, int blue) {
+        if (((red | green | blue) & ~0xFF) != 0) {
+            return rec709GammaExact(red, green, blue);
+        }
+        long lum = RED_709 * SRGB_TO_LINEAR[red] + GREEN_709 * SRGB_TO_LINEAR[green] + BLUE_709 * SRGB_TO_LINEAR[blue];
+        return linearToSrgb(lum);
+    }
+
+  /**
+   * This method return the Rec.601 luma of a pixel, rounded to the nearest level
+   *
+   * @param red     red value
+   * @param green   green value
+   * @param blue    blue value
+   * @return luma
+   */
+    public static int rec601Luma(int red, int green, int blue) {
+        return (RED_601 * red + GREEN_601 * green + BLUE_601 * blue + 128) >> 8;
+    }
+
+  /**
+   * This method return the truncated mean of the three channels
+   *
+   * @param red     red value
+   * @param green   green value
+   * @param blue    blue value
+   * @return mean value
+   */
+    public static int average(int red, int green, int blue) {
+        int sum = red + green + blue;
+        // multiply-shift equals sum / 3 for every sum of three 8-bit values
+        return sum >= 0 && sum <= 765 ? (sum * 21846) >> 16 : sum / 3;
+    }
+
+  /**
+   * This method return the linear light value of an 8-bit sRGB level,
+   * with 24 fractional bits
+   *
+   * @param level   gamma encoded level
+   * @return fixed-point linear value
+   */
+    public static long srgbToLinear(int level) {
+        return SRGB_TO_LINEAR[level];
+    }
+
+  /**
+   * This method return the gamma encoded level of a fixed-point luminance
+   * with 48 fractional bits, truncated to the level below
+   *
+   * @param lum     fixed-point luminance
+   * @return gray level
+   */
+    public static int linearToSrgb(long lum) {
+        int level = COARSE_LEVEL[(int) (lum >>> COARSE_SHIFT)] & 0xFF;
+        while (lum >= LEVEL_THRESHOLD[level + 1]) {
+            level++;
+        }
+        return level;
+    }
+
+  /**
+   * This method keeps the floating point behaviour for samples outside 0..255,
+   * which only occur on unclamped convolution results
+   */
+    private static int rec709GammaExact(int red, int green, int blue) {
+        double redPixel   = Math.pow(red / 255.0, GAMMA);
+        double greenPixel = Math.pow(green / 255.0, GAMMA);
+        double bluePixel  = Math.pow(blue / 255.0, GAMMA);
+        double lum = 0.2126 * redPixel + 0.7152 * greenPixel + 0.0722 * bluePixel;
+        return (int) (255.0 * Math.pow(lum, 1.0 / GAMMA));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Description: Histogram of the levels 0 to 255 of one or more image
+ * channels, as computed by HistogramService. A histogram is never changed
+ * after it is computed, so one instance can be shared by every filter that
+ * reads the same image.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+public final class Histogram {
+    public static final int LEVELS = 256;
+
+    /*
+     * What a histogram counts: the red, green and blue channels, the
+     * luminance the thresholding and equalisation filters work on, or the
+     * Rec.601 luma colour equalisation works on.
+     */
+    public enum Source {
+        RGB,
+        LUMINANCE,
+        LUMA
+    }
+
+    private final long[][] counts;
+    private final long total;
+
+    Histogram(long[][] counts, long total) {
+        this.counts = counts;
+        this.total = total;
+    }
+
+    /**
+    * This method return the number of histogram channels
+    *
+    * @return int
+    */
+    public int getNumChannels() {
+        return counts.length;
+    }
+
+    /**
+    * This method return the number of pixels counted in every channel
+    *
+    * @return long
+    */
+    public long getTotal() {
+        return total;
+    }
+
+  /**
+   * This method return the number of pixels of a level
+   *
+   * @param channel     histogram channel, 0 for a luminance histogram
+   * @param level       level from 0 to 255
+   * @return long
+   */
+    public long getCount(int channel, int level) {
+        return counts[channel][level];
+    }
+
+  /**
+   * This method return a copy of the counts of a channel
+   *
+   * @param channel     histogram channel, 0 for a luminance histogram
+   * @return counts indexed by level
+   */
+    public long[] getCounts(int channel) {
+        return counts[channel].clone();
+    }
+
+  /**
+   * This method return the cumulative counts of a channel, the number of
+   * pixels at or below each level
+   *
+   * @param channel     histogram channel, 0 for a luminance histogram
+   * @return cumulative counts indexed by level
+   */
+    public long[] getCumulative(int channel) {
+        long[] cumulative = new long[LEVELS];
+        long sum = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            sum += counts[channel][level];
+            cumulative[level] = sum;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Description: Computes histograms from image planes in one pass over the
+ * samples. Bands of rows are counted in parallel, each into bins of its
+ * own that are added to the result when the band is done, so the threads
+ * never share a counter. Within a band four interleaved sets of bins take
+ * consecutive pixels, so runs of equal levels do not wait on the same
+ * counter.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public final class HistogramService {
+    private static final int[] RGB_CHANNELS = {ImageBuffer.RED, ImageBuffer.GREEN, ImageBuffer.BLUE};
+    // interleaved sets of bins of a band
+    private static final int SETS = 4;
+
+    private HistogramService() {
+    }
+
+  /**
+   * This method computes the histograms of planes of an image buffer
+   *
+   * @param buffer      image buffer of levels 0 to 255
+   * @param channels    planes to count, one histogram channel each
+   * @return Histogram
+   */
+    public static Histogram compute(ImageBuffer buffer, int[] channels) {
+        long[][] counts = new long[channels.length][Histogram.LEVELS];
+        accumulate(buffer, channels, counts);
+        return new Histogram(counts, (long) buffer.getWidth() * buffer.getHeight());
+    }
+
+  /**
+   * This method computes a histogram from planes already converted for its source,
+   * the red, green and blue planes for RGB and LUMA or the single luminance plane of
+   * ImageUtil.convertImageToByteGrayBuffer
+   *
+   * @param planes      converted planes
+   * @param source      channels the planes hold
+   * @return Histogram
+   */
+    public static Histogram compute(ImageBuffer planes, Histogram.Source source) {
+        if (source == Histogram.Source.LUMA) {
+            long[][] counts = new long[1][Histogram.LEVELS];
+            accumulateLuma(planes, counts);
+            return new Histogram(counts, (long) planes.getWidth() * planes.getHeight());
+        }
+        return compute(planes, channels(source));
+    }
+
+  /**
+   * This method computes the red, green and blue, the luminance or the luma histogram of an image
+   *
+   * @param bi          buffered image
+   * @param source      channels to count
+   * @return Histogram
+   */
+    public static Histogram compute(BufferedImage bi, Histogram.Source source) {
+        long[][] counts = new long[channelCount(source)][Histogram.LEVELS];
+        accumulate(bi, source, counts);
+        return new Histogram(counts, (long) bi.getWidth() * bi.getHeight());
+    }
+
+  /**
+   * This method computes the red, green and blue, the luminance or the luma
+   * histogram of a tiled image, one tile at a time
+   *
+   * @param image       tiled image
+   * @param source      channels to count
+   * @return Histogram
+   */
+    public static Histogram compute(TiledImage image, Histogram.Source source) {
+        long[][] counts = new long[channelCount(source)][Histogram.LEVELS];
+        int tilesX = image.getNumXTiles();
+        int tilesY = image.getNumYTiles();
+        // a tile row of bins is small next to the tiles, each band adds its own
+        ParallelBands.forEach(0, tilesY, (long) image.getWidth() * image.getTileHeight(), (first, end) -> {
+            long[][] bandCounts = new long[counts.length][Histogram.LEVELS];
+            for (int tileY = first; tileY < end; tileY++) {
+                for (int tileX = 0; tileX < tilesX; tileX++) {
+                    accumulate(image.getTileImage(tileX, tileY), source, bandCounts);
+                }
+            }
+            add(bandCounts, counts);
+        });
+        return new Histogram(counts, (long) image.getWidth() * image.getHeight());
+    }
+
+    private static int channelCount(Histogram.Source source) {
+        return channels(source).length;
+    }
+
+    private static int[] channels(Histogram.Source source) {
+        return source == Histogram.Source.RGB ? RGB_CHANNELS : new int[] {ImageBuffer.GRAY};
+    }
+
+    private static void accumulate(BufferedImage bi, Histogram.Source source, long[][] counts) {
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer planes = source == Histogram.Source.LUMINANCE ? ImageUtil.convertImageToByteGrayBuffer(bi, pool)
+                                                                  : ImageUtil.convertImageToRgbBuffer(bi, pool);
+        if (source == Histogram.Source.LUMA) {
+            accumulateLuma(planes, counts);
+        } else {
+            accumulate(planes, channels(source), counts);
+        }
+        pool.release(planes);
+    }
+
+  /**
+   * This method counts the Rec.601 luma of red, green and blue planes as it
+   * reads them, without a luma plane
+   */
+    private static void accumulateLuma(ImageBuffer buffer, long[][] counts) {
+        int width = buffer.getWidth();
+        int stride = buffer.getStride();
+        int[] red = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue = buffer.getPlane(ImageBuffer.BLUE);
+        ParallelBands.forEach(0, buffer.getHeight(), 3L * width, (first, end) -> {
+            int[] bins = new int[Histogram.LEVELS];
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                for (int col = 0; col < width; col++, idx++) {
+                    bins[ColourConverter.rec601Luma(red[idx], green[idx], blue[idx])]++;
+                }
+            }
+            long[][] bandCounts = new long[1][Histogram.LEVELS];
+            for (int level = 0; level < Histogram.LEVELS; level++) {
+                bandCounts[0][level] = bins[level];
+            }
+            add(bandCounts, counts);
+        });
+    }
+
+    private static void accumulate(ImageBuffer buffer, int[] channels, long[][] counts) {
+        int width = buffer.getWidth();
+        int stride = buffer.getStride();
+        ParallelBands.forEach(0, buffer.getHeight(), (long) channels.length * width, (first, end) -> {
+            int[] bins = new int[SETS * Histogram.LEVELS];
+            long[][] bandCounts = new long[channels.length][Histogram.LEVELS];
+            for (int channel = 0; channel < channels.length; channel++) {
+                int[] plane = buffer.getPlane(channels[channel]);
+                for (int row = first; row < end; row++) {
+                    int idx = row * stride;
+                    int rowEnd = idx + width;
+                    for (; idx + SETS <= rowEnd; idx += SETS) {
+                        bins[plane[idx]]++;
+                        bins[Histogram.LEVELS + plane[idx + 1]]++;
+                        bins[2 * Histogram.LEVELS + plane[idx + 2]]++;
+                        bins[3 * Histogram.LEVELS + plane[idx + 3]]++;
+                    }
+                    for (; idx < rowEnd; idx++) {
+                        bins[plane[idx]]++;
+                    }
+                }
+                for (int level = 0; level < Histogram.LEVELS; level++) {
+                    bandCounts[channel][level] = (long) bins[level] + bins[Histogram.LEVELS + level]
+                            + bins[2 * Histogram.LEVELS + level] + bins[3 * Histogram.LEVELS + level];
+                }
+                Arrays.fill(bins, 0);
+            }
+            add(bandCounts, counts);
+        });
+    }
+
+    private static void add(long[][] bandCounts, long[][] counts) {
+        synchronized (counts) {
+            for (int channel = 0; channel < counts.length; channel++) {
+                for (int level = 0; level < Histogram.LEVELS; level++) {
+                    counts[channel][level] += bandCounts[channel][level];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Description: Planar image buffer. Each channel is stored in its own
+ * contiguous row-major int array, addressed as y * stride + x.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+public class ImageBuffer {
+    public static final int RED   = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE  = 2;
+    public static final int ALPHA = 3;
+    public static final int GRAY  = 0;
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int[][] planes;
+
+  /**
+   * This constructor allocates a buffer with one plane per channel.
+   *
+   * @param width       image width
+   * @param height      image height
+   * @param numPlanes   number of channels
+   */
+    public ImageBuffer(int width, int height, int numPlanes) {
+        this(width, height, width, new int[numPlanes][width * height]);
+    }
+
+  /**
+   * This constructor wraps existing planes without copying them.
+   *
+   * @param width       image width
+   * @param height      image height
+   * @param stride      number of samples between the start of two rows
+   * @param planes      channel planes, each at least stride * height long
+   */
+    public ImageBuffer(int width, int height, int stride, int[][] planes) {
+        if (stride < width) {
+            throw new IllegalArgumentException("stride " + stride + " is smaller than width " + width);
+        }
+        for (int[] plane : planes) {
+            if (plane.length < stride * height) {
+                throw new IllegalArgumentException("plane is smaller than stride * height");
+            }
+        }
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        this.planes = planes;
+    }
+
+    /**
+    * This method return the image width
+    *
+    * @return int
+    */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+    * This method return the image height
+    *
+    * @return int
+    */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+    * This method return the distance between two rows in samples
+    *
+    * @return int
+    */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+    * This method return the number of channels
+    *
+    * @return int
+    */
+    public int getNumPlanes() {
+        return planes.length;
+    }
+
+    /**
+    * This method return a channel plane
+    *
+    * @param plane      channel index
+    * @return int array
+    */
+    public int[] getPlane(int plane) {
+        return planes[plane];
+    }
+
+    /**
+    * This method return all channel planes
+    *
+    * @return 2d int array
+    */
+    public int[][] getPlanes() {
+        return planes;
+    }
+
+    /**
+    * This method return the array index of a pixel
+    *
+    * @param x          column
+    * @param y          row
+    * @return int
+    */
+    public int index(int x, int y) {
+        return y * stride + x;
+    }
+
+    /**
+    * This method return a sample value
+    *
+    * @param plane      channel index
+    * @param x          column
+    * @param y          row
+    * @return int
+    */
+    public int getSample(int plane, int x, int y) {
+        return planes[plane][y * stride + x];
+    }
+
+    /**
+    * This method set a sample value
+    *
+    * @param plane      channel index
+    * @param x          column
+    * @param y          row
+    * @param value      sample value
+    */
+    public void setSample(int plane, int x, int y, int value) {
+        planes[plane][y * stride + x] = value;
+    }
+
+    /**
+    * This method return a new buffer of the same size and number of channels
+    *
+    * @return ImageBuffer
+    */
+    public ImageBuffer createCompatible() {
+        return new ImageBuffer(width, height, planes.length);
+    }
+
+    /**
+    * This method return a new buffer of the same size
+    *
+    * @param numPlanes  number of channels
+    * @return ImageBuffer
+    */
+    public ImageBuffer createCompatible(int numPlanes) {
+        return new ImageBuffer(width, height, numPlanes);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Description: Statistics of the channels of an image as computed by
+ * StatisticsService: minimum, maximum, sum, mean, variance and percentiles.
+ * Sums are kept as exact integers, so the statistics do not depend on the
+ * order the pixels were added in. Statistics are never changed after they
+ * are computed and can be shared by every filter that reads the same image.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+public final class ImageStatistics {
+    private final int[] min;
+    private final int[] max;
+    private final long[] sum;
+    private final long[] sumOfSquares;
+    private final long[][] counts;
+    private final long total;
+
+    ImageStatistics(int[] min, int[] max, long[] sum, long[] sumOfSquares, long[][] counts, long total) {
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.sumOfSquares = sumOfSquares;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    /**
+    * This method return the number of channels
+    *
+    * @return int
+    */
+    public int getNumChannels() {
+        return min.length;
+    }
+
+    /**
+    * This method return the number of pixels of every channel
+    *
+    * @return long
+    */
+    public long getTotal() {
+        return total;
+    }
+
+  /**
+   * This method return the smallest value of a channel
+   *
+   * @param channel     statistics channel
+   * @return int
+   */
+    public int getMin(int channel) {
+        return min[channel];
+    }
+
+  /**
+   * This method return the largest value of a channel
+   *
+   * @param channel     statistics channel
+   * @return int
+   */
+    public int getMax(int channel) {
+        return max[channel];
+    }
+
+  /**
+   * This method return the sum of the values of a channel
+   *
+   * @param channel     statistics channel
+   * @return long
+   */
+    public long getSum(int channel) {
+        return sum[channel];
+    }
+
+  /**
+   * This method return the sum of the squared values of a channel
+   *
+   * @param channel     statistics channel
+   * @return long
+   */
+    public long getSumOfSquares(int channel) {
+        return sumOfSquares[channel];
+    }
+
+  /**
+   * This method return the mean of a channel
+   *
+   * @param channel     statistics channel
+   * @return double
+   */
+    public double getMean(int channel) {
+        return total == 0 ? 0 : (double) sum[channel] / total;
+    }
+
+  /**
+   * This method return the population variance of a channel
+   *
+   * @param channel     statistics channel
+   * @return double
+   */
+    public double getVariance(int channel) {
+        if (total == 0) {
+            return 0;
+        }
+        // total times the sum of squared deviations
+        double spread = (double) total * sumOfSquares[channel] - (double) sum[channel] * sum[channel];
+        return Math.max(0, spread) / ((double) total * total);
+    }
+
+  /**
+   * This method return the standard deviation of a channel
+   *
+   * @param channel     statistics channel
+   * @return double
+   */
+    public double getStandardDeviation(int channel) {
+        return Math.sqrt(getVariance(channel));
+    }
+
+  /**
+   * This method return the number of pixels of a level of a channel, values
+   * outside 0 to 255 counted at the nearest level
+   *
+   * @param channel     statistics channel
+   * @param level       level from 0 to 255
+   * @return long
+   */
+    public long getCount(int channel, int level) {
+        return counts[channel][level];
+    }
+
+  /**
+   * This method return a percentile of a channel, the smallest level with at
+   * least that percentage of the pixels at or below it
+   *
+   * @param channel     statistics channel
+   * @param percent     percentage from 0 to 100
+   * @return level from 0 to 255
+   */
+    public int getPercentile(int channel, double percent) {
+        if (percent <= 0) {
+            return Math.max(0, Math.min(Histogram.LEVELS - 1, min[channel]));
+        }
+        double rank = Math.min(percent, 100) / 100 * total;
+        long below = 0;
+        for (int level = 0; level < Histogram.LEVELS; level++) {
+            below += counts[channel][level];
+            if (below >= rank) {
+                return level;
+            }
+        }
+        return Histogram.LEVELS - 1;
+    }
+}
@@ -5,163 +5,350 @@
  */
 package com.qmul.imgUtil;
 
-import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 public class ImageUtil {
+    // samples per plane copied at once when an image is moved into a store
+    private static final int STORE_BAND_PIXELS = 1 << 20;
 
-    public static int[][][] convertImageToMatrix(BufferedImage bi) {
+  /**
+   * This method converts buffered image to a planar image buffer
+   * 
+   * @param bi           buffered image
+   * @return image buffer holding red, green, blue and alpha planes
+   */     
+    public static ImageBuffer convertImageToBuffer(BufferedImage bi) {
         int width  = bi.getWidth(null);
         int height = bi.getHeight(null);  
-        Color color;
-        int[][][] imgMatrix = new int[4][width][height];
-        for (int row = 0; row < width; row++) {
-            for (int col = 0; col < height; col++) {
-                color = new Color(bi.getRGB(row, col));
-                imgMatrix[0][row][col] = color.getRed();
-                imgMatrix[1][row][col] = color.getGreen();
-                imgMatrix[2][row][col] = color.getBlue();
-                imgMatrix[3][row][col] = color.getAlpha();
-            }
-        }
-        return imgMatrix;
+        ImageBuffer buffer = new ImageBuffer(width, height, 4);
+        RasterUtil.readArgb(bi, buffer);
+        return buffer;
     } 
 
   /**
-   * This method converts 3d array to buffered image
+   * This method converts buffered image to a planar image buffer leased from a pool.
+   * The caller releases the buffer to the pool when it is no longer used.
    * 
-   * @param rgbArray           image rgb channels
-   * @return buffered Image
+   * @param bi           buffered image
+   * @param pool         pool providing the planes
+   * @return image buffer holding red, green, blue and alpha planes
    */     
-    public static BufferedImage convertArrayToBufferedImg(int[][][] rgbArray) throws IOException {
-
-        int width = rgbArray.length;
-        int height = rgbArray[0].length;
-
-        BufferedImage bi = new BufferedImage(width,height,BufferedImage.TYPE_INT_RGB);
-
-        for(int row = 0; row < width; row++){
-            for(int col = 0; col < height; col++){
-                int pixelAlpha = rgbArray[0][row][col];
-                int pixelRed   = rgbArray[1][row][col];
-                int pixelGreen = rgbArray[2][row][col];
-                int pixelBlue  = rgbArray[3][row][col];
-                
-                int pixels = (pixelAlpha << 24) | (pixelRed << 16) | (pixelGreen << 8) | pixelBlue;
-                bi.setRGB(row, col, pixels);
-            }
+    public static ImageBuffer convertImageToBuffer(BufferedImage bi, BufferPool pool) {
+        ImageBuffer buffer = pool.leaseBuffer(bi.getWidth(null), bi.getHeight(null), 4);
+        RasterUtil.readArgb(bi, buffer);
+        return buffer;
+    } 
+
+  /**
+   * This method converts buffered image to a planar image buffer of its colour
+   * channels leased from a pool, for filters whose output has no alpha.
+   * The caller releases the buffer to the pool when it is no longer used.
+   * 
+   * @param bi           buffered image
+   * @param pool         pool providing the planes
+   * @return image buffer holding red, green and blue planes
+   */     
+    public static ImageBuffer convertImageToRgbBuffer(BufferedImage bi, BufferPool pool) {
+        ImageBuffer buffer = pool.leaseBuffer(bi.getWidth(null), bi.getHeight(null), 3);
+        RasterUtil.readArgb(bi, buffer);
+        return buffer;
+    } 
+
+    /**
+    * This method copies the raw raster samples of a buffered image to an image buffer.
+    * Unlike convertImageToBuffer no colour conversion is applied, so a TYPE_BYTE_GRAY
+    * image yields its stored (linear) gray samples.
+    * 
+    * @param bi         buffered image
+    * @return image buffer with one plane per raster band
+    */     
+    public static ImageBuffer convertRasterToBuffer(BufferedImage bi) {
+        Raster raster = bi.getRaster();
+        return readRaster(bi, new ImageBuffer(raster.getWidth(), raster.getHeight(), raster.getNumBands()));
+    }
+
+    /**
+    * This method copies the raw raster samples of a buffered image to an image buffer
+    * leased from a pool. The caller releases the buffer to the pool when it is no longer used.
+    * 
+    * @param bi         buffered image
+    * @param pool       pool providing the planes
+    * @return image buffer with one plane per raster band
+    */     
+    public static ImageBuffer convertRasterToBuffer(BufferedImage bi, BufferPool pool) {
+        Raster raster = bi.getRaster();
+        return readRaster(bi, pool.leaseBuffer(raster.getWidth(), raster.getHeight(), raster.getNumBands()));
+    }
+
+    private static ImageBuffer readRaster(BufferedImage bi, ImageBuffer buffer) {
+        int bands = buffer.getNumPlanes();
+        for (int band = 0; band < bands; band++) {
+            RasterUtil.readSamples(bi, band, buffer.getPlane(band), buffer.getStride());
         }
-        return bi;
+        return buffer;
+    }
+
+    /**
+    * This method copies a buffered image into a memory-mapped image store,
+    * one band of rows at a time
+    * 
+    * @param bi           buffered image
+    * @return image store holding red, green, blue and alpha planes
+    */     
+    public static MappedImageStore convertImageToStore(BufferedImage bi) throws IOException {
+        int width  = bi.getWidth(null);
+        int height = bi.getHeight(null);  
+        MappedImageStore store = new MappedImageStore(width, height, 4);
+        int bandHeight = Math.max(1, Math.min(height, STORE_BAND_PIXELS / width));
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer band = pool.leaseBuffer(width, bandHeight, 4);
+        for (int y = 0; y < height; y += bandHeight) {
+            int rows = Math.min(bandHeight, height - y);
+            ImageBuffer part = rows == bandHeight ? band : new ImageBuffer(width, rows, width, band.getPlanes());
+            RasterUtil.readArgb(bi, 0, y, part);
+            store.writeBand(y, part);
+        }
+        pool.release(band);
+        return store;
+    } 
+
+    /**
+    * This method converts an image buffer to buffered image
+    * 
+    * @param buffer         image buffer holding red, green and blue planes, alpha is not used
+    * @return buffered Image
+    */     
+    public static BufferedImage convertBufferToBufferedImg(ImageBuffer buffer) throws IOException {
+        return createRgbImage(buffer);
     }  
 
     /**
-    * This method converts 3d array to buffered image
+    * This method packs an image buffer into a TYPE_INT_RGB buffered image, the
+    * type Java2D draws fastest. The red, green and blue samples must be in the
+    * range 0 to 255. The image does not keep the buffer, so leased planes can
+    * be returned to the pool afterwards.
     * 
-    * @param redChannel         red channel
-    * @param greenChannel       green channel
-    * @param blueChannel        blue channel
-    * @param alphaChannel       alpha channel
+    * @param buffer         image buffer holding red, green and blue planes
     * @return buffered Image
     */     
-    public static BufferedImage convertArrayToBufferedImg(int[][] redChannel, int[][] greenChannel, int[][] blueChannel, int[][] alphaChannel) throws IOException {
-
-        int width = alphaChannel.length;
-        int height = alphaChannel[0].length;
-
-        BufferedImage bi = new BufferedImage(width,height,BufferedImage.TYPE_INT_RGB);
-
-        for(int row = 0; row < width; row++){
-            for(int col = 0; col < height; col++){
-                int pixelAlpha = alphaChannel[row][col];
-                int pixelRed   = redChannel[row][col];
-                int pixelGreen = greenChannel[row][col];
-                int pixelBlue  = blueChannel[row][col];
-                
-                int pixels = (pixelAlpha << 24) | (pixelRed << 16) | (pixelGreen << 8) | pixelBlue;
-                bi.setRGB(row, col, pixels);
-            }
-        }
+    public static BufferedImage createRgbImage(ImageBuffer buffer) {
+        BufferedImage bi = new BufferedImage(buffer.getWidth(), buffer.getHeight(), BufferedImage.TYPE_INT_RGB);
+        RasterUtil.writeIntRgb(buffer, bi);
         return bi;
-    }  
+    }
+
+    /**
+    * This method packs a single plane image buffer into a TYPE_INT_RGB buffered
+    * image whose red, green and blue samples are the gray level. The gray levels
+    * must be in the range 0 to 255. The image does not keep the buffer, so a
+    * leased plane can be returned to the pool afterwards.
+    * 
+    * @param grayscale      single plane image buffer
+    * @return buffered Image
+    */     
+    public static BufferedImage createGrayscaleRgbImage(ImageBuffer grayscale) {
+        BufferedImage bi = new BufferedImage(grayscale.getWidth(), grayscale.getHeight(), BufferedImage.TYPE_INT_RGB);
+        RasterUtil.writeIntGray(grayscale, bi);
+        return bi;
+    }
 
     /**
     * This method converts rgb to grayscale image
     * 
-    * @param bi         red channel
+    * @param bi         buffered image
     * @return buffered Image
     */     
     public static BufferedImage convertRgbToGrayscale(BufferedImage bi)throws IOException {
-        BufferedImage outputGrayscale = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-        int[][][] imageMatrix = convertImageToMatrix(bi);
-        for (int row = 0; row < bi.getWidth(); ++row){
-            for (int col = 0; col < bi.getHeight(); ++col)
-            {                
-                // Normalize and gamma correct:
-                double redPixel   = Math.pow(imageMatrix[0][row][col] / 255.0, 2.2);
-                double greenPixel = Math.pow(imageMatrix[1][row][col] / 255.0, 2.2);
-                double bluePixel  = Math.pow(imageMatrix[2][row][col] / 255.0, 2.2);
-
-                // Calculate luminance:
-                double lum = 0.2126 * redPixel + 0.7152 * greenPixel + 0.0722 * bluePixel;
-
-                // Gamma compand and rescale to byte range:
-                int grayLevel = (int) (255.0 * Math.pow(lum, 1.0 / 2.2));
-                int gray = (grayLevel << 16) + (grayLevel << 8) + grayLevel; 
-                outputGrayscale.setRGB(row, col, gray);
-            }
-        }
-        return outputGrayscale;
+        return convertGrayscaleToBufferedImg(convertRgbToGrayscale(convertImageToBuffer(bi)));
+    }
+
+    /**
+    * This method converts the rgb planes of an image buffer to a grayscale plane
+    * using gamma correct Rec.709 luminance
+    * 
+    * @param buffer     image buffer holding red, green and blue planes
+    * @return single plane image buffer
+    */    
+    public static ImageBuffer convertRgbToGrayscale(ImageBuffer buffer) {
+        return ColourConverter.toGrayscale(buffer, ColourConverter.Conversion.REC709_GAMMA);
     }
 
     /**
-    * This method converts 3d array to buffered image
+    * This method converts the rgb planes of an image buffer to a grayscale plane
+    * leased from a pool. The caller releases the result to the pool when it is no longer used.
     * 
-    * @param redChannel         red channel
-    * @param greenChannel       green channel
-    * @param blueChannel        blue channel
+    * @param buffer     image buffer holding red, green and blue planes
+    * @param pool       pool providing the plane
+    * @return single plane image buffer
+    */    
+    public static ImageBuffer convertRgbToGrayscale(ImageBuffer buffer, BufferPool pool) {
+        ImageBuffer grayscale = pool.leaseBuffer(buffer.getWidth(), buffer.getHeight(), 1);
+        ColourConverter.toGrayscale(buffer, ColourConverter.Conversion.REC709_GAMMA,
+                grayscale.getPlane(ImageBuffer.GRAY), grayscale.getStride());
+        return grayscale;
+    }
+
+    /**
+    * This method converts buffered image to the gray plane the thresholding and
+    * histogram equalisation filters work on: the luminance as stored by a
+    * TYPE_BYTE_GRAY image, without creating the image. The caller releases the
+    * result to the pool when it is no longer used.
+    * 
+    * @param bi         buffered image
+    * @param pool       pool providing the planes
+    * @return single plane image buffer of levels 0 to 255
+    */    
+    public static ImageBuffer convertImageToByteGrayBuffer(BufferedImage bi, BufferPool pool) {
+        ImageBuffer channels = convertImageToRgbBuffer(bi, pool);
+        ImageBuffer luminance = convertRgbToGrayscale(channels, pool);
+        pool.release(channels);
+        RasterUtil.storeByteGray(luminance);
+        return luminance;
+    }
+
+    /**
+    * This method converts a single plane image buffer to grayscale buffered image
+    * 
+    * @param grayscale  single plane image buffer
     * @return buffered Image
     */    
-    public static BufferedImage convertRgbToGrayscale(int[][] redChannel, int[][] greenChannel, int[][] blueChannel)throws IOException {
-        int width  = redChannel.length;
-        int height = redChannel[0].length;
-        double redPixel, greenPixel, bluePixel;         
-        BufferedImage outputGrayscale = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        for (int row = 0; row < width; ++row){
-            for (int col = 0; col < height; ++col)
-            {                
-                // Normalize and gamma correct:
-                redPixel   = Math.pow(redChannel[row][col] / 255.0, 2.2);
-                greenPixel = Math.pow(greenChannel[row][col] / 255.0, 2.2);
-                bluePixel  = Math.pow(blueChannel[row][col] / 255.0, 2.2);
-
-                // Calculate luminance:
-                double lum = 0.2126 * redPixel + 0.7152 * greenPixel + 0.0722 * bluePixel;
-
-                // Gamma compand and rescale to byte range:
-                int grayLevel = (int) (255.0 * Math.pow(lum, 1.0 / 2.2));
-                int gray = (grayLevel << 16) + (grayLevel << 8) + grayLevel; 
-                outputGrayscale.setRGB(row, col, gray);
-            }
-        }
+    public static BufferedImage convertGrayscaleToBufferedImg(ImageBuffer grayscale) throws IOException {
+        BufferedImage outputGrayscale = new BufferedImage(grayscale.getWidth(), grayscale.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        RasterUtil.writeByteGray(grayscale, outputGrayscale);
         return outputGrayscale;
     }
     
+    /**
+    * This method replaces the levels of a gray plane by the levels a TYPE_BYTE_GRAY
+    * image returns for them, so a gray plane shown directly looks the same as one
+    * converted with convertGrayscaleToBufferedImg
+    * 
+    * @param grayscale  single plane image buffer
+    */    
+    public static void quantiseToByteGray(ImageBuffer grayscale) {
+        RasterUtil.quantiseByteGray(grayscale);
+    }
+    
+    /**
+    * This method replaces the red, green and blue samples of an image buffer in
+    * place by their entries in a table of each channel, in bands of rows on the
+    * parallel pool
+    * 
+    * @param channels   image buffer holding red, green and blue planes of levels 0 to 255
+    * @param red        new level of each red level
+    * @param green      new level of each green level
+    * @param blue       new level of each blue level
+    */    
+    public static void mapChannels(ImageBuffer channels, int[] red, int[] green, int[] blue) {
+        int width = channels.getWidth();
+        int stride = channels.getStride();
+        int[] redPlane = channels.getPlane(ImageBuffer.RED);
+        int[] greenPlane = channels.getPlane(ImageBuffer.GREEN);
+        int[] bluePlane = channels.getPlane(ImageBuffer.BLUE);
+        ParallelBands.forEach(0, channels.getHeight(), 3L * width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                for (int col = 0; col < width; col++, idx++) {
+                    redPlane[idx] = red[redPlane[idx]];
+                    greenPlane[idx] = green[greenPlane[idx]];
+                    bluePlane[idx] = blue[bluePlane[idx]];
+                }
+            }
+        });
+    }
+
+    /**
+    * This method return the levels a TYPE_BYTE_GRAY image returns for the levels
+    * 0 to 255 written to it, what reading a grayscale image back as colour gives
+    * 
+    * @return table indexed by level
+    */    
+    public static int[] getByteGrayLevels() {
+        return RasterUtil.byteGrayLevelTable().clone();
+    }
+
+    /**
+    * This method return the samples a TYPE_BYTE_GRAY image stores for the levels
+    * 0 to 255 written to it, what reading its raster back gives
+    * 
+    * @return table indexed by level
+    */    
+    public static int[] getByteGraySamples() {
+        return RasterUtil.byteGraySampleTable().clone();
+    }
+
+    /**
+    * This method converts a single plane mask to a binary buffered image
+    * 
+    * @param mask       single plane image buffer, zero is black and any other value white
+    * @return buffered Image
+    */    
+    public static BufferedImage convertBinaryToBufferedImg(ImageBuffer mask) throws IOException {
+        BufferedImage outputBinary = new BufferedImage(mask.getWidth(), mask.getHeight(), BufferedImage.TYPE_BYTE_BINARY);
+        RasterUtil.writeByteBinary(mask, outputBinary);
+        return outputBinary;
+    }
+    
     /**
     * This method save the image into a file
     * 
     * @param path            path to file
-    * @param imageRGB        rgb channels
+    * @param buffer          image buffer holding red, green, blue and alpha planes
+    * @return File
+    */     
+    public static File saveBufferAsImage(String path, ImageBuffer buffer) throws IOException {
+        File outputFile = new File(path);
+        ImageIO.write(convertBufferToBufferedImg(buffer), "png", outputFile);
+        return outputFile;
+    }  
+
+    /**
+    * This method save an image into a file. A tiled image is written
+    * band by band without being copied as a whole.
+    * 
+    * @param path            path to file
+    * @param image           buffered or tiled image
     * @return File
     */     
-    public static File saveMatrixAsImage(String path, int[][][] imageRGB) throws IOException {
+    public static File saveImage(String path, RenderedImage image) throws IOException {
         File outputFile = new File(path);
-        ImageIO.write(convertArrayToBufferedImg(imageRGB), "png", outputFile);
+        if (!ImageIO.write(image, "png", outputFile)) {
+            throw new IOException("No png writer for the image");
+        }
         return outputFile;
     }  
 
+    /**
+    * This method reads the size of an image file without decoding the pixels
+    * 
+    * @param file            image file
+    * @return Dimension
+    */     
+    public static Dimension readImageSize(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("No image reader for " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }  
+
     /**
     * This method normalise the pixel value
     * 
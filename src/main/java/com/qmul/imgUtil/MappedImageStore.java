@@ -0,0 +1,277 @@
+/*
+ * Description: Image planes kept in a memory-mapped scratch file instead of
+ * the Java heap. Each plane is stored row after row as 32-bit samples and
+ * mapped in chunks of whole rows of at most 1 GiB, so images of any size
+ * can be stored and the operating system page cache decides what stays in
+ * memory. Samples are copied in and out in row bands.
+ *
+ * On POSIX file systems the scratch file is unlinked as soon as it is
+ * mapped, so its space is returned when the mappings are released or the
+ * JVM exits, however it exits. Elsewhere a mapped file cannot be deleted,
+ * so it is deleted when the store is closed, once the store is no longer
+ * reachable, or at the latest when the JVM exits. Mappings themselves are
+ * released by the garbage collector, there is no way to unmap them earlier
+ * on Java 11.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MappedImageStore implements Closeable {
+    public static final String SCRATCH_DIR_PROPERTY = "qmul.scratchDir";
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final int width;
+    private final int height;
+    private final int numPlanes;
+    private final int rowsPerChunk;
+    private final MappedByteBuffer[][] mappings;
+    private final IntBuffer[][] chunks;
+    private final ScratchFile scratchFile;
+    private final Cleaner.Cleanable cleanable;
+
+  /**
+   * This constructor creates a scratch file for the planes and maps it
+   *
+   * @param width       image width
+   * @param height      image height
+   * @param numPlanes   number of channels
+   */
+    public MappedImageStore(int width, int height, int numPlanes) throws IOException {
+        if (width <= 0 || height <= 0 || numPlanes <= 0) {
+            throw new IllegalArgumentException("image size and number of planes must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.numPlanes = numPlanes;
+        this.rowsPerChunk = (int) Math.max(1, Math.min(height, MAX_CHUNK_BYTES / (4L * width)));
+        int chunksPerPlane = (height + rowsPerChunk - 1) / rowsPerChunk;
+
+        String scratchDir = System.getProperty(SCRATCH_DIR_PROPERTY, System.getProperty("java.io.tmpdir"));
+        Path path = Files.createTempFile(Paths.get(scratchDir), "qmul-image", ".planes");
+        // neither close() nor the cleaner runs when the JVM exits
+        path.toFile().deleteOnExit();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.scratchFile = new ScratchFile(path, channel);
+        this.cleanable = CLEANER.register(this, scratchFile);
+        try {
+            long planeBytes = 4L * width * height;
+            this.mappings = new MappedByteBuffer[numPlanes][chunksPerPlane];
+            this.chunks = new IntBuffer[numPlanes][chunksPerPlane];
+            for (int plane = 0; plane < numPlanes; plane++) {
+                for (int chunk = 0; chunk < chunksPerPlane; chunk++) {
+                    int rows = Math.min(rowsPerChunk, height - chunk * rowsPerChunk);
+                    long position = plane * planeBytes + 4L * chunk * rowsPerChunk * width;
+                    mappings[plane][chunk] = channel.map(FileChannel.MapMode.READ_WRITE, position, 4L * rows * width);
+                    chunks[plane][chunk] = mappings[plane][chunk].order(ByteOrder.nativeOrder()).asIntBuffer();
+                }
+            }
+            if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                // the mappings and the open channel keep the unlinked file alive
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException | RuntimeException ex) {
+            cleanable.clean();
+            throw ex;
+        }
+    }
+
+  /**
+   * This method copies a buffer into a new store
+   *
+   * @param buffer      image buffer
+   * @return MappedImageStore
+   */
+    public static MappedImageStore fromBuffer(ImageBuffer buffer) throws IOException {
+        MappedImageStore store = new MappedImageStore(buffer.getWidth(), buffer.getHeight(), buffer.getNumPlanes());
+        store.writeBand(0, buffer);
+        return store;
+    }
+
+  /**
+   * This method copies rows of one plane out of the store
+   *
+   * @param plane       channel index
+   * @param x           first column
+   * @param y           first row
+   * @param columns     number of columns
+   * @param rows        number of rows
+   * @param dst         destination plane
+   * @param dstOff      destination index of the first sample
+   * @param dstStride   distance between two destination rows
+   */
+    public void readRows(int plane, int x, int y, int columns, int rows, int[] dst, int dstOff, int dstStride) {
+        checkRegion(x, y, columns, rows);
+        for (int row = 0; row < rows; row++) {
+            rowBuffer(plane, y + row, x).get(dst, dstOff + row * dstStride, columns);
+        }
+    }
+
+  /**
+   * This method copies rows of one plane into the store
+   *
+   * @param plane       channel index
+   * @param x           first column
+   * @param y           first row
+   * @param columns     number of columns
+   * @param rows        number of rows
+   * @param src         source plane
+   * @param srcOff      source index of the first sample
+   * @param srcStride   distance between two source rows
+   */
+    public void writeRows(int plane, int x, int y, int columns, int rows, int[] src, int srcOff, int srcStride) {
+        checkRegion(x, y, columns, rows);
+        for (int row = 0; row < rows; row++) {
+            rowBuffer(plane, y + row, x).put(src, srcOff + row * srcStride, columns);
+        }
+    }
+
+  /**
+   * This method copies a band of full rows of every plane into an image buffer
+   *
+   * @param y           first row
+   * @param band        destination buffer, image wide, its height is the number of rows
+   */
+    public void readBand(int y, ImageBuffer band) {
+        readRegion(0, y, band);
+    }
+
+  /**
+   * This method copies a region of every plane into an image buffer
+   *
+   * @param x           first column
+   * @param y           first row
+   * @param region      destination buffer, its size is the region size
+   */
+    public void readRegion(int x, int y, ImageBuffer region) {
+        for (int plane = 0; plane < Math.min(numPlanes, region.getNumPlanes()); plane++) {
+            readRows(plane, x, y, region.getWidth(), region.getHeight(), region.getPlane(plane), 0, region.getStride());
+        }
+    }
+
+  /**
+   * This method copies a band of full rows of every plane into the store
+   *
+   * @param y           first row
+   * @param band        source buffer, image wide, its height is the number of rows
+   */
+    public void writeBand(int y, ImageBuffer band) {
+        for (int plane = 0; plane < Math.min(numPlanes, band.getNumPlanes()); plane++) {
+            writeRows(plane, 0, y, band.getWidth(), band.getHeight(), band.getPlane(plane), 0, band.getStride());
+        }
+    }
+
+  /**
+   * This method forces written samples out to the scratch file
+   */
+    public void flush() {
+        for (MappedByteBuffer[] plane : mappings) {
+            for (MappedByteBuffer mapping : plane) {
+                mapping.force();
+            }
+        }
+    }
+
+  /**
+   * This method closes and deletes the scratch file
+   */
+    @Override
+    public void close() {
+        cleanable.clean();
+    }
+
+    /**
+    * This method return the image width
+    *
+    * @return int
+    */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+    * This method return the image height
+    *
+    * @return int
+    */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+    * This method return the number of channels
+    *
+    * @return int
+    */
+    public int getNumPlanes() {
+        return numPlanes;
+    }
+
+    /**
+    * This method return the scratch file, already unlinked on POSIX file systems
+    *
+    * @return Path
+    */
+    public Path getPath() {
+        return scratchFile.path;
+    }
+
+    private IntBuffer rowBuffer(int plane, int y, int x) {
+        if (scratchFile.closed) {
+            throw new IllegalStateException("image store is closed");
+        }
+        IntBuffer chunk = chunks[plane][y / rowsPerChunk].duplicate();
+        chunk.position((y % rowsPerChunk) * width + x);
+        return chunk;
+    }
+
+    private void checkRegion(int x, int y, int columns, int rows) {
+        if (x < 0 || y < 0 || columns < 0 || rows < 0 || x + columns > width || y + rows > height) {
+            throw new IndexOutOfBoundsException("region " + x + "," + y + " " + columns + "x" + rows
+                    + " is outside the " + width + "x" + height + " image");
+        }
+    }
+
+    /*
+     * Cleanup action, must not refer to the store itself
+     */
+    private static final class ScratchFile implements Runnable {
+        private final Path path;
+        private final FileChannel channel;
+        private volatile boolean closed;
+
+        private ScratchFile(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // nothing left to do with the channel
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                // a file that is still mapped cannot be deleted on every platform
+                path.toFile().deleteOnExit();
+            }
+        }
+    }
+}
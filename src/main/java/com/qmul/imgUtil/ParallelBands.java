@@ -0,0 +1,203 @@
+/*
+ * Description: Runs image work on a shared fork-join pool. Rows are split
+ * into bands that are computed as independent tasks, and independent jobs
+ * such as the channels of an image run side by side; a job may split its
+ * own rows again. Work below the minimum is run on the calling thread, so
+ * small images do not pay for the task handoff.
+ *
+ * The split never changes what a task computes, only which thread computes
+ * it, so results are the same for any parallelism.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+
+public final class ParallelBands {
+    public static final String PARALLELISM_PROPERTY = "qmul.parallelism";
+    public static final String MIN_WORK_PROPERTY = "qmul.parallel.minWork";
+
+    private static final int PARALLELISM = Math.max(1,
+            Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    // smallest amount of work, in sample operations, worth a task of its own
+    private static final long MIN_WORK = Math.max(1, Long.getLong(MIN_WORK_PROPERTY, 1L << 17));
+    private static final ForkJoinPool POOL = PARALLELISM > 1 ? new ForkJoinPool(PARALLELISM) : null;
+
+  /**
+   * Computes the rows start (inclusive) to end (exclusive) of a band
+   */
+    public interface Band {
+        void run(int start, int end);
+    }
+
+  /**
+   * Reduces the rows start (inclusive) to end (exclusive) of a band to a partial result
+   */
+    public interface BandReduction<T> {
+        T reduce(int start, int end);
+    }
+
+    private ParallelBands() {
+    }
+
+  /**
+   * This method runs a band over the rows start to end, split into bands of at
+   * least the minimum work that run in parallel
+   *
+   * @param start       first row
+   * @param end         row after the last row
+   * @param workPerRow  sample operations per row, used to size the bands
+   * @param band        band computation, called concurrently for disjoint rows
+   */
+    public static void forEach(int start, int end, long workPerRow, Band band) {
+        int rows = end - start;
+        if (rows <= 0) {
+            return;
+        }
+        int minRows = (int) Math.max(1, Math.min(rows, (MIN_WORK + workPerRow - 1) / Math.max(1, workPerRow)));
+        // a few bands per thread even out rows of uneven cost
+        int bands = Math.min(rows / minRows, 4 * PARALLELISM);
+        if (POOL == null || bands < 2) {
+            band.run(start, end);
+            return;
+        }
+        run(new BandTask(band, start, end, Math.max(minRows, (rows + bands - 1) / bands)));
+    }
+
+  /**
+   * This method reduces the rows start to end in bands that run in parallel,
+   * combining the partial results of neighbouring bands in row order. The
+   * result is the same for any parallelism when combining is associative.
+   *
+   * @param start       first row
+   * @param end         row after the last row
+   * @param workPerRow  sample operations per row, used to size the bands
+   * @param band        band reduction, called concurrently for disjoint rows
+   * @param combine     combines the results of a band and of the band after it,
+   *                    it may return its first argument updated
+   * @return result of the rows, the reduction of no rows when start is not below end
+   */
+    public static <T> T reduce(int start, int end, long workPerRow, BandReduction<T> band, BinaryOperator<T> combine) {
+        int rows = end - start;
+        if (rows <= 0) {
+            return band.reduce(start, start);
+        }
+        int minRows = (int) Math.max(1, Math.min(rows, (MIN_WORK + workPerRow - 1) / Math.max(1, workPerRow)));
+        int bands = Math.min(rows / minRows, 4 * PARALLELISM);
+        if (POOL == null || bands < 2) {
+            return band.reduce(start, end);
+        }
+        ReduceTask<T> task = new ReduceTask<>(band, combine, start, end, Math.max(minRows, (rows + bands - 1) / bands));
+        run(task);
+        return task.getRawResult();
+    }
+
+  /**
+   * This method runs independent jobs side by side and waits for all of them
+   *
+   * @param jobs        number of jobs
+   * @param job         job computation, called concurrently with the job index
+   */
+    public static void invokeAll(int jobs, IntConsumer job) {
+        if (POOL == null || jobs < 2) {
+            for (int index = 0; index < jobs; index++) {
+                job.accept(index);
+            }
+            return;
+        }
+        run(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[jobs];
+                for (int index = 0; index < jobs; index++) {
+                    int jobIndex = index;
+                    tasks[index] = ForkJoinTask.adapt(() -> job.accept(jobIndex));
+                }
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+    * This method return the number of threads used for parallel work
+    *
+    * @return int
+    */
+    public static int getParallelism() {
+        return PARALLELISM;
+    }
+
+    private static void run(ForkJoinTask<?> task) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == POOL) {
+            // nested in another task of the pool, fork and join in place
+            task.invoke();
+        } else {
+            POOL.invoke(task);
+        }
+    }
+
+    private static final class ReduceTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final BandReduction<T> band;
+        private final BinaryOperator<T> combine;
+        private final int start;
+        private final int end;
+        private final int bandRows;
+
+        private ReduceTask(BandReduction<T> band, BinaryOperator<T> combine, int start, int end, int bandRows) {
+            this.band = band;
+            this.combine = combine;
+            this.start = start;
+            this.end = end;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected T compute() {
+            if (end - start <= bandRows) {
+                return band.reduce(start, end);
+            }
+            int bands = (end - start + bandRows - 1) / bandRows;
+            int middle = start + (bands / 2) * bandRows;
+            ReduceTask<T> second = new ReduceTask<>(band, combine, middle, end, bandRows);
+            second.fork();
+            T first = new ReduceTask<>(band, combine, start, middle, bandRows).compute();
+            return combine.apply(first, second.join());
+        }
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Band band;
+        private final int start;
+        private final int end;
+        private final int bandRows;
+
+        private BandTask(Band band, int start, int end, int bandRows) {
+            this.band = band;
+            this.start = start;
+            this.end = end;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= bandRows) {
+                band.run(start, end);
+                return;
+            }
+            int bands = (end - start + bandRows - 1) / bandRows;
+            int middle = start + (bands / 2) * bandRows;
+            invokeAll(new BandTask(band, start, middle, bandRows), new BandTask(band, middle, end, bandRows));
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Description: Direct access to the data buffers behind a BufferedImage.
+ * The common image types are read and written straight from their
+ * DataBufferInt/DataBufferByte arrays; anything else falls back to
+ * row-wise getRGB calls.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+final class RasterUtil {
+
+    // gray level a TYPE_BYTE_GRAY image returns for each level written to it
+    private static volatile int[] byteGrayLevels;
+    // sample a TYPE_BYTE_GRAY image stores for each level written to it
+    private static volatile int[] byteGraySamples;
+
+    private RasterUtil() {
+    }
+
+  /**
+   * This method reads the red, green, blue and alpha channels of a buffered image
+   * into the first four planes of an image buffer. A buffer of three planes
+   * receives the colour channels only.
+   *
+   * @param bi          buffered image
+   * @param buffer      destination image buffer
+   */
+    static void readArgb(BufferedImage bi, ImageBuffer buffer) {
+        WritableRaster raster = bi.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        switch (bi.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (sm instanceof SinglePixelPackedSampleModel && db instanceof DataBufferInt) {
+                    readPackedInt(raster, (SinglePixelPackedSampleModel) sm, (DataBufferInt) db,
+                            bi.getType() == BufferedImage.TYPE_INT_ARGB, buffer);
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                if (sm instanceof ComponentSampleModel && db instanceof DataBufferByte) {
+                    readInterleavedByte(raster, (ComponentSampleModel) sm, (DataBufferByte) db, buffer);
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_BYTE_GRAY:
+                if (sm instanceof ComponentSampleModel && db instanceof DataBufferByte) {
+                    readGrayByte(raster, (ComponentSampleModel) sm, (DataBufferByte) db, bi.getColorModel(), buffer);
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        readFallback(bi, buffer);
+    }
+
+  /**
+   * This method reads the red, green, blue and alpha channels of a region of a
+   * buffered image into the first four planes of an image buffer
+   *
+   * @param bi          buffered image
+   * @param x           first column of the region
+   * @param y           first row of the region
+   * @param buffer      destination image buffer, its size is the region size
+   */
+    static void readArgb(BufferedImage bi, int x, int y, ImageBuffer buffer) {
+        if (x == 0 && y == 0 && buffer.getWidth() == bi.getWidth() && buffer.getHeight() == bi.getHeight()) {
+            readArgb(bi, buffer);
+        } else {
+            // the child raster keeps the image type, so the direct paths still apply
+            readArgb(bi.getSubimage(x, y, buffer.getWidth(), buffer.getHeight()), buffer);
+        }
+    }
+
+  /**
+   * This method reads packed TYPE_INT_RGB / TYPE_INT_ARGB pixels
+   */
+    private static void readPackedInt(WritableRaster raster, SinglePixelPackedSampleModel sm, DataBufferInt db,
+                                      boolean hasAlpha, ImageBuffer buffer) {
+        int[] data = db.getData();
+        int scanline = sm.getScanlineStride();
+        int base = db.getOffset() - raster.getSampleModelTranslateY() * scanline - raster.getSampleModelTranslateX();
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int stride = buffer.getStride();
+        int[] red   = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(ImageBuffer.BLUE);
+        int[] alpha = alphaPlane(buffer);
+        int alphaMask = hasAlpha ? 0 : 0xFF000000;
+        for (int row = 0; row < height; row++) {
+            int src = base + row * scanline;
+            int idx = row * stride;
+            for (int col = 0; col < width; col++, src++, idx++) {
+                int argb = data[src] | alphaMask;
+                red[idx]   = (argb >> 16) & 0xFF;
+                green[idx] = (argb >> 8) & 0xFF;
+                blue[idx]  = argb & 0xFF;
+                if (alpha != null) {
+                    alpha[idx] = argb >>> 24;
+                }
+            }
+        }
+    }
+
+  /**
+   * This method reads interleaved TYPE_3BYTE_BGR / TYPE_4BYTE_ABGR pixels
+   */
+    private static void readInterleavedByte(WritableRaster raster, ComponentSampleModel sm, DataBufferByte db,
+                                            ImageBuffer buffer) {
+        byte[] data = db.getData();
+        int scanline = sm.getScanlineStride();
+        int pixelStride = sm.getPixelStride();
+        int[] bandOffsets = sm.getBandOffsets();
+        int base = db.getOffset() - raster.getSampleModelTranslateY() * scanline
+                - raster.getSampleModelTranslateX() * pixelStride;
+        int redOff   = bandOffsets[0];
+        int greenOff = bandOffsets[1];
+        int blueOff  = bandOffsets[2];
+        boolean hasAlpha = bandOffsets.length > 3;
+        int alphaOff = hasAlpha ? bandOffsets[3] : 0;
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int stride = buffer.getStride();
+        int[] red   = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(ImageBuffer.BLUE);
+        int[] alpha = alphaPlane(buffer);
+        for (int row = 0; row < height; row++) {
+            int src = base + row * scanline;
+            int idx = row * stride;
+            for (int col = 0; col < width; col++, src += pixelStride, idx++) {
+                red[idx]   = data[src + redOff] & 0xFF;
+                green[idx] = data[src + greenOff] & 0xFF;
+                blue[idx]  = data[src + blueOff] & 0xFF;
+                if (alpha != null) {
+                    alpha[idx] = hasAlpha ? data[src + alphaOff] & 0xFF : 0xFF;
+                }
+            }
+        }
+    }
+
+  /**
+   * This method reads TYPE_BYTE_GRAY pixels. The stored samples are linear gray,
+   * so they are mapped through the colour model once per level to the sRGB values
+   * getRGB would return.
+   */
+    private static void readGrayByte(WritableRaster raster, ComponentSampleModel sm, DataBufferByte db,
+                                     ColorModel cm, ImageBuffer buffer) {
+        int[] lut = new int[256];
+        byte[] sample = new byte[1];
+        for (int level = 0; level < 256; level++) {
+            sample[0] = (byte) level;
+            lut[level] = cm.getRGB(sample) & 0xFF;
+        }
+        byte[] data = db.getData();
+        int scanline = sm.getScanlineStride();
+        int pixelStride = sm.getPixelStride();
+        int base = db.getOffset() + sm.getBandOffsets()[0] - raster.getSampleModelTranslateY() * scanline
+                - raster.getSampleModelTranslateX() * pixelStride;
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int stride = buffer.getStride();
+        int[] red   = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(ImageBuffer.BLUE);
+        int[] alpha = alphaPlane(buffer);
+        for (int row = 0; row < height; row++) {
+            int src = base + row * scanline;
+            int idx = row * stride;
+            for (int col = 0; col < width; col++, src += pixelStride, idx++) {
+                int gray = lut[data[src] & 0xFF];
+                red[idx]   = gray;
+                green[idx] = gray;
+                blue[idx]  = gray;
+                if (alpha != null) {
+                    alpha[idx] = 0xFF;
+                }
+            }
+        }
+    }
+
+  /**
+   * This method reads any other image type one row at a time through getRGB
+   */
+    private static void readFallback(BufferedImage bi, ImageBuffer buffer) {
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int stride = buffer.getStride();
+        int[] red   = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(ImageBuffer.BLUE);
+        int[] alpha = alphaPlane(buffer);
+        int[] rowArgb = new int[width];
+        for (int row = 0; row < height; row++) {
+            bi.getRGB(0, row, width, 1, rowArgb, 0, width);
+            int idx = row * stride;
+            for (int col = 0; col < width; col++, idx++) {
+                int argb = rowArgb[col];
+                red[idx]   = (argb >> 16) & 0xFF;
+                green[idx] = (argb >> 8) & 0xFF;
+                blue[idx]  = argb & 0xFF;
+                if (alpha != null) {
+                    alpha[idx] = argb >>> 24;
+                }
+            }
+        }
+    }
+
+    private static boolean hasAlpha(ImageBuffer buffer) {
+        return buffer.getNumPlanes() > ImageBuffer.ALPHA;
+    }
+
+    private static int[] alphaPlane(ImageBuffer buffer) {
+        return hasAlpha(buffer) ? buffer.getPlane(ImageBuffer.ALPHA) : null;
+    }
+
+  /**
+   * This method reads the raw samples of one band of the raster
+   *
+   * @param bi          buffered image
+   * @param band        raster band
+   * @param plane       destination plane
+   * @param stride      distance between two rows of the destination plane
+   */
+    static void readSamples(BufferedImage bi, int band, int[] plane, int stride) {
+        WritableRaster raster = bi.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        if (sm instanceof ComponentSampleModel && db instanceof DataBufferByte && db.getNumBanks() == 1) {
+            ComponentSampleModel csm = (ComponentSampleModel) sm;
+            byte[] data = ((DataBufferByte) db).getData();
+            int scanline = csm.getScanlineStride();
+            int pixelStride = csm.getPixelStride();
+            int base = db.getOffset() + csm.getBandOffsets()[band] - raster.getSampleModelTranslateY() * scanline
+                    - raster.getSampleModelTranslateX() * pixelStride;
+            for (int row = 0; row < height; row++) {
+                int src = base + row * scanline;
+                int idx = row * stride;
+                for (int col = 0; col < width; col++, src += pixelStride, idx++) {
+                    plane[idx] = data[src] & 0xFF;
+                }
+            }
+            return;
+        }
+        int[] rowSamples = new int[width];
+        for (int row = 0; row < height; row++) {
+            raster.getSamples(0, row, width, 1, band, rowSamples);
+            System.arraycopy(rowSamples, 0, plane, row * stride, width);
+        }
+    }
+
+  /**
+   * This method writes packed pixels into a freshly created TYPE_INT_RGB image.
+   * The image type has no alpha, so like setRGB the alpha plane is not used
+   * and the buffer may have three planes.
+   *
+   * @param buffer      image buffer holding red, green and blue planes
+   * @param bi          TYPE_INT_RGB image of the same size
+   */
+    static void writeIntRgb(ImageBuffer buffer, BufferedImage bi) {
+        int[] data = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
+        int width = buffer.getWidth();
+        int stride = buffer.getStride();
+        int[] red   = buffer.getPlane(ImageBuffer.RED);
+        int[] green = buffer.getPlane(ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(ImageBuffer.BLUE);
+        ParallelBands.forEach(0, buffer.getHeight(), width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                int dst = row * width;
+                for (int col = 0; col < width; col++, idx++, dst++) {
+                    data[dst] = ((red[idx] << 16) | (green[idx] << 8) | blue[idx]) & 0xFFFFFF;
+                }
+            }
+        });
+    }
+
+  /**
+   * This method writes gray levels into a freshly created TYPE_INT_RGB image,
+   * the same level for the red, green and blue samples
+   *
+   * @param grayscale   single plane image buffer, levels in the range 0 to 255
+   * @param bi          TYPE_INT_RGB image of the same size
+   */
+    static void writeIntGray(ImageBuffer grayscale, BufferedImage bi) {
+        int[] data = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
+        int width = grayscale.getWidth();
+        int stride = grayscale.getStride();
+        int[] gray = grayscale.getPlane(ImageBuffer.GRAY);
+        ParallelBands.forEach(0, grayscale.getHeight(), width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                int dst = row * width;
+                for (int col = 0; col < width; col++, idx++, dst++) {
+                    data[dst] = (gray[idx] & 0xFF) * 0x010101;
+                }
+            }
+        });
+    }
+
+  /**
+   * This method replaces gray levels in place by the levels a TYPE_BYTE_GRAY image
+   * returns after they were written to it with writeByteGray
+   *
+   * @param grayscale   single plane image buffer
+   */
+    static void quantiseByteGray(ImageBuffer grayscale) {
+        int[] levels = byteGrayLevelTable();
+        int width = grayscale.getWidth();
+        int height = grayscale.getHeight();
+        int stride = grayscale.getStride();
+        int[] gray = grayscale.getPlane(ImageBuffer.GRAY);
+        for (int row = 0; row < height; row++) {
+            int idx = row * stride;
+            for (int col = 0; col < width; col++, idx++) {
+                int grayLevel = gray[idx];
+                gray[idx] = (grayLevel & ~0xFF) == 0 ? levels[grayLevel] : roundTripByteGray(grayLevel);
+            }
+        }
+    }
+
+  /**
+   * This method replaces gray levels in place by the samples a TYPE_BYTE_GRAY image
+   * stores for them with writeByteGray, what reading its raster back returns
+   *
+   * @param grayscale   single plane image buffer
+   */
+    static void storeByteGray(ImageBuffer grayscale) {
+        ColorModel cm = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY).getColorModel();
+        int[] lut = byteGraySampleTable();
+        int width = grayscale.getWidth();
+        int stride = grayscale.getStride();
+        int[] gray = grayscale.getPlane(ImageBuffer.GRAY);
+        ParallelBands.forEach(0, grayscale.getHeight(), width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                for (int col = 0; col < width; col++, idx++) {
+                    int grayLevel = gray[idx];
+                    gray[idx] = (grayLevel & ~0xFF) == 0 ? lut[grayLevel] : storedByteGray(cm, grayLevel);
+                }
+            }
+        });
+    }
+
+  /**
+   * This method return the levels a TYPE_BYTE_GRAY image returns for the levels 0 to 255
+   * written to it, shared and not to be changed
+   *
+   * @return table indexed by level
+   */
+    static int[] byteGrayLevelTable() {
+        int[] levels = byteGrayLevels;
+        if (levels == null) {
+            levels = new int[256];
+            for (int level = 0; level < 256; level++) {
+                levels[level] = roundTripByteGray(level);
+            }
+            byteGrayLevels = levels;
+        }
+        return levels;
+    }
+
+  /**
+   * This method return the samples a TYPE_BYTE_GRAY image stores for the levels 0 to 255
+   * written to it, shared and not to be changed
+   *
+   * @return table indexed by level
+   */
+    static int[] byteGraySampleTable() {
+        int[] samples = byteGraySamples;
+        if (samples == null) {
+            ColorModel cm = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY).getColorModel();
+            samples = new int[256];
+            for (int level = 0; level < 256; level++) {
+                samples[level] = storedByteGray(cm, level);
+            }
+            byteGraySamples = samples;
+        }
+        return samples;
+    }
+
+    private static int storedByteGray(ColorModel cm, int level) {
+        // out of range levels keep the packed-int behaviour of writeByteGray
+        byte[] sample = new byte[1];
+        cm.getDataElements((level << 16) + (level << 8) + level, sample);
+        return sample[0] & 0xFF;
+    }
+
+    private static int roundTripByteGray(int level) {
+        BufferedImage bi = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+        ImageBuffer pixel = new ImageBuffer(1, 1, 1);
+        pixel.setSample(ImageBuffer.GRAY, 0, 0, level);
+        writeByteGray(pixel, bi);
+        ImageBuffer argb = new ImageBuffer(1, 1, 4);
+        readArgb(bi, argb);
+        return argb.getSample(ImageBuffer.RED, 0, 0);
+    }
+
+  /**
+   * This method writes gray levels into a freshly created TYPE_BYTE_GRAY image.
+   * Gray levels are sRGB values, so they go through the colour model once per level
+   * to find the linear sample setRGB would have stored.
+   *
+   * @param grayscale   single plane image buffer
+   * @param bi          TYPE_BYTE_GRAY image of the same size
+   */
+    static void writeByteGray(ImageBuffer grayscale, BufferedImage bi) {
+        ColorModel cm = bi.getColorModel();
+        byte[] lut = new byte[256];
+        byte[] sample = new byte[1];
+        for (int level = 0; level < 256; level++) {
+            cm.getDataElements((level << 16) + (level << 8) + level, sample);
+            lut[level] = sample[0];
+        }
+        byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
+        int width = grayscale.getWidth();
+        int height = grayscale.getHeight();
+        int stride = grayscale.getStride();
+        int[] gray = grayscale.getPlane(ImageBuffer.GRAY);
+        for (int row = 0; row < height; row++) {
+            int idx = row * stride;
+            int dst = row * width;
+            for (int col = 0; col < width; col++, idx++, dst++) {
+                int grayLevel = gray[idx];
+                if ((grayLevel & ~0xFF) == 0) {
+                    data[dst] = lut[grayLevel];
+                } else {
+                    // out of range levels keep the packed-int behaviour of setRGB
+                    cm.getDataElements((grayLevel << 16) + (grayLevel << 8) + grayLevel, sample);
+                    data[dst] = sample[0];
+                }
+            }
+        }
+    }
+
+  /**
+   * This method writes a mask into a freshly created TYPE_BYTE_BINARY image,
+   * zero samples become black and any other value white.
+   *
+   * @param mask        single plane image buffer
+   * @param bi          TYPE_BYTE_BINARY image of the same size
+   */
+    static void writeByteBinary(ImageBuffer mask, BufferedImage bi) {
+        WritableRaster raster = bi.getRaster();
+        MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int scanline = sm.getScanlineStride();
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        int stride = mask.getStride();
+        int[] plane = mask.getPlane(0);
+        for (int row = 0; row < height; row++) {
+            int idx = row * stride;
+            int dst = row * scanline;
+            for (int col = 0; col < width; col += 8, dst++) {
+                int bits = 0;
+                int end = Math.min(8, width - col);
+                for (int bit = 0; bit < end; bit++, idx++) {
+                    if (plane[idx] != 0) {
+                        bits |= 0x80 >> bit;
+                    }
+                }
+                data[dst] = (byte) bits;
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Description: Decodes an image file from top to bottom in one pass into a
+ * memory-mapped image store. Formats like PNG and JPEG can only be decoded
+ * from the start of the file, so reading them a band at a time decodes the
+ * image again for every band. Here the reader writes into an image whose
+ * raster only keeps a window of rows: rows above the one being written are
+ * complete, and they are converted and spilled to the store as the window
+ * moves down, so the whole image is never held in memory.
+ *
+ * Readers that write rows out of order, like those of interlaced PNG or
+ * progressive JPEG files, are stopped as soon as they go back to a row that
+ * was spilled, and the caller decodes such files band by band instead.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+
+final class SequentialDecoder {
+    // rows kept by the window, and converted at a time when they are spilled
+    private static final int WINDOW_ROWS = TiledImage.DEFAULT_TILE_SIZE;
+    private static final int SPILL_ROWS = 32;
+
+    private SequentialDecoder() {
+    }
+
+  /**
+   * This method decodes the first image of a reader into a new store
+   *
+   * @param reader      image reader with its input set
+   * @param numPlanes   number of planes of the store, see RasterUtil.readArgb
+   * @return MappedImageStore, or null when the reader did not write the rows in order
+   */
+    static MappedImageStore decode(ImageReader reader, int numPlanes) {
+        MappedImageStore store = null;
+        boolean complete = false;
+        try {
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            // the type the reader would choose for its own destination
+            ImageTypeSpecifier type = reader.getImageTypes(0).next();
+            store = new MappedImageStore(width, height, numPlanes);
+            SpillingRaster raster = new SpillingRaster(type, width, height, store, reader);
+            ColorModel colorModel = type.getColorModel();
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setDestination(new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null));
+            reader.read(0, param);
+            complete = raster.finish();
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(SequentialDecoder.class.getName()).log(Level.FINE, "Sequential decoding failed", ex);
+        } finally {
+            if (!complete && store != null) {
+                store.close();
+            }
+        }
+        return complete ? store : null;
+    }
+
+    /*
+     * Destination raster with the bounds of the whole image that only keeps a
+     * window of rows. Reads and writes the readers make through the Raster methods are
+     * passed on to the window, anything else fails on the empty data buffer.
+     */
+    private static final class SpillingRaster extends WritableRaster {
+        private final ImageTypeSpecifier type;
+        private final MappedImageStore store;
+        private final ImageReader reader;
+        private BufferedImage window;
+        // the window raster in image coordinates
+        private WritableRaster windowRaster;
+        private int windowY;
+        // rows from here on have not been written
+        private int nextRow;
+        private boolean outOfOrder;
+        // samples of an interleaved byte window, written directly pixel by pixel
+        private byte[] windowData;
+        private int scanlineStride;
+        private int pixelStride;
+        private int[] bandOffsets;
+
+        private SpillingRaster(ImageTypeSpecifier type, int width, int height, MappedImageStore store, ImageReader reader) {
+            // the bounds are those of the image, a sample model of that size could overflow
+            super(type.getSampleModel(width, 1), type.getSampleModel(1, 1).createDataBuffer(),
+                  new Rectangle(0, 0, width, height), new Point(0, 0), null);
+            this.type = type;
+            this.store = store;
+            this.reader = reader;
+            this.window = type.createBufferedImage(width, Math.min(WINDOW_ROWS, height));
+            this.windowRaster = window.getRaster();
+            setWindowData();
+        }
+
+        @Override
+        public void setDataElements(int x, int y, Object inData) {
+            rows(y, 1).setDataElements(x, y, inData);
+        }
+
+        @Override
+        public void setDataElements(int x, int y, Raster inRaster) {
+            rows(y + inRaster.getMinY(), inRaster.getHeight()).setDataElements(x, y, inRaster);
+        }
+
+        @Override
+        public void setDataElements(int x, int y, int w, int h, Object inData) {
+            rows(y, h).setDataElements(x, y, w, h, inData);
+        }
+
+        @Override
+        public void setRect(int dx, int dy, Raster srcRaster) {
+            rows(dy + srcRaster.getMinY(), srcRaster.getHeight()).setRect(dx, dy, srcRaster);
+        }
+
+        @Override
+        public void setPixel(int x, int y, int[] iArray) {
+            WritableRaster raster = rows(y, 1);
+            if (windowData != null && raster == windowRaster && x >= 0 && x < getWidth()) {
+                int idx = (y - windowY) * scanlineStride + x * pixelStride;
+                for (int band = 0; band < bandOffsets.length; band++) {
+                    windowData[idx + bandOffsets[band]] = (byte) iArray[band];
+                }
+            } else {
+                raster.setPixel(x, y, iArray);
+            }
+        }
+
+        @Override
+        public void setPixels(int x, int y, int w, int h, int[] iArray) {
+            rows(y, h).setPixels(x, y, w, h, iArray);
+        }
+
+        @Override
+        public void setSample(int x, int y, int b, int s) {
+            rows(y, 1).setSample(x, y, b, s);
+        }
+
+        @Override
+        public void setSamples(int x, int y, int w, int h, int b, int[] iArray) {
+            rows(y, h).setSamples(x, y, w, h, b, iArray);
+        }
+
+      /**
+       * This method spills the rows left in the window
+       *
+       * @return every row was written, in order
+       */
+        private boolean finish() {
+            if (outOfOrder) {
+                return false;
+            }
+            spill(Math.min(windowY + window.getHeight(), getHeight()));
+            return nextRow >= getHeight();
+        }
+
+      /**
+       * This method return the raster to write rows to, moving the window
+       * down when they are below it
+       */
+        private WritableRaster rows(int first, int count) {
+            int end = first + count;
+            if (first >= windowY && end <= windowY + window.getHeight()) {
+                nextRow = Math.max(nextRow, end);
+                return windowRaster;
+            }
+            if (first < windowY || outOfOrder) {
+                // the rows were spilled already
+                if (!outOfOrder) {
+                    outOfOrder = true;
+                    reader.abort();
+                }
+                return type.createBufferedImage(getWidth(), count).getRaster().createWritableTranslatedChild(0, first);
+            }
+            // the rows above the first one written are complete
+            spill(Math.min(first, windowY + window.getHeight()));
+            int kept = Math.max(0, nextRow - first);
+            BufferedImage next = count <= window.getHeight() ? window : type.createBufferedImage(getWidth(), count);
+            if (kept > 0) {
+                Object data = window.getRaster().getDataElements(0, first - windowY, getWidth(), kept, null);
+                next.getRaster().setDataElements(0, 0, getWidth(), kept, data);
+            }
+            window = next;
+            windowY = first;
+            windowRaster = window.getRaster().createWritableTranslatedChild(0, first);
+            setWindowData();
+            nextRow = Math.max(nextRow, end);
+            return windowRaster;
+        }
+
+      /**
+       * This method looks up the samples of the window when they are interleaved bytes
+       */
+        private void setWindowData() {
+            WritableRaster raster = window.getRaster();
+            windowData = null;
+            if (raster.getSampleModel() instanceof ComponentSampleModel && raster.getDataBuffer() instanceof DataBufferByte
+                    && raster.getDataBuffer().getNumBanks() == 1) {
+                ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+                windowData = ((DataBufferByte) raster.getDataBuffer()).getData();
+                scanlineStride = sampleModel.getScanlineStride();
+                pixelStride = sampleModel.getPixelStride();
+                bandOffsets = sampleModel.getBandOffsets();
+            }
+        }
+
+      /**
+       * This method converts the window rows above a row and writes them to the store
+       */
+        private void spill(int end) {
+            BufferPool pool = BufferPool.shared();
+            for (int y = windowY; y < end; y += SPILL_ROWS) {
+                int rows = Math.min(SPILL_ROWS, end - y);
+                ImageBuffer band = pool.leaseBuffer(getWidth(), rows, store.getNumPlanes());
+                RasterUtil.readArgb(window, 0, y - windowY, band);
+                store.writeBand(y, band);
+                pool.release(band);
+            }
+        }
+    }
+}
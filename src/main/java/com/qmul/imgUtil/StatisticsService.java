@@ -0,0 +1,158 @@
+/*
+ * Description: Computes image statistics as a parallel reduction. Every band
+ * of rows reduces its pixels to a minimum, maximum, sum, sum of squares and
+ * level counts per channel, and the partial results of neighbouring bands
+ * are combined on the fork-join pool. All of them are integers, so the
+ * result is the same for any split of the rows.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public final class StatisticsService {
+    private static final int[] RGB_CHANNELS = {ImageBuffer.RED, ImageBuffer.GREEN, ImageBuffer.BLUE};
+
+    private StatisticsService() {
+    }
+
+  /**
+   * This method computes the statistics of planes of an image buffer
+   *
+   * @param buffer      image buffer
+   * @param channels    planes to reduce, one statistics channel each
+   * @return ImageStatistics
+   */
+    public static ImageStatistics compute(ImageBuffer buffer, int[] channels) {
+        int width = buffer.getWidth();
+        int stride = buffer.getStride();
+        Partial result = ParallelBands.reduce(0, buffer.getHeight(), (long) channels.length * width, (first, end) -> {
+            Partial partial = new Partial(channels.length);
+            int[] bins = new int[Histogram.LEVELS];
+            for (int channel = 0; channel < channels.length; channel++) {
+                int[] plane = buffer.getPlane(channels[channel]);
+                int min = partial.min[channel];
+                int max = partial.max[channel];
+                long sum = 0;
+                long sumOfSquares = 0;
+                for (int row = first; row < end; row++) {
+                    int idx = row * stride;
+                    for (int col = 0; col < width; col++, idx++) {
+                        int value = plane[idx];
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                        sum += value;
+                        sumOfSquares += (long) value * value;
+                        bins[(value & ~0xFF) == 0 ? value : (value < 0 ? 0 : Histogram.LEVELS - 1)]++;
+                    }
+                }
+                partial.min[channel] = min;
+                partial.max[channel] = max;
+                partial.sum[channel] = sum;
+                partial.sumOfSquares[channel] = sumOfSquares;
+                for (int level = 0; level < Histogram.LEVELS; level++) {
+                    partial.counts[channel][level] = bins[level];
+                    bins[level] = 0;
+                }
+            }
+            return partial;
+        }, Partial::add);
+        return new ImageStatistics(result.min, result.max, result.sum, result.sumOfSquares, result.counts,
+                                   (long) width * buffer.getHeight());
+    }
+
+  /**
+   * This method computes the statistics of the red, green and blue planes of an image buffer
+   *
+   * @param channels    image buffer holding red, green and blue planes
+   * @return ImageStatistics
+   */
+    public static ImageStatistics compute(ImageBuffer channels) {
+        return compute(channels, RGB_CHANNELS);
+    }
+
+  /**
+   * This method computes the statistics of the red, green and blue channels of an image
+   *
+   * @param bi          buffered image
+   * @return ImageStatistics
+   */
+    public static ImageStatistics compute(BufferedImage bi) {
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        ImageStatistics statistics = compute(channels);
+        pool.release(channels);
+        return statistics;
+    }
+
+  /**
+   * This method computes the statistics of the red, green and blue channels of
+   * a tiled image, one tile at a time
+   *
+   * @param image       tiled image
+   * @return ImageStatistics
+   */
+    public static ImageStatistics compute(TiledImage image) {
+        int tilesX = image.getNumXTiles();
+        Partial result = ParallelBands.reduce(0, image.getNumYTiles(), (long) image.getWidth() * image.getTileHeight(), (first, end) -> {
+            Partial partial = new Partial(RGB_CHANNELS.length);
+            for (int tileY = first; tileY < end; tileY++) {
+                for (int tileX = 0; tileX < tilesX; tileX++) {
+                    ImageStatistics tile = compute(image.getTileImage(tileX, tileY));
+                    partial.add(new Partial(tile));
+                }
+            }
+            return partial;
+        }, Partial::add);
+        return new ImageStatistics(result.min, result.max, result.sum, result.sumOfSquares, result.counts,
+                                   (long) image.getWidth() * image.getHeight());
+    }
+
+    /*
+     * Statistics of a band of rows, added to the band after it.
+     */
+    private static final class Partial {
+        private final int[] min;
+        private final int[] max;
+        private final long[] sum;
+        private final long[] sumOfSquares;
+        private final long[][] counts;
+
+        private Partial(int channels) {
+            min = new int[channels];
+            max = new int[channels];
+            sum = new long[channels];
+            sumOfSquares = new long[channels];
+            counts = new long[channels][Histogram.LEVELS];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+
+        private Partial(ImageStatistics statistics) {
+            this(statistics.getNumChannels());
+            for (int channel = 0; channel < min.length; channel++) {
+                min[channel] = statistics.getMin(channel);
+                max[channel] = statistics.getMax(channel);
+                sum[channel] = statistics.getSum(channel);
+                sumOfSquares[channel] = statistics.getSumOfSquares(channel);
+                for (int level = 0; level < Histogram.LEVELS; level++) {
+                    counts[channel][level] = statistics.getCount(channel, level);
+                }
+            }
+        }
+
+        private Partial add(Partial other) {
+            for (int channel = 0; channel < min.length; channel++) {
+                min[channel] = Math.min(min[channel], other.min[channel]);
+                max[channel] = Math.max(max[channel], other.max[channel]);
+                sum[channel] += other.sum[channel];
+                sumOfSquares[channel] += other.sumOfSquares[channel];
+                for (int level = 0; level < Histogram.LEVELS; level++) {
+                    counts[channel][level] += other.counts[channel][level];
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Description: Bounded cache of computed image tiles, shared by all tiled
+ * images. Tiles are evicted in least recently used order once the cached
+ * planes exceed the configured size; an evicted tile is simply computed
+ * again the next time it is needed. The cache only holds its images weakly,
+ * so the tiles of an image nobody uses any more are dropped with it.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TileCache {
+    public static final String MAX_BYTES_PROPERTY = "qmul.tileCache.maxBytes";
+
+    private static final TileCache SHARED = new TileCache(
+            Long.getLong(MAX_BYTES_PROPERTY, Runtime.getRuntime().maxMemory() / 4));
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, ImageBuffer> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    // keys whose image was garbage collected
+    private final ReferenceQueue<TiledImage> collected = new ReferenceQueue<>();
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+  /**
+   * This constructor creates an empty cache
+   *
+   * @param maxBytes    upper limit of the memory held by cached tiles
+   */
+    public TileCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("cache size must not be negative");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+  /**
+   * This method return the cache used by tiled images
+   *
+   * @return TileCache
+   */
+    public static TileCache shared() {
+        return SHARED;
+    }
+
+  /**
+   * This method return a cached tile and marks it as recently used
+   *
+   * @param image       tiled image owning the tile
+   * @param tileX       tile column
+   * @param tileY       tile row
+   * @return tile planes, null if the tile is not cached
+   */
+    public synchronized ImageBuffer get(TiledImage image, int tileX, int tileY) {
+        purge();
+        ImageBuffer tile = tiles.get(new Key(image, tileX, tileY, null));
+        if (tile == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return tile;
+    }
+
+  /**
+   * This method adds a tile and evicts the least recently used tiles above the size limit
+   *
+   * @param image       tiled image owning the tile
+   * @param tileX       tile column
+   * @param tileY       tile row
+   * @param tile        tile planes
+   */
+    public synchronized void put(TiledImage image, int tileX, int tileY, ImageBuffer tile) {
+        purge();
+        ImageBuffer previous = tiles.put(new Key(image, tileX, tileY, collected), tile);
+        if (previous != null) {
+            cachedBytes -= sizeOf(previous);
+        }
+        cachedBytes += sizeOf(tile);
+        Iterator<Map.Entry<Key, ImageBuffer>> eldest = tiles.entrySet().iterator();
+        // the tile just added is never evicted, even when it alone exceeds the limit
+        while (cachedBytes > maxBytes && tiles.size() > 1) {
+            cachedBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+  /**
+   * This method drops every cached tile
+   */
+    public synchronized void clear() {
+        tiles.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+    * This method return the memory held by cached tiles in bytes
+    *
+    * @return long
+    */
+    public synchronized long getCachedBytes() {
+        purge();
+        return cachedBytes;
+    }
+
+    /**
+    * This method return the configured size limit in bytes
+    *
+    * @return long
+    */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TileCache[tiles=%d, hits=%d, misses=%d, evictions=%d, cached=%d bytes]",
+                tiles.size(), hits, misses, evictions, cachedBytes);
+    }
+
+  /**
+   * This method drops the tiles of the images that were garbage collected
+   */
+    private void purge() {
+        Reference<? extends TiledImage> key;
+        while ((key = collected.poll()) != null) {
+            ImageBuffer tile = tiles.remove(key);
+            if (tile != null) {
+                cachedBytes -= sizeOf(tile);
+            }
+        }
+    }
+
+    private static long sizeOf(ImageBuffer tile) {
+        return 4L * tile.getNumPlanes() * tile.getStride() * tile.getHeight();
+    }
+
+    /*
+     * Tile of an image, holding the image weakly. A key whose image was
+     * collected is only equal to itself, so purge can still remove it.
+     */
+    private static final class Key extends WeakReference<TiledImage> {
+        private final int tileX;
+        private final int tileY;
+        private final int hash;
+
+        private Key(TiledImage image, int tileX, int tileY, ReferenceQueue<TiledImage> queue) {
+            super(image, queue);
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.hash = 31 * (31 * System.identityHashCode(image) + tileX) + tileY;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            TiledImage image = get();
+            return image != null && image == key.get() && tileX == key.tileX && tileY == key.tileY;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
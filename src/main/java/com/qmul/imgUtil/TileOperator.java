@@ -0,0 +1,43 @@
+/*
+ * Description: Operation that computes one tile of a tiled image from the
+ * matching region of its source image, see TiledImage.map.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+public interface TileOperator {
+
+  /**
+   * This method return how many source pixels are needed around each side of a tile
+   *
+   * @return int
+   */
+    int getHalo();
+
+  /**
+   * This method return the number of planes of the computed tiles
+   *
+   * @return int
+   */
+    int getNumPlanes();
+
+  /**
+   * This method return whether the computed tiles hold a single gray plane
+   *
+   * @return boolean
+   */
+    boolean isGrayscale();
+
+  /**
+   * This method computes a tile. The source covers the tile grown by the halo,
+   * clipped to the image bounds.
+   *
+   * @param source      source region
+   * @param sourceX     image column of the first source sample
+   * @param sourceY     image row of the first source sample
+   * @param tile        destination tile
+   * @param tileX       image column of the first tile sample
+   * @param tileY       image row of the first tile sample
+   */
+    void computeTile(ImageBuffer source, int sourceX, int sourceY, ImageBuffer tile, int tileX, int tileY);
+}
@@ -0,0 +1,501 @@
+/*
+ * Description: Image made of a grid of fixed-size tiles. A tile is only
+ * computed when it is first asked for and is then kept in the shared
+ * TileCache, so an image can be far larger than the heap as long as the
+ * tiles in use fit. Tiles hold red, green, blue and alpha planes, or a
+ * single gray plane.
+ *
+ * The class is also a RenderedImage with 8-bit interleaved RGB rasters,
+ * which lets ImageIO save it band by band without materialising the whole
+ * image.
+ * Date: 18/10/2026
+ */
+package com.qmul.imgUtil;
+
+import java.awt.Graphics;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Vector;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+public abstract class TiledImage implements RenderedImage {
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private static final ColorModel BYTE_RGB_MODEL = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+            new int[] {8, 8, 8}, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int numPlanes;
+    private final boolean grayscale;
+    private final TileCache cache;
+
+  /**
+   * This constructor describes the tile grid
+   *
+   * @param width       image width
+   * @param height      image height
+   * @param tileSize    width and height of a tile
+   * @param numPlanes   number of planes of each tile
+   * @param grayscale   tiles hold a single gray plane
+   */
+    protected TiledImage(int width, int height, int tileSize, int numPlanes, boolean grayscale) {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("image and tile size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.numPlanes = numPlanes;
+        this.grayscale = grayscale;
+        this.cache = TileCache.shared();
+    }
+
+  /**
+   * This method computes the samples of one tile
+   *
+   * @param bounds      tile bounds in image coordinates
+   * @param tile        destination tile of the bounds size
+   */
+    protected abstract void computeTile(Rectangle bounds, ImageBuffer tile);
+
+  /**
+   * This method wraps a buffered image, its tiles are copied out of it on demand
+   *
+   * @param bi          buffered image
+   * @return TiledImage
+   */
+    public static TiledImage fromImage(BufferedImage bi) {
+        return new TiledImage(bi.getWidth(), bi.getHeight(), DEFAULT_TILE_SIZE, 4, false) {
+            @Override
+            protected void computeTile(Rectangle bounds, ImageBuffer tile) {
+                RasterUtil.readArgb(bi, bounds.x, bounds.y, tile);
+            }
+        };
+    }
+
+  /**
+   * This method wraps a memory-mapped image store, its tiles are read from it on demand
+   *
+   * @param store       image store holding red, green, blue and alpha planes, or a single gray plane
+   * @param grayscale   the store holds a single gray plane
+   * @return TiledImage
+   */
+    public static TiledImage fromStore(MappedImageStore store, boolean grayscale) {
+        return new TiledImage(store.getWidth(), store.getHeight(), DEFAULT_TILE_SIZE, store.getNumPlanes(), grayscale) {
+            @Override
+            protected void computeTile(Rectangle bounds, ImageBuffer tile) {
+                store.readRegion(bounds.x, bounds.y, tile);
+            }
+        };
+    }
+
+  /**
+   * This method opens an image file without decoding it. Files whose reader
+   * can seek to a tile are decoded a band of tile rows at a time when the
+   * tiles are first needed, other files are decoded once from top to bottom
+   * into a memory-mapped store.
+   *
+   * @param file        image file
+   * @return TiledImage
+   */
+    public static TiledImage fromFile(File file) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(file);
+        if (input == null) {
+            throw new IOException("Cannot open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("No image reader for " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return new FileTiledImage(reader, reader.getWidth(0), reader.getHeight(0), !reader.isImageTiled(0));
+    }
+
+  /**
+   * This method return a tiled image whose tiles are computed from this image
+   * by an operator when they are first needed
+   *
+   * @param operator    tile operation
+   * @return TiledImage
+   */
+    public TiledImage map(TileOperator operator) {
+        TiledImage source = this;
+        int halo = operator.getHalo();
+        return new TiledImage(width, height, tileSize, operator.getNumPlanes(), operator.isGrayscale()) {
+            @Override
+            protected void computeTile(Rectangle bounds, ImageBuffer tile) {
+                Rectangle area = new Rectangle(bounds.x - halo, bounds.y - halo, bounds.width + 2 * halo, bounds.height + 2 * halo)
+                        .intersection(new Rectangle(0, 0, source.getWidth(), source.getHeight()));
+                BufferPool pool = BufferPool.shared();
+                ImageBuffer region = pool.leaseBuffer(area.width, area.height, source.getNumPlanes());
+                source.readRegion(area, region);
+                operator.computeTile(region, area.x, area.y, tile, bounds.x, bounds.y);
+                pool.release(region);
+            }
+        };
+    }
+
+  /**
+   * This method return the planes of a tile, computing it if it is not cached
+   *
+   * @param tileX       tile column
+   * @param tileY       tile row
+   * @return ImageBuffer
+   */
+    public ImageBuffer getTileBuffer(int tileX, int tileY) {
+        ImageBuffer tile = cache.get(this, tileX, tileY);
+        if (tile == null) {
+            Rectangle bounds = getTileBounds(tileX, tileY);
+            tile = new ImageBuffer(bounds.width, bounds.height, numPlanes);
+            computeTile(bounds, tile);
+            cache.put(this, tileX, tileY, tile);
+        }
+        return tile;
+    }
+
+  /**
+   * This method stores a tile that was computed along with another one
+   *
+   * @param tileX       tile column
+   * @param tileY       tile row
+   * @param tile        tile planes
+   */
+    protected void cacheTile(int tileX, int tileY, ImageBuffer tile) {
+        cache.put(this, tileX, tileY, tile);
+    }
+
+  /**
+   * This method return the bounds of a tile, tiles on the right and bottom edge may be smaller
+   *
+   * @param tileX       tile column
+   * @param tileY       tile row
+   * @return Rectangle
+   */
+    public Rectangle getTileBounds(int tileX, int tileY) {
+        int x = tileX * tileSize;
+        int y = tileY * tileSize;
+        return new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+    }
+
+  /**
+   * This method copies a region of the image into an image buffer
+   *
+   * @param area        region in image coordinates, inside the image
+   * @param dest        destination buffer of at least the area size
+   */
+    public void readRegion(Rectangle area, ImageBuffer dest) {
+        int destStride = dest.getStride();
+        for (int tileY = area.y / tileSize; tileY <= (area.y + area.height - 1) / tileSize; tileY++) {
+            for (int tileX = area.x / tileSize; tileX <= (area.x + area.width - 1) / tileSize; tileX++) {
+                Rectangle part = getTileBounds(tileX, tileY).intersection(area);
+                ImageBuffer tile = getTileBuffer(tileX, tileY);
+                int tileStride = tile.getStride();
+                int srcStart = (part.y - tileY * tileSize) * tileStride + part.x - tileX * tileSize;
+                int destStart = (part.y - area.y) * destStride + part.x - area.x;
+                for (int plane = 0; plane < numPlanes; plane++) {
+                    int[] src = tile.getPlane(plane);
+                    int[] dst = dest.getPlane(plane);
+                    for (int row = 0; row < part.height; row++) {
+                        System.arraycopy(src, srcStart + row * tileStride, dst, destStart + row * destStride, part.width);
+                    }
+                }
+            }
+        }
+    }
+
+  /**
+   * This method return a tile packed into a TYPE_INT_RGB buffered image
+   *
+   * @param tileX       tile column
+   * @param tileY       tile row
+   * @return BufferedImage
+   */
+    public BufferedImage getTileImage(int tileX, int tileY) {
+        ImageBuffer tile = getTileBuffer(tileX, tileY);
+        return grayscale ? ImageUtil.createGrayscaleRgbImage(tile) : ImageUtil.createRgbImage(tile);
+    }
+
+  /**
+   * This method copies the whole image into a buffered image. The result
+   * must fit in the heap, so this is only meant for filters without a tiled
+   * implementation.
+   *
+   * @return BufferedImage
+   */
+    public BufferedImage toBufferedImage() {
+        ImageBuffer buffer = new ImageBuffer(width, height, numPlanes);
+        readRegion(new Rectangle(0, 0, width, height), buffer);
+        return grayscale ? ImageUtil.createGrayscaleRgbImage(buffer) : ImageUtil.createRgbImage(buffer);
+    }
+
+  /**
+   * This method draws the tiles that intersect the clip of the graphics
+   *
+   * @param graphics    graphics to draw on
+   */
+    public void drawOn(Graphics graphics) {
+        Rectangle visible = new Rectangle(0, 0, width, height);
+        Rectangle clip = graphics.getClipBounds();
+        if (clip != null) {
+            visible = visible.intersection(clip);
+        }
+        if (visible.isEmpty()) {
+            return;
+        }
+        for (int tileY = visible.y / tileSize; tileY <= (visible.y + visible.height - 1) / tileSize; tileY++) {
+            for (int tileX = visible.x / tileSize; tileX <= (visible.x + visible.width - 1) / tileSize; tileX++) {
+                graphics.drawImage(getTileImage(tileX, tileY), tileX * tileSize, tileY * tileSize, null);
+            }
+        }
+    }
+
+    /**
+    * This method return the number of planes of each tile
+    *
+    * @return int
+    */
+    public int getNumPlanes() {
+        return numPlanes;
+    }
+
+    /**
+    * This method return whether the tiles hold a single gray plane
+    *
+    * @return boolean
+    */
+    public boolean isGrayscale() {
+        return grayscale;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return BYTE_RGB_MODEL;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return BYTE_RGB_MODEL.createCompatibleSampleModel(tileSize, tileSize);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return (width + tileSize - 1) / tileSize;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (height + tileSize - 1) / tileSize;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return tileSize;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return tileSize;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        return toByteRaster(getTileBuffer(tileX, tileY), new Point(tileX * tileSize, tileY * tileSize));
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        Rectangle area = rect.intersection(new Rectangle(0, 0, width, height));
+        ImageBuffer buffer = new ImageBuffer(area.width, area.height, numPlanes);
+        readRegion(area, buffer);
+        return toByteRaster(buffer, area.getLocation());
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            return (WritableRaster) getData();
+        }
+        Rectangle area = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (!area.isEmpty()) {
+            raster.setRect(getData(area));
+        }
+        return raster;
+    }
+
+    private WritableRaster toByteRaster(ImageBuffer buffer, Point location) {
+        int width = buffer.getWidth();
+        int height = buffer.getHeight();
+        int stride = buffer.getStride();
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 3, location);
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int[] red   = buffer.getPlane(grayscale ? ImageBuffer.GRAY : ImageBuffer.RED);
+        int[] green = buffer.getPlane(grayscale ? ImageBuffer.GRAY : ImageBuffer.GREEN);
+        int[] blue  = buffer.getPlane(grayscale ? ImageBuffer.GRAY : ImageBuffer.BLUE);
+        int dst = 0;
+        for (int row = 0; row < height; row++) {
+            int idx = row * stride;
+            for (int col = 0; col < width; col++, idx++) {
+                data[dst++] = (byte) red[idx];
+                data[dst++] = (byte) green[idx];
+                data[dst++] = (byte) blue[idx];
+            }
+        }
+        return raster;
+    }
+
+    /*
+     * Tiles read from an image file. Readers that can seek, like those of
+     * tiled TIFF files, decode a whole band of tile rows at once and all of
+     * its tiles are cached. Formats like PNG and JPEG can only be decoded from
+     * the start, which would decode the image again for every band, so they
+     * are decoded once into a memory-mapped store when the first tile is
+     * needed and every tile is read from there. Files whose reader does not
+     * write the rows in order fall back to decoding bands.
+     */
+    private static final class FileTiledImage extends TiledImage {
+        private final ImageReader reader;
+        private boolean sequential;
+        private MappedImageStore store;
+
+        private FileTiledImage(ImageReader reader, int width, int height, boolean sequential) {
+            super(width, height, DEFAULT_TILE_SIZE, 4, false);
+            this.reader = reader;
+            this.sequential = sequential;
+        }
+
+        @Override
+        protected void computeTile(Rectangle bounds, ImageBuffer tile) {
+            MappedImageStore decoded = decodeOnce();
+            if (decoded != null) {
+                decoded.readRegion(bounds.x, bounds.y, tile);
+                return;
+            }
+            BufferedImage band;
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, bounds.y, getWidth(), bounds.height));
+            try {
+                synchronized (reader) {
+                    band = reader.read(0, param);
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("Cannot read image tile " + bounds, ex);
+            }
+            int tileY = bounds.y / getTileHeight();
+            for (int tileX = 0; tileX < getNumXTiles(); tileX++) {
+                Rectangle part = getTileBounds(tileX, tileY);
+                ImageBuffer target = part.x == bounds.x ? tile : new ImageBuffer(part.width, part.height, getNumPlanes());
+                RasterUtil.readArgb(band, part.x, 0, target);
+                if (target != tile) {
+                    cacheTile(tileX, tileY, target);
+                }
+            }
+        }
+
+      /**
+       * This method decodes a sequential file into the store the first time it is called
+       *
+       * @return MappedImageStore, or null when the file is decoded band by band
+       */
+        private MappedImageStore decodeOnce() {
+            synchronized (reader) {
+                if (sequential && store == null) {
+                    store = SequentialDecoder.decode(reader, getNumPlanes());
+                    sequential = store != null;
+                    if (store != null) {
+                        // every tile comes from the store from now on
+                        Object input = reader.getInput();
+                        reader.dispose();
+                        try {
+                            ((ImageInputStream) input).close();
+                        } catch (IOException ex) {
+                            // the file was read completely
+                        }
+                    }
+                }
+                return store;
+            }
+        }
+    }
+}
@@ -8,24 +8,122 @@ package com.qmul.model;
 import java.awt.*;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
+import com.qmul.imgUtil.Histogram;
+import com.qmul.imgUtil.HistogramService;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageStatistics;
+import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.StatisticsService;
+import com.qmul.imgUtil.TiledImage;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 
 public class FImagePath {
     
     private double currentAngle;
     private BufferedImage bufferedImage;
+    private TiledImage tiledImage;
+    // histograms of the image, which never changes once the path is created
+    private final Map<Histogram.Source, Histogram> histograms = new EnumMap<>(Histogram.Source.class);
+    private ImageStatistics statistics;
     
     public FImagePath(BufferedImage bufferedImage){
         this.bufferedImage = bufferedImage;
     } 
 
+    public FImagePath(TiledImage tiledImage){
+        this.tiledImage = tiledImage;
+    } 
+
     /**
-    * This method return the image
+    * This method return the image. A tiled image is copied into a new
+    * buffered image on every call.
     * 
     * @return buffered image
     */       
     public BufferedImage getImage() {
+       if (bufferedImage == null && tiledImage != null) {
+           return tiledImage.toBufferedImage();
+       }
        return bufferedImage;
     }      
+
+    /**
+    * This method return the tiled image
+    * 
+    * @return tiled image, null if the path holds a buffered image
+    */       
+    public TiledImage getTiledImage() {
+       return tiledImage;
+    }      
+
+    /**
+    * This method moves a buffered image out of the heap into a memory-mapped
+    * image store. The path then holds a tiled image that reads the store.
+    * 
+    */       
+    public void moveToStore() throws IOException {
+       if (bufferedImage == null) {
+           return;
+       }
+       tiledImage = TiledImage.fromStore(ImageUtil.convertImageToStore(bufferedImage), false);
+       bufferedImage = null;
+    }      
+
+    /**
+    * This method return a histogram of the image, computed on the first call
+    * and kept with the path
+    * 
+    * @param source     channels to count
+    * @param planes     planes already converted for the source, counted instead
+    *                   of converting the image again, null for none
+    * @return Histogram
+    */       
+    public synchronized Histogram getHistogram(Histogram.Source source, ImageBuffer planes) {
+       Histogram histogram = histograms.get(source);
+       if (histogram == null) {
+           if (planes != null) {
+               histogram = HistogramService.compute(planes, source);
+           } else if (isTiled()) {
+               histogram = HistogramService.compute(tiledImage, source);
+           } else {
+               histogram = HistogramService.compute(bufferedImage, source);
+           }
+           histograms.put(source, histogram);
+       }
+       return histogram;
+    }      
+
+    /**
+    * This method return the statistics of the red, green and blue channels of
+    * the image, computed on the first call and kept with the path
+    * 
+    * @param planes     red, green and blue planes of the image already read,
+    *                   reduced instead of reading the image again, null for none
+    * @return ImageStatistics
+    */       
+    public synchronized ImageStatistics getStatistics(ImageBuffer planes) {
+       if (statistics == null) {
+           if (planes != null) {
+               statistics = StatisticsService.compute(planes);
+           } else if (isTiled()) {
+               statistics = StatisticsService.compute(tiledImage);
+           } else {
+               statistics = StatisticsService.compute(bufferedImage);
+           }
+       }
+       return statistics;
+    }      
+
+    /**
+    * This method return whether the path holds a tiled image
+    * 
+    * @return boolean
+    */       
+    public boolean isTiled() {
+       return tiledImage != null;
+    }      
     
     /**
     * This method return the current rotated angle
@@ -42,7 +140,7 @@ public class FImagePath {
     * @return int
     */      
     public int getImageWidth(){
-        return this.bufferedImage.getWidth();
+        return isTiled() ? this.tiledImage.getWidth() : this.bufferedImage.getWidth();
     }
     
     /**
@@ -51,7 +149,7 @@ public class FImagePath {
     * @return int
     */      
     public int getImageHeight(){
-        return this.bufferedImage.getHeight();
+        return isTiled() ? this.tiledImage.getHeight() : this.bufferedImage.getHeight();
     }
     
     /**
@@ -8,10 +8,23 @@ package com.qmul.model;
 import java.awt.*;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import com.qmul.imgUtil.Histogram;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageStatistics;
+import com.qmul.imgUtil.TiledImage;
 import java.util.*;
 import java.util.List;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class PathPanel extends Observable implements IMomentoOrigin, IDisplay {
+    // number of most recent images always kept in the heap
+    private static final int HISTORY_IN_HEAP = 1;
+    // smallest history image moved into a memory-mapped store
+    private static final long HISTORY_STORE_PIXELS = Long.getLong("qmul.historyStorePixels", 1L << 22);
+
     private List<FImagePath> paths = new ArrayList<FImagePath>();
 
     public List<FImagePath> paths() {
@@ -20,8 +33,27 @@ public class PathPanel extends Observable implements IMomentoOrigin, IDisplay {
 
     public void add(FImagePath path) {
        paths.add(path);
+       moveHistoryToStore();
        changed();
     }
+
+    /**
+    * This method moves large images behind the current one out of the heap
+    * into memory-mapped stores. Undo restores them as tiled images.
+    * 
+    */    
+    private void moveHistoryToStore() {
+        for (int i = 0; i < paths.size() - HISTORY_IN_HEAP; i++) {
+            FImagePath path = paths.get(i);
+            if (!path.isTiled() && (long) path.getImageWidth() * path.getImageHeight() >= HISTORY_STORE_PIXELS) {
+                try {
+                    path.moveToStore();
+                } catch (IOException ex) {
+                    Logger.getLogger(PathPanel.class.getName()).log(Level.WARNING, "History image kept in the heap", ex);
+                }
+            }
+        }
+    }
     
     /**
     * This method return the current image in the stack
@@ -39,6 +71,59 @@ public class PathPanel extends Observable implements IMomentoOrigin, IDisplay {
         return image;
     }
 
+    /**
+    * This method return the current image if it is tiled
+    * 
+    * @return tiled image, null if there is no current tiled image
+    */      
+    public TiledImage getTiledImage()
+    {
+        FImagePath path = getCurrentPath();
+        return path != null ? path.getTiledImage() : null;
+    }
+
+    /**
+    * This method return a histogram of the current image, kept with it so
+    * every command on the image shares it
+    * 
+    * @param source     channels to count
+    * @param planes     planes of the current image already converted for the source, null for none
+    * @return histogram, null if there is no current image
+    */      
+    public Histogram getHistogram(Histogram.Source source, ImageBuffer planes)
+    {
+        FImagePath path = getCurrentPath();
+        return path != null ? path.getHistogram(source, planes) : null;
+    }
+
+    /**
+    * This method return the statistics of the channels of the current image,
+    * kept with it so every command on the image shares them
+    * 
+    * @param planes     red, green and blue planes of the current image already read, null for none
+    * @return statistics, null if there is no current image
+    */      
+    public ImageStatistics getStatistics(ImageBuffer planes)
+    {
+        FImagePath path = getCurrentPath();
+        return path != null ? path.getStatistics(planes) : null;
+    }
+
+    /**
+    * This method return the current image without copying a tiled image,
+    * for saving it
+    * 
+    * @return rendered image
+    */      
+    public RenderedImage getRenderedImage()
+    {
+        FImagePath path = getCurrentPath();
+        if (path == null){
+            return null;
+        }
+        return path.isTiled() ? path.getTiledImage() : path.getImage();
+    }
+
     /**
     * This method display the current image
     * 
@@ -47,7 +132,7 @@ public class PathPanel extends Observable implements IMomentoOrigin, IDisplay {
     public void displayOn(Graphics graphics) {  
         FImagePath path = getCurrentPath();
         if (path != null){
-            graphics.drawImage(path.getImage(), 0, 0, null);
+            drawPath(graphics, path);
         }
     }
     
@@ -57,10 +142,23 @@ public class PathPanel extends Observable implements IMomentoOrigin, IDisplay {
     */    
     public void displayOn(Graphics graphics, boolean bAppend) {  
         for (FImagePath path: paths) {
-            graphics.drawImage(path.getImage(), 0, 0, null);
+            drawPath(graphics, path);
         }     
     }
 
+    /**
+    * This method draws one image, a tiled image only computes its visible tiles
+    * 
+    */    
+    private void drawPath(Graphics graphics, FImagePath path) {  
+        if (path.isTiled()){
+            path.getTiledImage().drawOn(graphics);
+        }
+        else{
+            graphics.drawImage(path.getImage(), 0, 0, null);
+        }
+    }
+
     /**
     * This method return the momento 
     * 
@@ -0,0 +1,176 @@
+/*
+ * Description: Grayscale and binary morphology with rectangular structuring
+ * elements. Erosion is the window minimum and dilation the maximum over the
+ * reflected element, both computed by RunningExtremum in a constant number
+ * of comparisons per pixel. The composite operations are built from them:
+ *   OPENING    dilation of the erosion, removes bright details smaller than the element
+ *   CLOSING    erosion of the dilation, fills dark details smaller than the element
+ *   TOP_HAT    image minus its opening, the bright details
+ *   BLACK_HAT  closing minus the image, the dark details
+ *   GRADIENT   dilation minus erosion, the outlines
+ * A binary image is a plane of two levels, such as 0 and 255; every
+ * operation keeps it binary.
+ * Date: 18/10/2026
+ */
+package com.qmul.morphology;
+
+import com.qmul.imageTransformation.BorderMode;
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.Rectangle;
+
+public final class Morphology {
+
+    /*
+     * Morphology operations, named by the label the frame shows.
+     */
+    public enum Operation {
+        EROSION("Erosion"),
+        DILATION("Dilation"),
+        OPENING("Opening"),
+        CLOSING("Closing"),
+        TOP_HAT("Top-hat"),
+        BLACK_HAT("Black-hat"),
+        GRADIENT("Gradient");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+      /**
+       * This method return the operation of a name
+       *
+       * @param name        operation label or constant name
+       * @return Operation
+       */
+        public static Operation fromName(String name) {
+            for (Operation operation : values()) {
+                if (operation.label.equalsIgnoreCase(name) || operation.name().equalsIgnoreCase(name)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("unknown morphology operation: " + name);
+        }
+
+        /**
+        * This method return the name of the operation
+        *
+        * @return String
+        */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private Morphology() {
+    }
+
+  /**
+   * This method erodes an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param element     structuring element
+   * @param border      treatment of windows reaching past the image
+   * @return eroded plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] erode(int[] input, int width, int height, int stride, StructuringElement element, BorderMode border) {
+        return extreme(input, width, height, stride, element, false, border);
+    }
+
+  /**
+   * This method dilates an image channel plane
+   *
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param element     structuring element
+   * @param border      treatment of windows reaching past the image
+   * @return dilated plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] dilate(int[] input, int width, int height, int stride, StructuringElement element, BorderMode border) {
+        return extreme(input, width, height, stride, element.reflect(), true, border);
+    }
+
+  /**
+   * This method apply a morphology operation to an image channel plane. The
+   * second step of a composite operation uses the same border mode as the first.
+   *
+   * @param operation   morphology operation
+   * @param input       image channel plane, row-major
+   * @param width       image width
+   * @param height      image height
+   * @param stride      distance between two rows of the input plane
+   * @param element     structuring element
+   * @param border      treatment of windows reaching past the image
+   * @return result plane leased from the shared buffer pool, row-major with a stride of width
+   */
+    public static int[] apply(Operation operation, int[] input, int width, int height, int stride,
+                              StructuringElement element, BorderMode border) {
+        BufferPool pool = BufferPool.shared();
+        int[] first;
+        int[] result;
+        switch (operation) {
+            case EROSION:
+                return erode(input, width, height, stride, element, border);
+            case DILATION:
+                return dilate(input, width, height, stride, element, border);
+            case OPENING:
+                first = erode(input, width, height, stride, element, border);
+                result = dilate(first, width, height, width, element, border);
+                pool.release(first);
+                return result;
+            case CLOSING:
+                first = dilate(input, width, height, stride, element, border);
+                result = erode(first, width, height, width, element, border);
+                pool.release(first);
+                return result;
+            case TOP_HAT:
+                result = apply(Operation.OPENING, input, width, height, stride, element, border);
+                subtract(input, stride, result, width, result, width, width, height);
+                return result;
+            case BLACK_HAT:
+                result = apply(Operation.CLOSING, input, width, height, stride, element, border);
+                subtract(result, width, input, stride, result, width, width, height);
+                return result;
+            default:
+                result = dilate(input, width, height, stride, element, border);
+                first = erode(input, width, height, stride, element, border);
+                subtract(result, width, first, width, result, width, width, height);
+                pool.release(first);
+                return result;
+        }
+    }
+
+    private static int[] extreme(int[] input, int width, int height, int stride, StructuringElement element,
+                                 boolean maximum, BorderMode border) {
+        int[] output = BufferPool.shared().lease(width * height);
+        RunningExtremum.filter(input, 0, 0, stride, width, height, element, maximum, border,
+                               output, width, new Rectangle(0, 0, width, height));
+        return output;
+    }
+
+  /**
+   * This method writes the difference of two planes, the output may be one of
+   * them. Only the cleared border pixels of NONE give negative differences,
+   * they become zero.
+   */
+    private static void subtract(int[] minuend, int minuendStride, int[] subtrahend, int subtrahendStride,
+                                 int[] output, int outputStride, int width, int height) {
+        ParallelBands.forEach(0, height, width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int a = row * minuendStride;
+                int b = row * subtrahendStride;
+                int out = row * outputStride;
+                for (int x = 0; x < width; x++) {
+                    output[out + x] = Math.max(0, minuend[a + x] - subtrahend[b + x]);
+                }
+            }
+        });
+    }
+}
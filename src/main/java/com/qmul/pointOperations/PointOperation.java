@@ -0,0 +1,69 @@
+/*
+ * Description: Operation that maps every 8-bit level to a new level on its
+ * own, whatever the neighbouring pixels. Such operations are described by
+ * a table of 256 levels and chain into one table, see PointPipeline.
+ * Date: 18/10/2026
+ */
+package com.qmul.pointOperations;
+
+public interface PointOperation {
+
+    /*
+     * What the table of an operation is applied to: each colour channel,
+     * or the gray level of the pixel as the filter of the operation reads it
+     * from a colour image, stored as a TYPE_BYTE_GRAY sample or read back
+     * from a TYPE_BYTE_GRAY image.
+     */
+    enum Input {
+        CHANNELS,
+        STORED_GRAY,
+        GRAY_LEVELS
+    }
+
+    /*
+     * The image an operation outputs: colour, grayscale or binary.
+     */
+    enum Output {
+        RGB,
+        GRAY,
+        BINARY
+    }
+
+  /**
+   * This method return the name of the operation
+   *
+   * @return String
+   */
+    String getName();
+
+  /**
+   * This method return the levels the table applies to
+   *
+   * @return Input
+   */
+    Input getInput();
+
+  /**
+   * This method return the kind of image the operation outputs
+   *
+   * @return Output
+   */
+    Output getOutput();
+
+  /**
+   * This method return whether the table depends on the histogram of its input.
+   * Only operations on gray levels may depend on it.
+   *
+   * @return boolean
+   */
+    boolean needsHistogram();
+
+  /**
+   * This method creates the table of the operation
+   *
+   * @param counts      histogram of the input levels, null unless needsHistogram
+   * @param total       number of pixels
+   * @return new level of each level 0 to 255
+   */
+    int[] createTable(long[] counts, long total);
+}
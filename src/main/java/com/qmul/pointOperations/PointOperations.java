@@ -0,0 +1,133 @@
+/*
+ * Description: The point operations of the editor: brightness rescaling,
+ * thresholding, bit plane extraction and histogram equalisation. Each one
+ * computes its table with the arithmetic its filter used per sample, so
+ * applying the table gives the same levels.
+ * Date: 18/10/2026
+ */
+package com.qmul.pointOperations;
+
+import com.qmul.imgUtil.Histogram;
+import com.qmul.imgUtil.ImageUtil;
+
+public final class PointOperations {
+    private PointOperations() {
+    }
+
+  /**
+   * This method return the rescaling of each channel by a factor, clamped to 0..255
+   *
+   * @param scalingFactor   brightness scaling factor
+   * @return PointOperation
+   */
+    public static PointOperation rescaling(float scalingFactor) {
+        return new Operation(String.format("Rescaling by %f", scalingFactor), PointOperation.Input.CHANNELS,
+                             PointOperation.Output.RGB, false) {
+            @Override
+            public int[] createTable(long[] counts, long total) {
+                int[] table = new int[Histogram.LEVELS];
+                for (int level = 0; level < table.length; level++) {
+                    table[level] = ImageUtil.normalisePixelRange(Math.round(scalingFactor * level));
+                }
+                return table;
+            }
+        };
+    }
+
+  /**
+   * This method return the thresholding of the gray level, levels at or above
+   * the threshold become black and the others white
+   *
+   * @param threshold   threshold level
+   * @return PointOperation
+   */
+    public static PointOperation threshold(int threshold) {
+        return new Operation(String.format("Thresholding using %s level", threshold), PointOperation.Input.STORED_GRAY,
+                             PointOperation.Output.BINARY, false) {
+            @Override
+            public int[] createTable(long[] counts, long total) {
+                int[] table = new int[Histogram.LEVELS];
+                for (int level = 0; level < table.length; level++) {
+                    table[level] = level >= threshold ? 0 : 255;
+                }
+                return table;
+            }
+        };
+    }
+
+  /**
+   * This method return the extraction of one bit of the gray level, set bits
+   * become white and cleared bits black
+   *
+   * @param bitPlane    bit number/position
+   * @return PointOperation
+   */
+    public static PointOperation bitPlane(int bitPlane) {
+        return new Operation(String.format("Bit plane %d", bitPlane), PointOperation.Input.GRAY_LEVELS,
+                             PointOperation.Output.GRAY, false) {
+            @Override
+            public int[] createTable(long[] counts, long total) {
+                int[] table = new int[Histogram.LEVELS];
+                for (int level = 0; level < table.length; level++) {
+                    table[level] = ((level >> bitPlane) & 1) * 255;
+                }
+                return table;
+            }
+        };
+    }
+
+  /**
+   * This method return the histogram equalisation of the gray level
+   *
+   * @return PointOperation
+   */
+    public static PointOperation equalisation() {
+        return new Operation("Histogram Equalisation", PointOperation.Input.STORED_GRAY, PointOperation.Output.GRAY, true) {
+            @Override
+            public int[] createTable(long[] counts, long total) {
+                int[] table = new int[Histogram.LEVELS];
+                long sum = 0;
+                float scale = (float) 255.0 / total;
+                for (int level = 0; level < table.length; level++) {
+                    sum += counts[level];
+                    table[level] = Math.min(255, (int) (scale * sum));
+                }
+                return table;
+            }
+        };
+    }
+
+    private abstract static class Operation implements PointOperation {
+        private final String name;
+        private final Input input;
+        private final Output output;
+        private final boolean needsHistogram;
+
+        private Operation(String name, Input input, Output output, boolean needsHistogram) {
+            this.name = name;
+            this.input = input;
+            this.output = output;
+            this.needsHistogram = needsHistogram;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Input getInput() {
+            return input;
+        }
+
+        @Override
+        public Output getOutput() {
+            return output;
+        }
+
+        @Override
+        public boolean needsHistogram() {
+            return needsHistogram;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Description: Chain of point operations applied in one pass. The tables of
+ * consecutive operations are composed into one table per channel, so a
+ * chain of any length costs one table lookup per sample, where running
+ * the filters one after another converts the image in and out each time.
+ *
+ * Operations on the channels compose into a colour table. The first
+ * operation on gray levels turns the image gray: the pixel is converted to
+ * its luminance, as the filter of the operation does, and the operations
+ * from there on compose into a gray table. A later operation reads the gray
+ * image the way its filter would read the output of the previous one, which
+ * is a table of the level too, so the chain gives the same image as its
+ * filters run one after another. An operation that depends on the histogram
+ * of its input takes it from the histogram of the first gray levels, moved
+ * through the table composed before it.
+ * Date: 18/10/2026
+ */
+package com.qmul.pointOperations;
+
+import com.qmul.imgUtil.BufferPool;
+import com.qmul.imgUtil.ColourConverter;
+import com.qmul.imgUtil.Histogram;
+import com.qmul.imgUtil.HistogramService;
+import com.qmul.imgUtil.ImageBuffer;
+import com.qmul.imgUtil.ImageUtil;
+import com.qmul.imgUtil.ParallelBands;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+public final class PointPipeline {
+    private final List<PointOperation> operations = new ArrayList<>();
+
+  /**
+   * This method return a pipeline of operations
+   *
+   * @param operations  operations in the order they apply
+   * @return PointPipeline
+   */
+    public static PointPipeline of(PointOperation... operations) {
+        PointPipeline pipeline = new PointPipeline();
+        for (PointOperation operation : operations) {
+            pipeline.then(operation);
+        }
+        return pipeline;
+    }
+
+  /**
+   * This method appends an operation to the pipeline
+   *
+   * @param operation   operation applied after the others
+   * @return this pipeline
+   */
+    public PointPipeline then(PointOperation operation) {
+        operations.add(operation);
+        return this;
+    }
+
+    /**
+    * This method return the operations of the pipeline
+    *
+    * @return operations in the order they apply
+    */
+    public List<PointOperation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+  /**
+   * This method apply the pipeline to an image
+   *
+   * @param bi          buffered image
+   * @return buffered image
+   */
+    public BufferedImage apply(BufferedImage bi) throws IOException {
+        return apply(bi, null);
+    }
+
+  /**
+   * This method apply the pipeline to an image. The operations are compiled
+   * into tables first, then the image is read and mapped in one pass, with a
+   * second pass only when an operation needs the histogram of gray levels
+   * that are not those of the luminance histogram.
+   *
+   * @param bi          buffered image
+   * @param luminance   supplies the Histogram.Source.LUMINANCE histogram of the
+   *                    image, for example the one kept with its path, null to count it
+   * @return buffered image, the image itself for an empty pipeline
+   */
+    public BufferedImage apply(BufferedImage bi, Supplier<Histogram> luminance) throws IOException {
+        if (operations.isEmpty()) {
+            return bi;
+        }
+        BufferPool pool = BufferPool.shared();
+        ImageBuffer channels = ImageUtil.convertImageToRgbBuffer(bi, pool);
+        int width = channels.getWidth();
+        int height = channels.getHeight();
+        long total = (long) width * height;
+
+        int[] channelTable = identity();
+        PointOperation.Input grayInput = null;
+        // table from the first gray levels to the current ones
+        int[] grayTable = null;
+        ImageBuffer gray = null;
+        long[] grayCounts = null;
+        for (PointOperation operation : operations) {
+            if (grayInput == null && operation.getInput() == PointOperation.Input.CHANNELS) {
+                channelTable = compose(operation.createTable(null, total), channelTable);
+                continue;
+            }
+            if (grayInput == null) {
+                grayInput = operation.getInput();
+                grayTable = identity();
+            } else {
+                // the gray image written by the previous operation, read again
+                grayTable = compose(reread(operation.getInput()), grayTable);
+            }
+            long[] counts = null;
+            if (operation.needsHistogram()) {
+                if (grayCounts == null) {
+                    if (luminance != null && isIdentity(channelTable) && grayInput == PointOperation.Input.STORED_GRAY) {
+                        grayCounts = luminance.get().getCounts(0);
+                    } else {
+                        gray = grayLevels(channels, channelTable, grayInput, pool);
+                        grayCounts = HistogramService.compute(gray, new int[] {ImageBuffer.GRAY}).getCounts(0);
+                    }
+                }
+                counts = new long[Histogram.LEVELS];
+                for (int level = 0; level < Histogram.LEVELS; level++) {
+                    counts[grayTable[level]] += grayCounts[level];
+                }
+            }
+            grayTable = compose(operation.createTable(counts, total), grayTable);
+        }
+
+        if (grayInput == null) {
+            ImageUtil.mapChannels(channels, channelTable, channelTable, channelTable);
+            BufferedImage mappedImage = ImageUtil.createRgbImage(channels);
+            pool.release(channels);
+            return mappedImage;
+        }
+        ImageBuffer output;
+        if (gray != null) {
+            pool.release(channels);
+            mapGray(gray, grayTable);
+            output = gray;
+        } else {
+            output = pool.leaseBuffer(width, height, 1);
+            mapToGray(channels, channelTable, compose(grayTable, entry(grayInput)), output);
+            pool.release(channels);
+        }
+        switch (operations.get(operations.size() - 1).getOutput()) {
+            case BINARY:
+                BufferedImage binaryImage = ImageUtil.convertBinaryToBufferedImg(output);
+                pool.release(output);
+                return binaryImage;
+            default:
+                BufferedImage grayImage = ImageUtil.createGrayscaleRgbImage(output);
+                pool.release(output);
+                return grayImage;
+        }
+    }
+
+    private static int[] identity() {
+        int[] table = new int[Histogram.LEVELS];
+        for (int level = 0; level < table.length; level++) {
+            table[level] = level;
+        }
+        return table;
+    }
+
+    private static boolean isIdentity(int[] table) {
+        for (int level = 0; level < table.length; level++) {
+            if (table[level] != level) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+  /**
+   * This method return the table of second applied after first
+   */
+    private static int[] compose(int[] second, int[] first) {
+        int[] table = new int[first.length];
+        for (int level = 0; level < table.length; level++) {
+            table[level] = second[first[level]];
+        }
+        return table;
+    }
+
+  /**
+   * This method return the table from a luminance to the gray level an operation reads
+   */
+    private static int[] entry(PointOperation.Input input) {
+        switch (input) {
+            case STORED_GRAY:
+                return ImageUtil.getByteGraySamples();
+            case GRAY_LEVELS:
+                return ImageUtil.getByteGrayLevels();
+            default:
+                return identity();
+        }
+    }
+
+  /**
+   * This method return the table from the level of a gray image to the level
+   * an operation reads from it, through the luminance of its equal channels
+   */
+    private static int[] reread(PointOperation.Input input) {
+        int[] luminance = new int[Histogram.LEVELS];
+        for (int level = 0; level < luminance.length; level++) {
+            luminance[level] = ColourConverter.rec709Gamma(level, level, level);
+        }
+        return input == PointOperation.Input.CHANNELS ? identity() : compose(entry(input), luminance);
+    }
+
+    private static ImageBuffer grayLevels(ImageBuffer channels, int[] channelTable, PointOperation.Input input, BufferPool pool) {
+        ImageBuffer gray = pool.leaseBuffer(channels.getWidth(), channels.getHeight(), 1);
+        mapToGray(channels, channelTable, entry(input), gray);
+        return gray;
+    }
+
+  /**
+   * This method writes the gray level of every pixel, the table of the
+   * luminance of its mapped channels
+   */
+    private static void mapToGray(ImageBuffer channels, int[] channelTable, int[] grayTable, ImageBuffer gray) {
+        int width = channels.getWidth();
+        int stride = channels.getStride();
+        int grayStride = gray.getStride();
+        int[] red = channels.getPlane(ImageBuffer.RED);
+        int[] green = channels.getPlane(ImageBuffer.GREEN);
+        int[] blue = channels.getPlane(ImageBuffer.BLUE);
+        int[] output = gray.getPlane(ImageBuffer.GRAY);
+        ParallelBands.forEach(0, channels.getHeight(), 3L * width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                int outIdx = row * grayStride;
+                for (int col = 0; col < width; col++, idx++, outIdx++) {
+                    output[outIdx] = grayTable[ColourConverter.rec709Gamma(channelTable[red[idx]], channelTable[green[idx]],
+                                                                           channelTable[blue[idx]])];
+                }
+            }
+        });
+    }
+
+    private static void mapGray(ImageBuffer gray, int[] table) {
+        int width = gray.getWidth();
+        int stride = gray.getStride();
+        int[] plane = gray.getPlane(ImageBuffer.GRAY);
+        ParallelBands.forEach(0, gray.getHeight(), width, (first, end) -> {
+            for (int row = first; row < end; row++) {
+                int idx = row * stride;
+                for (int col = 0; col < width; col++, idx++) {
+                    plane[idx] = table[plane[idx]];
+                }
+            }
+        });
+    }
+}